@@ -7,6 +7,7 @@ import org.jbox2d.dynamics.FixtureDef;
 import org.jbox2d.dynamics.World;
 import org.sangraama.asserts.map.physics.PolygonObjectPhysics;
 import org.sangraama.asserts.map.physics.PolylineObjectPhysics;
+import org.sangraama.common.CollisionMatrix;
 import org.sangraama.common.Constants;
 
 import java.util.List;
@@ -29,6 +30,7 @@ public class PhysicsAPI {
 
             polygon.createFixtureDef(vertices, vertices.length);
             this.fixtureDef = polygon.getFixtureDef();
+            CollisionMatrix.apply(this.fixtureDef, Constants.CATEGORY_DEFAULT);
         }
         if (staticObject.getType().equals("polyline")) {
             PolylineObjectPhysics polyline = new PolylineObjectPhysics();
@@ -48,6 +50,7 @@ public class PhysicsAPI {
             polyline.createFixtureDef(vertices, vertices.length);
 
             this.fixtureDef = polyline.getFixtureDef();
+            CollisionMatrix.apply(this.fixtureDef, Constants.CATEGORY_ISLAND);
 
 
         }
@@ -47,6 +47,5 @@ public class PolygonObjectPhysics {
         polygonShape.set(vertices, count);
         fixtureDef = new FixtureDef();
         fixtureDef.shape = polygonShape;
-        fixtureDef.filter.groupIndex = -1;
     }
 }
@@ -67,7 +67,6 @@ public class PolylineObjectPhysics {
         // chainShape.set(vertices, count);
         fixtureDef = new FixtureDef();
         fixtureDef.shape = chainShape;
-        fixtureDef.filter.groupIndex = 2;
         fixtureDef.userData = "island";
     }
 
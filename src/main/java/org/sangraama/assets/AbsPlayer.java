@@ -2,7 +2,10 @@ package org.sangraama.assets;
 
 import org.sangraama.controller.WebSocketConnection;
 import org.sangraama.gameLogic.GameEngine;
+import org.sangraama.gameLogic.GameInstance;
+import org.sangraama.gameLogic.delta.ClientBaseline;
 import org.sangraama.jsonprotocols.SendProtocol;
+import org.sangraama.jsonprotocols.UpdateFrame;
 import org.sangraama.jsonprotocols.send.SangraamaTile;
 import org.sangraama.jsonprotocols.send.TileInfo;
 import org.slf4j.Logger;
@@ -10,6 +13,9 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * **************************************************************************
@@ -28,11 +34,13 @@ public abstract class AbsPlayer {
     private static final Logger log = LoggerFactory.getLogger(AbsPlayer.class);
     private static final String TAG = "AbsPlayer : ";
     long userID;
+    GameInstance instance; // game instance which the player belongs to
     GameEngine gameEngine;
     SangraamaMap sangraamaMap;
     // WebSocket Connection
     WebSocketConnection con;
     volatile boolean isUpdate = false;
+    volatile boolean isActive = true; // client sent an event since the last idle check
     short isPlayer = 2;
     /*
      * if player type is 1: primary connection player
@@ -62,7 +70,15 @@ public abstract class AbsPlayer {
     float screenWidth = 0.0f, screenHeight = 0.0f;
     float halfAOIWidth = 0.0f; // half width of AOI
     float halfAOIHieght = 0.0f; // half height of AOI
-    List<SendProtocol> deltaList; // Store delta list
+    /* Latest encoded delta list which isn't sent yet. Single slot : newer update replaces it */
+    final AtomicReference<UpdateFrame> updateMailbox = new AtomicReference<>();
+    final AtomicLong coalescedUpdates = new AtomicLong(); // replaced before sending
+    final AtomicLong droppedUpdates = new AtomicLong(); // failed to send
+    /* Messages other than updates which wait for the sender worker. Never replaced */
+    final ConcurrentLinkedQueue<SendProtocol> outbox = new ConcurrentLinkedQueue<>();
+    volatile boolean closeAfterMessages = false; // close the connection after the outbox
+    // States sent to the client, for delta compression
+    final ClientBaseline baseline = new ClientBaseline();
     // player current sub-tile information
     float currentSubTileOriginX = 0.0f;
     float currentSubTileOriginY = 0.0f;
@@ -70,26 +86,28 @@ public abstract class AbsPlayer {
     /**
      * Create abstract player
      *
+     * @param instance game instance which the player connected to
      * @param userID Plater User ID
      * @param x      x coordination of the player
      * @param y      y coordination of the player
      * @param w      width of the AOI
      * @param h      height of the AOI
      */
-    public AbsPlayer(long userID, float x, float y, float w, float h) {
+    public AbsPlayer(GameInstance instance, long userID, float x, float y, float w, float h) {
+        this.instance = instance;
         this.userID = userID;
         this.x = x;
         this.y = y;
+        this.sangraamaMap = instance.getMap();
         this.setAOI(w, h);
 
-        this.sangraamaMap = SangraamaMap.INSTANCE;
         /*
          * Note: this should replace by sangraama map method. Player shouldn't
 		 * responsible for Deciding it's sub-tile
 		 */
         this.currentSubTileOriginX = x - (x % sangraamaMap.getSubTileWidth());
         this.currentSubTileOriginY = y - (y % sangraamaMap.getSubTileHeight());
-        this.gameEngine = GameEngine.INSTANCE;
+        this.gameEngine = instance.getGameEngine();
 
 		/*log.info(TAG + " init player : " + userID + " x-" + x + " : y-" + y
                 + " w:" + screenWidth + " h:" + screenHeight);*/
@@ -116,6 +134,33 @@ public abstract class AbsPlayer {
             return false;
     }
 
+    /**
+     * Get the game instance which the player belongs to
+     *
+     * @return game instance of the player
+     */
+    public GameInstance getGameInstance() {
+        return this.instance;
+    }
+
+    /**
+     * Client sent an event. Called by the thread of the connection
+     */
+    public void markActive() {
+        this.isActive = true;
+    }
+
+    /**
+     * Close the connection of the player. Ex: an idle player, or a player who wasn't admitted to
+     * the game world
+     */
+    public void disconnect() {
+        WebSocketConnection connection = this.con;
+        if (connection != null) {
+            connection.closeConnection();
+        }
+    }
+
     /**
      * Remove Web socket connection for player
      * TODO This method isn't secure. Have to inherit from a interface both this and WebSocketConnection
@@ -125,9 +170,9 @@ public abstract class AbsPlayer {
     /**
      * Send update to client
      *
-     * @param deltaList List of Objects inherited from SendProtocol class
+     * @param updateMsg delta list encoded as a message
      */
-    public abstract void sendUpdate(List<SendProtocol> deltaList);
+    public abstract void sendUpdate(UpdateFrame updateMsg);
 
     /**
      * Check whether given location (the virtual point to be set) it inside the total map
@@ -185,7 +230,8 @@ public abstract class AbsPlayer {
      * sizes may access during TileInfo Object creation
      */
     public void sendTileSizeInfo() {
-        this.con.sendTileSizeInfo(new TileInfo(this.userID));
+        this.con.sendTileSizeInfo(new TileInfo(this.userID, this.instance
+                .getTileCoordinator()));
     }
 
     /**
@@ -224,6 +270,21 @@ public abstract class AbsPlayer {
      */
     public abstract void shoot(float s);
 
+    /**
+     * Queue an input command of the client, which is applied by the game engine thread at the
+     * start of the next tick. Called by the thread of the connection.
+     *
+     * @param type  InputRing.MOVE, InputRing.RESET, InputRing.AOI, InputRing.VIRTUAL_POINT or
+     *              InputRing.SCORE
+     * @param vx    velocity in x direction, AOI width, virtual point x or score change
+     * @param vy    velocity in y direction, AOI height or virtual point y
+     * @param angle angle in degrees
+     * @param da    angular velocity
+     * @param shoot true to shoot a bullet
+     */
+    public abstract void postInput(byte type, float vx, float vy, float angle, float da,
+                                   boolean shoot);
+
     /**
      * *******************************
      * Getter and Setters            *
@@ -335,9 +396,9 @@ public abstract class AbsPlayer {
         // Set point which virtual point can holds
         this.totOrgX = this.halfAOIWidth + 0.2f;
         this.totOrgY = this.halfAOIHieght + 0.2f;
-        this.totEdgeX = SangraamaMap.INSTANCE.getMaxWidth()
+        this.totEdgeX = this.sangraamaMap.getMaxWidth()
                 - (this.halfAOIWidth + 0.2f);
-        this.totEdgeY = SangraamaMap.INSTANCE.getMaxHeight()
+        this.totEdgeY = this.sangraamaMap.getMaxHeight()
                 - (this.halfAOIHieght + 0.2f);
     }
 
@@ -396,21 +457,122 @@ public abstract class AbsPlayer {
     }
 
     /**
-     * Get players update list
+     * Get the states which were sent to the client recently
+     *
+     * @return baselines of delta compression
+     */
+    public ClientBaseline getBaseline() {
+        return this.baseline;
+    }
+
+    /**
+     * Check whether client negotiated the binary protocol
+     *
+     * @return true if updates should be sent in binary form
+     */
+    public boolean isBinaryProtocol() {
+        WebSocketConnection con = this.con;
+        return con != null && con.isBinaryProtocol();
+    }
+
+    /**
+     * Put the latest update into the mailbox of the connection. If the previous update isn't sent
+     * yet, it is replaced and counted as coalesced.
+     *
+     * @param updateMsg delta updates encoded for the protocol of the connection
+     * @return true if mailbox was empty, then caller should schedule the player for sending
+     */
+    public boolean postUpdate(UpdateFrame updateMsg) {
+        if (this.updateMailbox.getAndSet(updateMsg) != null) {
+            this.coalescedUpdates.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Take the pending update out of the mailbox
+     *
+     * @return encoded delta updates, null if there isn't a pending update
+     */
+    public UpdateFrame takeUpdate() {
+        return this.updateMailbox.getAndSet(null);
+    }
+
+    /**
+     * Queue a message which isn't an update (Ex: score change for another server). Unlike updates,
+     * queued messages are never replaced. Caller should schedule the player for sending.
+     *
+     * @param message message to be sent after the previously queued ones
+     */
+    public void queueMessage(SendProtocol message) {
+        this.outbox.add(message);
+    }
+
+    /**
+     * Close the connection once the messages queued before are sent. Caller should schedule the
+     * player for sending.
+     */
+    public void queueClose() {
+        this.closeAfterMessages = true;
+    }
+
+    /**
+     * Send the queued messages in one list, and close the connection if it was asked. Called by
+     * the sender worker of the connection.
+     */
+    public void sendMessages() {
+        // Read before the outbox, so the messages queued before the close are sent first
+        boolean close = this.closeAfterMessages;
+        if (!this.outbox.isEmpty()) {
+            List<SendProtocol> messages = new ArrayList<>();
+            SendProtocol message;
+            while ((message = this.outbox.poll()) != null) {
+                messages.add(message);
+            }
+            this.sendSyncData(messages);
+        }
+        WebSocketConnection con = this.con;
+        if (close && con != null) {
+            this.closeAfterMessages = false;
+            con.closeConnection();
+        }
+    }
+
+    /**
+     * An update was written to the connection. Called by the sender worker.
+     *
+     * @param updateMsg update which was written
+     */
+    protected void updateDelivered(UpdateFrame updateMsg) {
+        if (updateMsg.getTick() >= 0) {
+            this.baseline.delivered(updateMsg.getTick());
+        }
+    }
+
+    /**
+     * Count an update which couldn't be delivered to the client
+     */
+    protected void countDroppedUpdate() {
+        this.droppedUpdates.incrementAndGet();
+    }
+
+    /**
+     * Get number of updates which were replaced by a newer update before sending
      *
-     * @return List of delta updates
+     * @return number of coalesced updates
      */
-    public List<SendProtocol> getDeltaList() {
-        return this.deltaList;
+    public long getCoalescedUpdates() {
+        return this.coalescedUpdates.get();
     }
 
     /**
-     * Set players update list
+     * Get number of updates which couldn't be delivered to the client
      *
-     * @param deltaList of delta updates
+     * @return number of dropped updates
      */
-    public void setDeltaList(List<SendProtocol> deltaList) {
-        this.deltaList = deltaList;
+    public long getDroppedUpdates() {
+        return this.droppedUpdates.get();
     }
 
 }
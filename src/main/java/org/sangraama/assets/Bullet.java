@@ -1,14 +1,13 @@
 package org.sangraama.assets;
 
-import org.jbox2d.collision.shapes.CircleShape;
 import org.jbox2d.common.Vec2;
 import org.jbox2d.dynamics.Body;
 import org.jbox2d.dynamics.BodyDef;
-import org.jbox2d.dynamics.BodyType;
 import org.jbox2d.dynamics.FixtureDef;
-import org.sangraama.controller.BulletPassHandler;
-import org.sangraama.coordination.staticPartition.TileCoordinator;
-import org.sangraama.jsonprotocols.send.BulletDelta;
+import org.sangraama.gameLogic.GameInstance;
+import org.sangraama.gameLogic.ProjectileEngine;
+import org.sangraama.gameLogic.snapshot.WorldSnapshot;
+import org.sangraama.gameLogic.tick.TimingWheel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,21 +20,46 @@ public class Bullet {
 
     private float originX, originY;
     private float x, y;
-    private Vec2 velocity;
+    private final Vec2 velocity = new Vec2();
     private Body body;
-    private BulletDelta bulletDelta;
     private long id;
+    private long key; // unique key given by the game engine. IDs are random and can repeat
     float screenWidth, screenHeight;
 
+    private GameInstance instance; // game instance which the bullet was fired in
     private SangraamaMap sangraamaMap;
     private float currentSubTileOriginX;
     private float currentSubTileOriginY;
     private float currentSubTileEndX;
     private float currentSubTileEndY;
     private int type; // bullet type
+    private int snapshotIndex = -1; // index of the bullet in the latest world snapshot
+    /* Velocity which clients simulate the bullet with, and the tick it was set on */
+    private float refVx, refVy;
+    private long refTick = -1;
+    /* Ray cast bullets don't have a body; they are moved by the projectile engine */
+    private boolean isRaycast;
+    private volatile boolean isHit = false;
+    private long removedTick = -1; // tick which the bullet was removed from the game world on
+    /* Removes the bullet when it's out of range. Kept when the bullet is reused */
+    private final TimingWheel.Timer<Bullet> rangeTimer = new TimingWheel.Timer<>(this);
 
-    public Bullet(long id, long playerId, float x, float y, Vec2 velocity, float originX,
-            float originY, float w, float h, int bulletType) {
+    /**
+     * Create a bullet. Use BulletPool to reuse bullets which were removed.
+     */
+    public Bullet(GameInstance instance, long id, long playerId, float x, float y, Vec2 velocity,
+            float originX, float originY, float w, float h, int bulletType) {
+        this.reset(instance, id, playerId, x, y, velocity.x, velocity.y, originX, originY, w, h,
+                bulletType);
+    }
+
+    /**
+     * Set every field as a new bullet. Used by BulletPool, which is shared by the game instances
+     */
+    void reset(GameInstance instance, long id, long playerId, float x, float y, float vx,
+            float vy, float originX, float originY, float w, float h, int bulletType) {
+        this.instance = instance;
+        this.sangraamaMap = instance.getMap();
         this.id = id;
         this.playerId = playerId;
         this.originX = originX;
@@ -44,9 +68,14 @@ public class Bullet {
         this.screenWidth = w;
         this.x = x;
         this.y = y;
-        this.velocity = velocity;
+        this.velocity.set(vx, vy);
+        this.body = null;
         this.type = bulletType;
-        this.sangraamaMap = SangraamaMap.INSTANCE;
+        this.snapshotIndex = -1;
+        this.refTick = -1;
+        this.isRaycast = ProjectileEngine.isRaycastType(bulletType);
+        this.isHit = false;
+        this.removedTick = -1;
         this.currentSubTileOriginX = x - (x % sangraamaMap.getSubTileWidth());
         this.currentSubTileOriginY = y - (y % sangraamaMap.getSubTileHeight());
         this.currentSubTileEndX = (x - (x % sangraamaMap.getSubTileWidth()))
@@ -63,35 +92,71 @@ public class Bullet {
         return this.body;
     }
 
+    /**
+     * Get the body definition of the bullet. Definition is shared by the bullets of the game engine
+     * thread, so it should be used before next call.
+     */
     public BodyDef getBodyDef() {
-        BodyDef bd = new BodyDef();
+        BodyDef bd = BulletPool.INSTANCE.getBodyDef();
         bd.position.set(this.x, this.y);
-        bd.type = BodyType.DYNAMIC;
-        bd.bullet = true;
-        // bd.fixedRotation = true;
         return bd;
     }
 
+    /**
+     * Get the fixture definition of the bullet. Definition and its shape are shared by the bullets
+     * of the same type, so it should be used by the game engine thread before next call.
+     */
     public FixtureDef getFixtureDef() {
-        CircleShape circle = new CircleShape();
-        circle.m_radius = 0.5f;
-        FixtureDef fd = new FixtureDef();
-        fd.shape = circle;
-        fd.density = 0.1f;
-        // fd.shape = circle;
+        FixtureDef fd = BulletPool.INSTANCE.getFixtureDef(this.type);
         fd.userData = this;
-        // fd.friction = 0.2f;
-        fd.restitution = 0.5f;
-        fd.filter.groupIndex = 2;
         return fd;
     }
 
     public float getX() {
-        return this.body.getPosition().x;
+        return this.body != null ? this.body.getPosition().x : this.x;
     }
 
     public float getY() {
-        return this.body.getPosition().y;
+        return this.body != null ? this.body.getPosition().y : this.y;
+    }
+
+    /**
+     * Move a ray cast bullet
+     */
+    public void setPosition(float x, float y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Check whether the bullet is moved by ray casts instead of a body
+     */
+    public boolean isRaycast() {
+        return isRaycast;
+    }
+
+    /**
+     * Bullet hit something and is going to be removed. Removal may wait for a later tick when the
+     * remove queue is over its budget, so a hit bullet shouldn't hit again.
+     */
+    public void setHit() {
+        this.isHit = true;
+    }
+
+    public boolean isHit() {
+        return isHit;
+    }
+
+    public void setRemovedTick(long tick) {
+        this.removedTick = tick;
+    }
+
+    public long getRemovedTick() {
+        return removedTick;
+    }
+
+    public TimingWheel.Timer<Bullet> getRangeTimer() {
+        return rangeTimer;
     }
 
     public Vec2 getVelocity() {
@@ -102,6 +167,14 @@ public class Bullet {
         return id;
     }
 
+    public void setKey(long key) {
+        this.key = key;
+    }
+
+    public long getKey() {
+        return key;
+    }
+
     public long getPlayerId() {
         return this.playerId;
     }
@@ -122,21 +195,48 @@ public class Bullet {
         return screenHeight;
     }
 
-    public BulletDelta getBulletDelta() {
-        this.x = this.body.getPosition().x;
-        this.y = this.body.getPosition().y;
-        this.bulletDelta = new BulletDelta(this.x, this.y, this.body.getAngle(), this.playerId,
-                this.id, this.type);
+    /**
+     * Write current state of the bullet into the snapshot of the game world. If bullet left the
+     * sub-tiles of this server, it is passed to the neighbor server. Velocity is written with the
+     * tick it last changed on, so clients which simulate the bullet are sent a new path.
+     * 
+     * @param snapshot
+     *            snapshot of the current tick
+     */
+    public void writeSnapshot(WorldSnapshot snapshot) {
+        float angle = 0;
+        Vec2 v = this.velocity;
+        if (this.body != null) {
+            this.x = this.body.getPosition().x;
+            this.y = this.body.getPosition().y;
+            angle = this.body.getAngle();
+            v = this.body.getLinearVelocity();
+        }
+        this.snapshotIndex = snapshot.addBullet(this.id, this.playerId, this.x, this.y, angle,
+                this.type);
+        if (this.refTick < 0 || v.x != this.refVx || v.y != this.refVy) {
+            this.refVx = v.x;
+            this.refVy = v.y;
+            this.refTick = snapshot.getTickNumber();
+        }
+        snapshot.setMotion(this.snapshotIndex, this.refVx, this.refVy, this.refTick);
         if (!isInsideSeverSubTile(this.x, this.y)) {
-            BulletPassHandler.INSTANCE.passBullets(this);
+            this.instance.getBulletPassHandler().passBullets(this);
         }
-        return bulletDelta;
     }
 
     public int getType() {
         return type;
     }
 
+    public GameInstance getGameInstance() {
+        return instance;
+    }
+
+    public int getSnapshotIndex() {
+        return snapshotIndex;
+    }
+
     /**
      * This method check whether the x,y coordinates are out of the server controlled area or not
      * 
@@ -157,7 +257,8 @@ public class Bullet {
                     + sangraamaMap.getSubTileWidth();
             currentSubTileEndY = (y - (y % sangraamaMap.getSubTileHeight()))
                     + sangraamaMap.getSubTileHeight();
-            if (!sangraamaMap.getHost().equals(TileCoordinator.INSTANCE.getSubTileHost(x, y))) {
+            String host = this.instance.getTileCoordinator().getSubTileHost(x, y);
+            if (!sangraamaMap.getHost().equals(host)) {
                 /*
                  * log.info(TAG + "Bullet is not inside a subtile of " + sangraamaMap.getHost());
                  */
@@ -0,0 +1,145 @@
+package org.sangraama.assets;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jbox2d.collision.shapes.CircleShape;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.BodyDef;
+import org.jbox2d.dynamics.BodyType;
+import org.jbox2d.dynamics.FixtureDef;
+import org.sangraama.common.CollisionMatrix;
+import org.sangraama.common.Constants;
+import org.sangraama.gameLogic.GameInstance;
+
+/**
+ * Bounded pool of bullets which were removed from the game world, and the physics definitions
+ * which are shared by bullets. Bullets are taken by the threads which fire them and returned by
+ * the game engine thread, or by BulletQueue when it refuses a new bullet. When the pool is full,
+ * returned bullets are left to the GC.
+ *
+ * The pool is shared by the game instances of the server; a reused bullet joins the instance of
+ * its new shooter. Each game engine thread has its own definitions.
+ */
+public enum BulletPool {
+    INSTANCE;
+
+    private final ArrayBlockingQueue<Bullet> free;
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    /* Definitions of the game engine thread which uses them */
+    private final ThreadLocal<BodyDef> bodyDef;
+    private final ThreadLocal<Map<Integer, FixtureDef>> fixtureDefs;
+
+    private BulletPool() {
+        this.free = new ArrayBlockingQueue<>(Constants.bulletPoolSize);
+        this.bodyDef = new ThreadLocal<BodyDef>() {
+            @Override
+            protected BodyDef initialValue() {
+                BodyDef bd = new BodyDef();
+                bd.type = BodyType.DYNAMIC;
+                bd.bullet = true;
+                return bd;
+            }
+        };
+        this.fixtureDefs = new ThreadLocal<Map<Integer, FixtureDef>>() {
+            @Override
+            protected Map<Integer, FixtureDef> initialValue() {
+                return new HashMap<>();
+            }
+        };
+    }
+
+    /**
+     * Get a bullet, reused if there is one in the pool
+     *
+     * @param instance
+     *            game instance which the bullet is fired in
+     * @param vx
+     *            velocity along x axis
+     * @param vy
+     *            velocity along y axis
+     * @return bullet which isn't added to the game world yet
+     */
+    public Bullet acquire(GameInstance instance, long id, long playerId, float x, float y,
+            float vx, float vy, float originX, float originY, float w, float h, int bulletType) {
+        Bullet bullet = this.free.poll();
+        if (bullet == null) {
+            this.created.incrementAndGet();
+            bullet = new Bullet(instance, id, playerId, x, y, new Vec2(vx, vy), originX, originY,
+                    w, h, bulletType);
+        } else {
+            this.reused.incrementAndGet();
+            bullet.reset(instance, id, playerId, x, y, vx, vy, originX, originY, w, h,
+                    bulletType);
+        }
+        return bullet;
+    }
+
+    /**
+     * Return a bullet which was removed from the game world. Bullet shouldn't be referred anymore
+     * (Ex: by pending collisions), since it is going to be reused as a new bullet.
+     *
+     * @param bullet
+     *            removed bullet
+     */
+    public void release(Bullet bullet) {
+        bullet.setBody(null);
+        if (!this.free.offer(bullet)) {
+            this.discarded.incrementAndGet();
+        }
+    }
+
+    BodyDef getBodyDef() {
+        return this.bodyDef.get();
+    }
+
+    /**
+     * Get the fixture definition of a bullet type. Shape is shared too; JBox2D copies it when the
+     * fixture is created.
+     */
+    FixtureDef getFixtureDef(int bulletType) {
+        Map<Integer, FixtureDef> fixtureDefs = this.fixtureDefs.get();
+        FixtureDef fd = fixtureDefs.get(bulletType);
+        if (fd == null) {
+            CircleShape circle = new CircleShape();
+            circle.m_radius = 0.5f;
+            fd = new FixtureDef();
+            fd.shape = circle;
+            fd.density = 0.1f;
+            fd.restitution = 0.5f;
+            CollisionMatrix.apply(fd, Constants.CATEGORY_BULLET);
+            fixtureDefs.put(bulletType, fd);
+        }
+        return fd;
+    }
+
+    /**
+     * Get number of bullets which were allocated because the pool was empty
+     */
+    public long getCreated() {
+        return created.get();
+    }
+
+    /**
+     * Get number of bullets which were taken from the pool
+     */
+    public long getReused() {
+        return reused.get();
+    }
+
+    /**
+     * Get number of returned bullets which didn't fit into the pool
+     */
+    public long getDiscarded() {
+        return discarded.get();
+    }
+
+    public int size() {
+        return this.free.size();
+    }
+}
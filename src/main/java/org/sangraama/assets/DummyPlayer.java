@@ -1,9 +1,12 @@
 package org.sangraama.assets;
 
+import org.sangraama.common.Constants;
 import org.sangraama.controller.WebSocketConnection;
-import org.sangraama.coordination.staticPartition.TileCoordinator;
+import org.sangraama.gameLogic.GameInstance;
 import org.sangraama.gameLogic.queue.DummyQueue;
+import org.sangraama.gameLogic.queue.InputRing;
 import org.sangraama.jsonprotocols.SendProtocol;
+import org.sangraama.jsonprotocols.UpdateFrame;
 import org.sangraama.jsonprotocols.send.SyncPlayer;
 import org.sangraama.jsonprotocols.transfer.ScoreChangeTransferReq;
 import org.slf4j.Logger;
@@ -29,20 +32,24 @@ public class DummyPlayer extends AbsPlayer {
 
     private static final Logger log = LoggerFactory.getLogger(DummyPlayer.class);
     private DummyQueue dummyQueue;
+    // AOI and virtual point commands of the client, applied by the game engine thread
+    private final InputRing inputs = new InputRing(Constants.inputRingSize);
 
     /**
      * Create a dummy player in order to get updates to fulfill the player's AOI in client side
      *
+     * @param instance game instance which the client connected to
      * @param userID userID of the player in server side
      * @param w      width of player's AOI
      * @param h      height of player's AOI
      * @param con    web socket Connection
      */
-    public DummyPlayer(long userID, float w, float h, WebSocketConnection con) {
-        super(userID, 0.0f, 0.0f, w, h);
+    public DummyPlayer(GameInstance instance, long userID, float w, float h,
+                       WebSocketConnection con) {
+        super(instance, userID, 0.0f, 0.0f, w, h);
         isPlayer = 2;
         this.con = con;
-        this.dummyQueue = DummyQueue.INSTANCE;
+        this.dummyQueue = instance.getDummyQueue();
         this.dummyQueue.addToDummyQueue(this);
     }
 
@@ -82,7 +89,8 @@ public class DummyPlayer extends AbsPlayer {
         if (currentSubTileOriginX != subTileOriX || currentSubTileOriginY != subTileOriY) {
             currentSubTileOriginX = subTileOriX;
             currentSubTileOriginY = subTileOriY;
-            if (!sangraamaMap.getHost().equals(TileCoordinator.INSTANCE.getSubTileHost(x, y))) {
+            String host = this.instance.getTileCoordinator().getSubTileHost(x, y);
+            if (!sangraamaMap.getHost().equals(host)) {
                 insideServerSubTile = false;
                 // log.info("player is not inside a subtile of " + sangraamaMap.getHost());
             }
@@ -97,21 +105,25 @@ public class DummyPlayer extends AbsPlayer {
          */
     }
 
-    public void sendUpdate(List<SendProtocol> deltaList) {
+    public void sendUpdate(UpdateFrame updateMsg) {
         if (this.con != null) {
             try {
-                this.con.sendUpdate(deltaList);
+                this.con.sendUpdate(updateMsg);
+                this.updateDelivered(updateMsg);
             } catch (IOException e) {
+                this.countDroppedUpdate();
                 this.dummyQueue.addToRemoveDummyQueue(this);
                 this.isPlayer = 0;
                 e.printStackTrace();
             }
 
         } else if (this.isPlayer == 2) {
+            this.countDroppedUpdate();
             this.dummyQueue.addToRemoveDummyQueue(this);
             this.isPlayer = 0;
             log.warn("Unable to send updates,coz con :" + con + ". Add to remove queue.");
         } else {
+            this.countDroppedUpdate();
             log.error("waiting for remove");
         }
     }
@@ -183,11 +195,11 @@ public class DummyPlayer extends AbsPlayer {
                 || isInsideMap(x_vp + halfAOIWidth, y_vp + halfAOIHieght)) {
             // if one of point is located in server, set virtual point
 
-            List<SendProtocol> data = new ArrayList<>();
-            // Send updates which are related/interest to dummy player
-            data.add(new SyncPlayer(userID, x_virtual, y_virtual, screenWidth, screenHeight));
+            // Send updates which are related/interest to dummy player. Sent by the sender
+            // worker, since this is applied by the game engine thread
+            this.instance.getAOIEngine().postMessage(this, new SyncPlayer(userID, x_virtual,
+                    y_virtual, screenWidth, screenHeight));
             // log.info("set Virtual point x" + x_vp + " y" + y_vp);
-            this.sendSyncData(data);
 
             // Update values
             this.x_vp_l = x_virtual - halfAOIWidth;
@@ -196,29 +208,23 @@ public class DummyPlayer extends AbsPlayer {
             this.y_vp_d = y_virtual + halfAOIHieght;
 
         } else { // Otherwise drop the connection of getting updates
-            List<SendProtocol> data = new ArrayList<>();
-            // Send updates which are related/interest to closing a dummy player
-            data.add(new SyncPlayer(userID));
+            // Send updates which are related/interest to closing a dummy player, then close
+            this.instance.getAOIEngine().postClose(this, new SyncPlayer(userID));
             // log.info("Virtual point x" + x_vp + " y" + y_vp +
             // " is out from this map. Closing ... ");
-            this.sendSyncData(data);
-            con.closeConnection();
             this.dummyQueue.addToRemoveDummyQueue(this);
         }
         return false;
     }
 
     /**
-     * Send score changed of player
+     * Send score changed of player. The message is queued for the sender worker of the
+     * connection, since it's called by the game engine thread which must not write to a socket.
      *
      * @param scoreChangeReq Score change transfer request
      */
     public void sendScoreChange(ScoreChangeTransferReq scoreChangeReq) {
-        if (this.con != null) {
-            ArrayList<SendProtocol> scoreChangeReqList = new ArrayList<>();
-            scoreChangeReqList.add(scoreChangeReq);
-            con.sendScoreChangeReq(scoreChangeReqList);
-        }
+        this.instance.getAOIEngine().postMessage(this, scoreChangeReq);
     }
 
     /**
@@ -241,4 +247,29 @@ public class DummyPlayer extends AbsPlayer {
         /* Don't implement. Not relevant to dummy player */
     }
 
+    public void postInput(byte type, float vx, float vy, float angle, float da, boolean shoot) {
+        if (type != InputRing.AOI && type != InputRing.VIRTUAL_POINT) {
+            return; // Movement and score are not relevant to dummy player
+        }
+        if (!this.inputs.offer(type, vx, vy, angle, da, shoot)) {
+            log.warn(userID + " input commands are dropped. dropped:" + this.inputs.getDropped());
+        }
+    }
+
+    /**
+     * Apply AOI and virtual point commands which arrived since the last tick. Called by the game
+     * engine thread.
+     */
+    public void applyUpdate() {
+        int count = this.inputs.size();
+        for (int i = 0; i < count; i++) {
+            if (this.inputs.getType(i) == InputRing.AOI) {
+                this.setAOI(this.inputs.getVx(i), this.inputs.getVy(i));
+            } else {
+                this.setVirtualPoint(this.inputs.getVx(i), this.inputs.getVy(i));
+            }
+        }
+        this.inputs.consume(count);
+    }
+
 }
\ No newline at end of file
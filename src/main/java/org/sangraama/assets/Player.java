@@ -5,14 +5,14 @@ import org.jbox2d.dynamics.Body;
 import org.jbox2d.dynamics.BodyDef;
 import org.jbox2d.dynamics.FixtureDef;
 import org.sangraama.common.Constants;
-import org.sangraama.controller.PlayerPassHandler;
 import org.sangraama.controller.WebSocketConnection;
-import org.sangraama.coordination.staticPartition.TileCoordinator;
-import org.sangraama.gameLogic.queue.BulletQueue;
+import org.sangraama.gameLogic.GameInstance;
+import org.sangraama.gameLogic.queue.InputRing;
 import org.sangraama.gameLogic.queue.PlayerQueue;
+import org.sangraama.gameLogic.snapshot.WorldSnapshot;
+import org.sangraama.gameLogic.tick.TimingWheel;
 import org.sangraama.jsonprotocols.SendProtocol;
-import org.sangraama.jsonprotocols.send.DefeatMsg;
-import org.sangraama.jsonprotocols.send.PlayerDelta;
+import org.sangraama.jsonprotocols.UpdateFrame;
 import org.sangraama.jsonprotocols.send.SyncPlayer;
 import org.sangraama.jsonprotocols.send.VirtualPointAccessLevel;
 import org.slf4j.Logger;
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * **************************************************************************
@@ -48,19 +49,37 @@ public abstract class Player extends AbsPlayer {
     int a_rate = 2;  // angle acceleration rate
     float angularVelocity;
     int imgType;// image type of the player
+    /*
+     * Fields changed since the last snapshot (WorldSnapshot.FIELD_* bits). Setters may be called
+     * by other threads; movement of the body is detected when writing the snapshot
+     */
+    private final AtomicInteger dirtyMask = new AtomicInteger(WorldSnapshot.FIELD_ALL);
+    private float lastX = Float.NaN, lastY = Float.NaN, lastAngle = Float.NaN;
+    /* Dead reckoning: position and velocity which clients extrapolate from, and their tick */
+    private float refX, refY, refVx, refVy;
+    private long refTick = -1;
     int bulletType;// bullet type of the player
     /* Player moving parameters */
     // Player speed factor
     float v_rate = 2.5f;
     float bullet_v_rate = 3.5f;
     Vec2 v = new Vec2(0.0f, 0.0f);
-    PlayerDelta delta;
+    // Indexes of the player in the latest world snapshot
+    int snapshotIndex = -1;
+    int defeatSnapshotIndex = -1;
     private float subTileEdgeX = 0.0f; // Store value of subTileOriginX + subtileWidth
     private float subTileEdgeY = 0.0f; // Store value of subTileOriginY + subtileHeight
+    /* Connection check of the game engine, and number of checks without any event */
+    private final TimingWheel.Timer<Player> checkTimer = new TimingWheel.Timer<>(this);
+    private int idleChecks = 0;
+    /* Input commands of the client, applied by the game engine thread */
+    private final InputRing inputs = new InputRing(Constants.inputRingSize);
+    private final PlayerQueue playerQueue; // queues of the game instance of the player
 
     /**
      * Create a player
      *
+     * @param instance   game instance which the client connected to
      * @param userID     player user ID
      * @param x          x coordinate of the player
      * @param y          y coordinate of the player
@@ -72,9 +91,11 @@ public abstract class Player extends AbsPlayer {
      * @param imgType    player's physical view in client side
      * @param bulletType bullet's physical view in client side
      */
-    public Player(long userID, float x, float y, float w, float h, float health, float score,
-                  WebSocketConnection con, int imgType, int bulletType) {
-        super(userID, x, y, w, h);
+    public Player(GameInstance instance, long userID, float x, float y, float w, float h,
+                  float health, float score, WebSocketConnection con, int imgType,
+                  int bulletType) {
+        super(instance, userID, x, y, w, h);
+        this.playerQueue = instance.getPlayerQueue();
         super.isPlayer = 1;
         super.con = con;
         /* Set sub tile edge values without method */
@@ -82,37 +103,43 @@ public abstract class Player extends AbsPlayer {
         this.subTileEdgeY = (y - (y % sangraamaMap.getSubTileHeight())) + sangraamaMap.getSubTileHeight();
         this.health = health;
         this.score = score;
-        PlayerQueue.INSTANCE.addToPlayerQueue(this);
+        this.playerQueue.addToPlayerQueue(this);
         this.imgType = imgType;
         this.bulletType = bulletType;
     }
 
     /**
-     * Generate and get delta of player updates (the among of change from previous data)
+     * Write current state of the player into the snapshot of the game world. Should be called by
+     * the game engine thread after the world step.
      *
-     * @return Player's delta updates
+     * @param snapshot snapshot of the current tick
      */
-    public PlayerDelta getPlayerDelta() {
-        /*if ((this.body.getPosition().x - this.x) != 0f || (this.body.getPosition().y - this.y) != 0) {
-
-            System.out.print("id : " + this.userID + " x:" + x * Constants.scale + " y:" +
-                    y * Constants.scale + " angle:" + this.body.getAngle() + " & " +
-                    this.body.getAngularVelocity() + " # ");
-            System.out.println(" x_virtual:" + this.x_virtual * Constants.scale + " y_virtual:" + this.y_virtual * Constants.scale);
-
-        }*/
-
-        // this.delta = new PlayerDelta(this.body.getPosition().x - this.x,
-        // this.body.getPosition().y - this.y, this.userID);
-        this.delta = new PlayerDelta(this.body.getPosition().x, this.body.getPosition().y,
-                this.body.getAngle(), this.userID, this.health, this.score, this.imgType);
-        /*
-         * for (Bullet bullet : this.removedBulletList) {
-         * delta.getBulletDeltaList().add(bullet.getBulletDelta(2)); }
-         */
-        this.x = this.body.getPosition().x;
-        this.y = this.body.getPosition().y;
+    public void writeSnapshot(WorldSnapshot snapshot) {
+        Vec2 position = this.body.getPosition();
+        this.x = position.x;
+        this.y = position.y;
         this.oldAngle = this.body.getAngle() % 360;
+        float bodyAngle = this.body.getAngle();
+        int dirty = this.dirtyMask.getAndSet(0);
+        if (bodyAngle != this.lastAngle) {
+            dirty |= WorldSnapshot.FIELD_ANGLE;
+        }
+        this.lastAngle = bodyAngle;
+        if (Constants.deadReckoning) {
+            this.writeExtrapolated(snapshot, bodyAngle, dirty);
+        } else {
+            if (this.x != this.lastX) {
+                dirty |= WorldSnapshot.FIELD_X;
+            }
+            if (this.y != this.lastY) {
+                dirty |= WorldSnapshot.FIELD_Y;
+            }
+            this.lastX = this.x;
+            this.lastY = this.y;
+            this.snapshotIndex = snapshot.addPlayer(this.userID, this.x, this.y, bodyAngle,
+                    this.health, this.score, this.imgType, dirty);
+        }
+        this.defeatSnapshotIndex = -1;
         // Check whether player is inside the tile or not
         /*
          * Gave this responsibility to client if (!this.isInsideMap(this.x, this.y)) {
@@ -120,16 +147,16 @@ public abstract class Player extends AbsPlayer {
          */
 
         if (!isInsideServerSubTile(this.x, this.y)) {
-            PlayerPassHandler.INSTANCE.setPassPlayer(this);
+            this.instance.getPlayerPassHandler().setPassPlayer(this);
             // log.info(userID + " outside of the subtile detected");
         }
-        return this.delta;
     }
 
     /**
      * Apply new player events to the game world object
      */
     public void applyUpdate() {
+        this.applyInputs();
         this.body.setLinearVelocity(this.getV());
         this.body.setAngularVelocity(0.0f);
         if (this.angularVelocity == 0) {
@@ -140,10 +167,90 @@ public abstract class Player extends AbsPlayer {
 
     }
 
+    public void postInput(byte type, float vx, float vy, float angle, float da, boolean shoot) {
+        if (!this.inputs.offer(type, vx, vy, angle, da, shoot)) {
+            log.warn(userID + " input commands are dropped. dropped:" + this.inputs.getDropped());
+        }
+    }
+
+    /**
+     * Apply input commands which arrived since the last tick. Movement is coalesced to the latest
+     * command, while every shot is fired with the angle of its own command. AOI, virtual point
+     * and score changes are applied in the order they arrived.
+     */
+    private void applyInputs() {
+        int count = this.inputs.size();
+        if (count == 0) {
+            return;
+        }
+        float vx = 0, vy = 0, a = 0, da = 0;
+        boolean moved = false;
+        boolean turned = false;
+        for (int i = 0; i < count; i++) {
+            byte type = this.inputs.getType(i);
+            if (type == InputRing.AOI) {
+                this.setAOI(this.inputs.getVx(i), this.inputs.getVy(i));
+                continue;
+            } else if (type == InputRing.VIRTUAL_POINT) {
+                this.setVirtualPoint(this.inputs.getVx(i), this.inputs.getVy(i));
+                continue;
+            } else if (type == InputRing.SCORE) {
+                this.setScore(this.inputs.getVx(i));
+                continue;
+            }
+            moved = true;
+            vx = this.inputs.getVx(i);
+            vy = this.inputs.getVy(i);
+            a = this.inputs.getAngle(i);
+            if (type == InputRing.MOVE) {
+                da = this.inputs.getAngularVelocity(i);
+                turned = true;
+            }
+            if (this.inputs.isShoot(i)) {
+                this.setAngle(a);
+                this.shoot(1);
+            }
+        }
+        this.inputs.consume(count);
+        if (!moved) {
+            return;
+        }
+        this.setV(vx, vy);
+        this.setAngle(a);
+        if (turned) {
+            this.setAngularVelocity(da);
+        }
+    }
+
     public void removeWebSocketConnection() {
         con = null;
     }
 
+    public TimingWheel.Timer<Player> getCheckTimer() {
+        return checkTimer;
+    }
+
+    /**
+     * Check whether the client is still connected and sent an event within
+     * Constants.playerIdleTimeout ticks. Called by the game engine thread every
+     * Constants.playerCheckInterval ticks.
+     *
+     * @return false if the player should be removed from the game world
+     */
+    public boolean checkConnection() {
+        if (this.con == null) {
+            return false;
+        }
+        if (this.isActive) {
+            this.isActive = false;
+            this.idleChecks = 0;
+            return true;
+        }
+        this.idleChecks++;
+        return Constants.playerIdleTimeout <= 0
+                || this.idleChecks * Constants.playerCheckInterval < Constants.playerIdleTimeout;
+    }
+
     /**
      * Check whether player is inside current tile
      *
@@ -180,7 +287,8 @@ public abstract class Player extends AbsPlayer {
             currentSubTileOriginY = y - (y % sangraamaMap.getSubTileHeight());
             this.setSubTileEgdeValues(); // update edge values
             // check whether players coordinates are in current map
-            if (!sangraamaMap.getHost().equals(TileCoordinator.INSTANCE.getSubTileHost(x, y))) {
+            String host = this.instance.getTileCoordinator().getSubTileHost(x, y);
+            if (!sangraamaMap.getHost().equals(host)) {
                 log.info(userID + " player is not inside a sub tile of " + sangraamaMap.getHost());
                 return false;
             }
@@ -190,28 +298,32 @@ public abstract class Player extends AbsPlayer {
 
     public void reqInterestIn(float x, float y) {
         if (!isInsideServerSubTile(x, y) && isInsideTotalMap(x, y)) {
-            PlayerPassHandler.INSTANCE.setPassConnection(x, y, this);
+            this.instance.getPlayerPassHandler().setPassConnection(x, y, this);
         }
     }
 
-    public void sendUpdate(List<SendProtocol> deltaList) {
+    public void sendUpdate(UpdateFrame updateMsg) {
         if (this.con != null) {
             try {
-                con.sendUpdate(deltaList);
+                con.sendUpdate(updateMsg);
+                this.updateDelivered(updateMsg);
             } catch (IOException e) {
-                PlayerQueue.INSTANCE.addToRemovePlayerQueue(this);
+                this.countDroppedUpdate();
+                this.playerQueue.addToRemovePlayerQueue(this);
                 this.isPlayer = 0;
                 e.printStackTrace();
             }
         } else if (this.isPlayer == 1) {
-            PlayerQueue.INSTANCE.addToRemovePlayerQueue(this);
+            this.countDroppedUpdate();
+            this.playerQueue.addToRemovePlayerQueue(this);
             this.isPlayer = 0;
             log.warn(userID + " Unable to send updates,coz con :" + this.con
                     + ". waiting for remove.");
         } else {
+            this.countDroppedUpdate();
             log.error(userID + "  waiting for remove (1) id:" + userID + " player type:"
                     + super.isPlayer);
-            PlayerQueue.INSTANCE.addToRemovePlayerQueue(this);
+            this.playerQueue.addToRemovePlayerQueue(this);
         }
     }
 
@@ -226,10 +338,10 @@ public abstract class Player extends AbsPlayer {
             transferReqList.add(transferReq);
             con.sendNewConnection(transferReqList);
             /* Changed player type into dummy player and remove from the world */
-            PlayerQueue.INSTANCE.addToRemovePlayerQueue(this);
-            con.setDummyPlayer(new DummyPlayer(userID, screenWidth, screenHeight, con));
+            this.playerQueue.addToRemovePlayerQueue(this);
+            con.setDummyPlayer(new DummyPlayer(instance, userID, screenWidth, screenHeight, con));
         } else if (super.isPlayer == 1) {
-            PlayerQueue.INSTANCE.addToRemovePlayerQueue(this);
+            this.playerQueue.addToRemovePlayerQueue(this);
             super.isPlayer = 0;
             log.warn(userID + " Unable to send new connection,coz con :" + super.con
                     + ". Add to remove queue.");
@@ -250,7 +362,7 @@ public abstract class Player extends AbsPlayer {
             transferReqList.add(transferReq);
             con.sendNewConnection(transferReqList);
         } else if (super.isPlayer == 1) {
-            PlayerQueue.INSTANCE.addToRemovePlayerQueue(this);
+            this.playerQueue.addToRemovePlayerQueue(this);
             super.isPlayer = 0;
             log.warn(userID + " Unable to send new connection,coz con :" + super.con
                     + ". Add to remove queue.");
@@ -279,12 +391,12 @@ public abstract class Player extends AbsPlayer {
             try {
                 con.sendUpdate(syncData);
             } catch (IOException e) {
-                PlayerQueue.INSTANCE.addToRemovePlayerQueue(this);
+                this.playerQueue.addToRemovePlayerQueue(this);
                 this.isPlayer = 0;
                 e.printStackTrace();
             }
         } else if (super.isPlayer == 1) {
-            PlayerQueue.INSTANCE.addToRemovePlayerQueue(this);
+            this.playerQueue.addToRemovePlayerQueue(this);
             this.isPlayer = 0;
             log.warn(userID + " Unable to send syncdata,coz con :" + this.con
                     + ". Add to remove queue.");
@@ -333,12 +445,12 @@ public abstract class Player extends AbsPlayer {
                 y = y - rY;
             }
             long id = (long) (generator.nextInt(10000));
-            Vec2 bulletVelocity = new Vec2((x - this.body.getPosition().x) * this.bullet_v_rate,
-                    (y - this.body.getPosition().y) * this.bullet_v_rate);
-            Bullet bullet = new Bullet(id, this.userID, x, y, bulletVelocity,
-                    this.body.getPosition().x, this.body.getPosition().y, this.getScreenWidth(),
-                    this.getScreenHeight(), this.bulletType);
-            BulletQueue.INSTANCE.addToBulletQueue(bullet);
+            Vec2 position = this.body.getPosition();
+            Bullet bullet = BulletPool.INSTANCE.acquire(this.instance, id, this.userID, x, y,
+                    (x - position.x) * this.bullet_v_rate, (y - position.y) * this.bullet_v_rate,
+                    position.x, position.y, this.getScreenWidth(), this.getScreenHeight(),
+                    this.bulletType);
+            this.instance.getBulletQueue().addToBulletQueue(bullet);
             // log.info(userID + " : Added a new bullet");
 
         }
@@ -410,11 +522,10 @@ public abstract class Player extends AbsPlayer {
             // log.info(userID + "  But set as vp x:" + x_vp + " y:" + y_vp);
         }
 
-        List<SendProtocol> data = new ArrayList<>();
-        data.add(new SyncPlayer(userID, x, y, x_virtual, y_virtual, angle, screenWidth,
-                screenHeight, vp_al));
+        // Sent by the sender worker, since this is applied by the game engine thread
+        this.instance.getAOIEngine().postMessage(this, new SyncPlayer(userID, x, y, x_virtual,
+                y_virtual, angle, screenWidth, screenHeight, vp_al));
         // log.info(userID + " set Virtual point x:" + x_virtual + " y:" + y_virtual);
-        this.sendSyncData(data);
 
         // Update values
         this.x_vp_l = x_virtual - halfAOIWidth;
@@ -433,6 +544,24 @@ public abstract class Player extends AbsPlayer {
         this.subTileEdgeY = currentSubTileOriginY + sangraamaMap.getSubTileHeight();
     }
 
+    /**
+     * Get index of the player in the latest world snapshot
+     *
+     * @return index of the entity
+     */
+    public int getSnapshotIndex() {
+        return this.snapshotIndex;
+    }
+
+    /**
+     * Get index of the defeat details in the latest world snapshot
+     *
+     * @return index of the entity, or -1 if player wasn't defeated in the latest tick
+     */
+    public int getDefeatSnapshotIndex() {
+        return this.defeatSnapshotIndex;
+    }
+
     /**
      * Get body of player
      *
@@ -483,6 +612,7 @@ public abstract class Player extends AbsPlayer {
 
     public void setAngle(float a) {
         this.angle = a % 360;
+        this.markDirty(WorldSnapshot.FIELD_ANGLE);
         // log.info(TAG + userID + "  set angle : " + a + " > " + this.angle);
     }
 
@@ -504,8 +634,9 @@ public abstract class Player extends AbsPlayer {
         } else {
             this.health = 0;
             this.setScore(-200);
-            PlayerQueue.INSTANCE.addToDefaetList(this);
+            this.playerQueue.addToDefaetList(this);
         }
+        this.markDirty(WorldSnapshot.FIELD_HEALTH);
     }
 
     public float getScore() {
@@ -527,6 +658,51 @@ public abstract class Player extends AbsPlayer {
         } else {
             this.score = 0;
         }
+        this.markDirty(WorldSnapshot.FIELD_SCORE);
+    }
+
+    /**
+     * Write the position which clients predict from the last sent position and velocity, as long
+     * as it is within Constants.deadReckoningError of the body. Otherwise, or when the velocity
+     * was not sent for Constants.deadReckoningMaxSilence ticks, the current position and velocity
+     * become the new reference and are marked dirty.
+     *
+     * @param snapshot snapshot of the current tick
+     * @param bodyAngle current angle of the body
+     * @param dirty fields which are dirty except position
+     */
+    private void writeExtrapolated(WorldSnapshot snapshot, float bodyAngle, int dirty) {
+        long tick = snapshot.getTickNumber();
+        float elapsed = (tick - this.refTick) * Constants.timeStep;
+        float px = this.refX + this.refVx * elapsed;
+        float py = this.refY + this.refVy * elapsed;
+        float ex = this.x - px, ey = this.y - py;
+        if (this.refTick < 0 || tick - this.refTick >= Constants.deadReckoningMaxSilence
+                || ex * ex + ey * ey > Constants.deadReckoningError * Constants.deadReckoningError) {
+            Vec2 v = this.body.getLinearVelocity();
+            this.refX = px = this.x;
+            this.refY = py = this.y;
+            this.refVx = v.x;
+            this.refVy = v.y;
+            this.refTick = tick;
+            dirty |= WorldSnapshot.FIELD_X | WorldSnapshot.FIELD_Y | WorldSnapshot.FIELD_VELOCITY;
+        }
+        this.snapshotIndex = snapshot.addPlayer(this.userID, px, py, bodyAngle, this.health,
+                this.score, this.imgType, dirty);
+        snapshot.setMotion(this.snapshotIndex, this.refVx, this.refVy, this.refTick);
+    }
+
+    /**
+     * Mark fields which should be sent to clients on next tick. Marked after the field is written,
+     * so a concurrent snapshot at worst sends the field once more.
+     *
+     * @param fields WorldSnapshot.FIELD_* bits
+     */
+    private void markDirty(int fields) {
+        int mask;
+        do {
+            mask = this.dirtyMask.get();
+        } while (!this.dirtyMask.compareAndSet(mask, mask | fields));
     }
 
     /**
@@ -539,13 +715,13 @@ public abstract class Player extends AbsPlayer {
     }
 
     /**
-     * Generate and get defeat message to inform players
+     * Write defeat details into the snapshot of the game world in order to inform players
      *
-     * @return Details about defeated player
+     * @param snapshot snapshot of the current tick
      */
-    public DefeatMsg getDefeatMsg() {
-        return new DefeatMsg(this.userID, this.body.getPosition().x, this.body.getPosition().y,
-                this.body.getAngle(), this.score, this.imgType);
+    public void writeDefeatSnapshot(WorldSnapshot snapshot) {
+        this.defeatSnapshotIndex = snapshot.addDefeated(this.userID, this.body.getPosition().x,
+                this.body.getPosition().y, this.body.getAngle(), this.score, this.imgType);
     }
 
 }
\ No newline at end of file
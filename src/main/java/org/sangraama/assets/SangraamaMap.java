@@ -4,8 +4,11 @@ import org.sangraama.common.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public enum SangraamaMap {
-    INSTANCE;
+/**
+ * Tile of a game instance and the size of its sub-tiles, in JBox2D units. Each game instance of
+ * the server has its own map.
+ */
+public class SangraamaMap {
     private static final Logger log = LoggerFactory.getLogger(SangraamaMap.class);
     private float originX = 0.0f;
     private float originY = 0.0f;
@@ -20,7 +23,7 @@ public enum SangraamaMap {
     /* Total map */
     private float maxWidth, maxHeight;
 
-    private SangraamaMap() {
+    public SangraamaMap() {
 
     }
 
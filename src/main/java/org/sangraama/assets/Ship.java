@@ -4,7 +4,10 @@ import org.jbox2d.collision.shapes.PolygonShape;
 import org.jbox2d.dynamics.BodyDef;
 import org.jbox2d.dynamics.BodyType;
 import org.jbox2d.dynamics.FixtureDef;
+import org.sangraama.common.CollisionMatrix;
+import org.sangraama.common.Constants;
 import org.sangraama.controller.WebSocketConnection;
+import org.sangraama.gameLogic.GameInstance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,9 +15,9 @@ public class Ship extends Player {
 
     public static final Logger log = LoggerFactory.getLogger(Ship.class);
 
-    public Ship(long userID, float x, float y, float w, float h, float health, float score,
-            WebSocketConnection con, int type, int bulletType) {
-        super(userID, x, y, w, h, health, score, con, type, bulletType);
+    public Ship(GameInstance instance, long userID, float x, float y, float w, float h,
+            float health, float score, WebSocketConnection con, int type, int bulletType) {
+        super(instance, userID, x, y, w, h, health, score, con, type, bulletType);
     }
 
     public BodyDef getBodyDef() {
@@ -38,7 +41,7 @@ public class Ship extends Player {
         fd.shape = ps;
         fd.friction = 0.2f;
         fd.restitution = 0.5f;
-        fd.filter.groupIndex = 2;
+        CollisionMatrix.apply(fd, Constants.CATEGORY_SHIP);
         fd.userData = this;
         return fd;
     }
@@ -4,6 +4,8 @@ import org.jbox2d.collision.shapes.PolygonShape;
 import org.jbox2d.dynamics.BodyDef;
 import org.jbox2d.dynamics.BodyType;
 import org.jbox2d.dynamics.FixtureDef;
+import org.sangraama.common.CollisionMatrix;
+import org.sangraama.common.Constants;
 
 public class Wall {
 
@@ -34,6 +36,7 @@ public class Wall {
         wallFixture = new FixtureDef();
         wallFixture.shape = wallShape;
         wallFixture.userData = "wall";
+        CollisionMatrix.apply(wallFixture, Constants.CATEGORY_WALL);
         return wallFixture;
     }
 }
@@ -0,0 +1,63 @@
+package org.sangraama.common;
+
+import org.jbox2d.dynamics.FixtureDef;
+
+/**
+ * Which fixture categories (Constants.CATEGORY_*) collide with each other. JBox2D creates a contact
+ * only for pairs whose categories are in each other's masks, so pairs which have no effect in the
+ * game (Ex: bullet and bullet, sensor and island) never reach the narrow phase or the contact
+ * listener. Fixtures don't use group index, since a positive group overrides the masks.
+ */
+public final class CollisionMatrix {
+
+    /* Masks are symmetric: A collides with B if and only if B collides with A */
+    public static final int MASK_SHIP = Constants.CATEGORY_SHIP | Constants.CATEGORY_BULLET
+            | Constants.CATEGORY_ISLAND | Constants.CATEGORY_WALL | Constants.CATEGORY_DEFAULT
+            | Constants.CATEGORY_SENSOR;
+    public static final int MASK_BULLET = Constants.CATEGORY_SHIP | Constants.CATEGORY_ISLAND
+            | Constants.CATEGORY_WALL | Constants.CATEGORY_DEFAULT | Constants.CATEGORY_SENSOR;
+    /* Static map objects and AOI sensors only meet moving entities */
+    public static final int MASK_STATIC = Constants.CATEGORY_SHIP | Constants.CATEGORY_BULLET;
+    public static final int MASK_SENSOR = Constants.CATEGORY_SHIP | Constants.CATEGORY_BULLET;
+
+    private CollisionMatrix() {
+    }
+
+    /**
+     * Get the categories which a category collides with
+     *
+     * @param category
+     *            one of Constants.CATEGORY_*
+     * @return mask bits of the category
+     */
+    public static int getMask(int category) {
+        switch (category) {
+            case Constants.CATEGORY_SHIP:
+                return MASK_SHIP;
+            case Constants.CATEGORY_BULLET:
+                return MASK_BULLET;
+            case Constants.CATEGORY_ISLAND:
+            case Constants.CATEGORY_WALL:
+            case Constants.CATEGORY_DEFAULT:
+                return MASK_STATIC;
+            case Constants.CATEGORY_SENSOR:
+                return MASK_SENSOR;
+            default:
+                throw new IllegalArgumentException("Unknown fixture category " + category);
+        }
+    }
+
+    /**
+     * Set the collision filter of a fixture definition
+     *
+     * @param fd
+     *            fixture definition
+     * @param category
+     *            one of Constants.CATEGORY_*
+     */
+    public static void apply(FixtureDef fd, int category) {
+        fd.filter.categoryBits = category;
+        fd.filter.maskBits = getMask(category);
+        fd.filter.groupIndex = 0;
+    }
+}
@@ -24,10 +24,116 @@ public final class Constants {
     public static final Vec2 gravity = new Vec2(gravityHorizontal, gavityVertical);
     public static final float timeStep = 1.0f / fps;
     public static final int simulatingDelay = 1000 / fps; // delay of simulating
+    /* Maximum ticks executed back to back when a tick scheduler falls behind */
+    public static final int maxCatchUpSteps = 5;
 
     public static final float TO_RADIANS = (float) (Math.PI / 180);
     public static final float FROM_RADIANS = (float) (180 / Math.PI);
 
+    /*
+     * Collision filter category bits of fixtures. Contacts are classified by these bits instead of
+     * the user data. CATEGORY_DEFAULT is the JBox2D default, used by map objects other than
+     * islands
+     */
+    public static final int CATEGORY_DEFAULT = 0x0001;
+    public static final int CATEGORY_SHIP = 0x0002;
+    public static final int CATEGORY_BULLET = 0x0004;
+    public static final int CATEGORY_ISLAND = 0x0008;
+    public static final int CATEGORY_WALL = 0x0010;
+    public static final int CATEGORY_SENSOR = 0x0020;
+    /* Contacts which can be recorded in a tick. Further contacts of the tick are dropped */
+    public static final int contactRingSize = 4096;
+    /*
+     * Physics regions: the tile is split into physicsRegionsX x physicsRegionsY regions of whole
+     * sub-tiles, each with its own JBox2D world and step thread. Bodies within regionMargin units
+     * of a neighbour region have a ghost there, so contacts across the border are found. The
+     * margin should be larger than the biggest ship. Sensor AOI needs a single region
+     */
+    public static final int physicsRegionsX = 1;
+    public static final int physicsRegionsY = 1;
+    public static final float regionMargin = 4.0f;
+
+    /**
+     * Area of Interest (AOI) configurations
+     */
+    /* Use uniform grid spatial index for AOI queries instead of checking every entity */
+    public static final boolean useSpatialGrid = true;
+    /*
+     * Maintain AOI incrementally using Box2D sensors attached to the game world, and send AOI
+     * enter/leave events to clients. Overrides useSpatialGrid
+     */
+    public static final boolean useSensorAOI = false;
+    /* Number of worker threads which compute AOI and encode updates of subscribers */
+    public static final int aoiParallelism = Runtime.getRuntime().availableProcessors();
+    /* Subscribers of a sub-tile are split into tasks of at most this size */
+    public static final int aoiSplitThreshold = 32;
+    /*
+     * Clients who acknowledge frames get delta compressed updates. A full keyframe is sent every
+     * keyframeInterval ticks (staggered by user ID), and whenever the acknowledged tick is too old
+     */
+    public static final int keyframeInterval = fps * 2;
+    /*
+     * Write positions and angles of deltas in binary frames in fixed point (see Quantizer):
+     * coordinates as sub-tile index + 16 bit offset, angles in angleBits bits (8 to 12)
+     */
+    public static final boolean quantizeBinary = true;
+    public static final int angleBits = 10;
+    /*
+     * Dead reckoning: ships are sent with their velocity and clients extrapolate positions. A
+     * correction is sent only when the extrapolated position is off by more than
+     * deadReckoningError units, or velocity wasn't sent for deadReckoningMaxSilence ticks
+     */
+    public static final boolean deadReckoning = false;
+    public static final float deadReckoningError = 0.05f;
+    public static final int deadReckoningMaxSilence = fps;
+    /*
+     * Send bullets to clients who use delta compression as a spawn message (position, velocity,
+     * tick) when they come into the AOI and a despawn message when they are gone, instead of a
+     * delta every tick. Clients simulate the path in between
+     */
+    public static final boolean spawnOnceBullets = false;
+    /*
+     * Bullet types which are moved by ray casts (ProjectileEngine) instead of JBox2D bullet bodies.
+     * Ignored when useSensorAOI is set
+     */
+    public static final int[] raycastBulletTypes = {};
+    /*
+     * Maximum number of removed bullets kept for reuse. A removed bullet is reused after
+     * bulletReuseDelay ticks, so collisions which are still being processed don't refer to a new
+     * bullet
+     */
+    public static final int bulletPoolSize = 4096;
+    public static final int bulletReuseDelay = fps;
+    /* Distance from the shooter which a bullet travels before it's removed */
+    public static final float bulletRange = 15.0f;
+    /*
+     * Ticks between checks of whether a player is still connected. Players who didn't send any
+     * event for playerIdleTimeout ticks are disconnected (0 disables)
+     */
+    public static final int playerCheckInterval = fps * 5;
+    public static final int playerIdleTimeout = fps * 60 * 5;
+    /* Input commands of a player which can wait for the next tick. Further commands are dropped */
+    public static final int inputRingSize = 64;
+    /*
+     * Admission control of the game world. Capacity is the number of entities which can wait to be
+     * added (further players and dummy players are refused and disconnected, further bullets are
+     * dropped) or removed. Budget is the number of them processed per tick; the rest wait for
+     * later ticks. Creating a ship body and sending its tile info are the expensive part of a join
+     */
+    public static final int playerQueueSize = 1024;
+    public static final int playerAddBudget = 16;
+    public static final int playerRemoveBudget = 64;
+    public static final int dummyQueueSize = 1024;
+    public static final int dummyAddBudget = 32;
+    public static final int dummyRemoveBudget = 64;
+    public static final int bulletQueueSize = 8192;
+    public static final int bulletAddBudget = 512;
+    public static final int bulletRemoveBudget = 1024;
+    /* Number of sender threads. Connections are sharded over them by user ID */
+    public static final int senderThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    /* Typical width/height of a client's AOI in JBox2D units. Used to size the grid cells */
+    public static final float typicalAOISize = 30.0f;
+
     // Scaling JBox2D units and client side pixels
     public static final float scale = 32.0f;
     /* Ex: 32 means 1 unit in JBox2D is showing as 32 pixels in client side */
@@ -4,19 +4,27 @@ import org.sangraama.assets.Bullet;
 import org.sangraama.assets.Player;
 import org.sangraama.coordination.staticPartition.TileCoordinator;
 import org.sangraama.gameLogic.GameEngine;
+import org.sangraama.gameLogic.GameInstance;
 import org.sangraama.gameLogic.queue.BulletQueue;
 import org.sangraama.jsonprotocols.transfer.BulletTransferReq;
 
-public enum BulletPassHandler {
+/**
+ * Pass bullets of a game instance which left the tile to the servers of their new sub-tiles
+ */
+public class BulletPassHandler {
 
-    INSTANCE;
-
-    private GameEngine gameEngine;
+    private GameInstance instance;
     private BulletQueue bulletQueue;
+    private TileCoordinator tileCoordinator;
 
-    private BulletPassHandler() {
-        this.gameEngine = GameEngine.INSTANCE;
-        this.bulletQueue = BulletQueue.INSTANCE;
+    /**
+     * @param instance
+     *            game instance whose bullets are passed
+     */
+    public BulletPassHandler(GameInstance instance) {
+        this.instance = instance;
+        this.bulletQueue = instance.getBulletQueue();
+        this.tileCoordinator = instance.getTileCoordinator();
     }
 
     /**
@@ -27,7 +35,7 @@ public enum BulletPassHandler {
      *            bullet which going to transferred to another server
      */
     public void passBullets(Bullet bullet) {
-        String newHost = (String) TileCoordinator.INSTANCE.getSubTileHost(bullet.getX(),
+        String newHost = (String) this.tileCoordinator.getSubTileHost(bullet.getX(),
                 bullet.getY());
         BulletTransferReq bulletTransReq = new BulletTransferReq(20, bullet.getPlayerId(),
                 bullet.getId(), bullet.getX(), bullet.getY(), bullet.getVelocity(),
@@ -38,10 +46,11 @@ public enum BulletPassHandler {
     }
 
     private void passBulletInfoToClient(Bullet bullet, BulletTransferReq bulletTransReq) {
-        for (Player player : gameEngine.getPlayerList()) {
-            if (player.getUserID() == bullet.getPlayerId()) {
-                player.sendTransferringGameObjectInfo(bulletTransReq);
-            }
+        // Game engine is created after the pass handlers of the instance
+        GameEngine gameEngine = this.instance.getGameEngine();
+        Player player = gameEngine.getPlayer(bullet.getPlayerId());
+        if (player != null) {
+            player.sendTransferringGameObjectInfo(bulletTransReq);
         }
     }
 }
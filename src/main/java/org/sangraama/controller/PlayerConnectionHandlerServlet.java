@@ -1,10 +1,17 @@
 package org.sangraama.controller;
 
+import java.io.IOException;
+import java.util.List;
+
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.catalina.websocket.StreamInbound;
 import org.apache.catalina.websocket.WebSocketServlet;
+import org.sangraama.gameLogic.GameInstance;
+import org.sangraama.gameLogic.GameInstanceRegistry;
+import org.sangraama.jsonprotocols.BinaryProtocol;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.File;
@@ -15,19 +22,68 @@ import javax.servlet.ServletException;
 import org.apache.log4j.BasicConfigurator;
 import org.apache.log4j.PropertyConfigurator;
 
-@WebServlet("/sangraama/player")
+/**
+ * Accept web socket connections of clients. The path after /sangraama/player names the game
+ * instance which the client connects to (Ex: /sangraama/player/arena2); the default instance is
+ * served without a name.
+ */
+@WebServlet({ "/sangraama/player", "/sangraama/player/*" })
 public class PlayerConnectionHandlerServlet extends WebSocketServlet {
     public static final Logger log = LoggerFactory.getLogger(PlayerConnectionHandlerServlet.class);
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Select binary protocol if client supports it. Otherwise connection uses JSON.
+     */
     @Override
-    protected StreamInbound createWebSocketInbound(String str, HttpServletRequest req) {
+    protected String selectSubProtocol(List<String> subProtocols) {
+        if (subProtocols != null && subProtocols.contains(BinaryProtocol.SUB_PROTOCOL)) {
+            return BinaryProtocol.SUB_PROTOCOL;
+        }
+        return null;
+    }
+
+    /**
+     * Refuse the connection before the handshake if the requested game instance doesn't run on
+     * this server
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+        if (getGameInstance(req) == null) {
+            log.warn("No game instance for path " + req.getPathInfo());
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        super.doGet(req, resp);
+    }
+
+    @Override
+    protected StreamInbound createWebSocketInbound(String subProtocol, HttpServletRequest req) {
 
         // log.info("Get new request to " + req.getServerName() + ":" + req.getServerPort());
         // System.out.println("Get new request to " + req.getServerName() + ":" + req.getServerPort());
 
-        return new WebSocketConnection();
+        return new WebSocketConnection(getGameInstance(req),
+                BinaryProtocol.SUB_PROTOCOL.equals(subProtocol));
+    }
+
+    /**
+     * Find the game instance named by the path of the request
+     * 
+     * @return game instance, or null if there isn't an instance with the name
+     */
+    private GameInstance getGameInstance(HttpServletRequest req) {
+        String path = req.getPathInfo();
+        if (path == null || path.equals("/")) {
+            return GameInstanceRegistry.INSTANCE.getDefault();
+        }
+        String name = path.substring(1);
+        if (name.endsWith("/")) {
+            name = name.substring(0, name.length() - 1);
+        }
+        return GameInstanceRegistry.INSTANCE.get(name);
     }
 
     public void init(ServletConfig config) throws ServletException {
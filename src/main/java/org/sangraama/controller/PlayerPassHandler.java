@@ -2,9 +2,8 @@ package org.sangraama.controller;
 
 import org.sangraama.assets.AbsPlayer;
 import org.sangraama.assets.Player;
-import org.sangraama.assets.SangraamaMap;
 import org.sangraama.assets.Ship;
-import org.sangraama.coordination.staticPartition.TileCoordinator;
+import org.sangraama.gameLogic.GameInstance;
 import org.sangraama.jsonprotocols.SendProtocol;
 import org.sangraama.jsonprotocols.transfer.ClientTransferReq;
 import org.sangraama.thrift.assets.TPlayer;
@@ -14,15 +13,23 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 
-public enum PlayerPassHandler {
-    INSTANCE;
+/**
+ * Send players of a game instance the servers which they move to, or get updates from
+ */
+public class PlayerPassHandler {
     public static final Logger log = LoggerFactory.getLogger(PlayerPassHandler.class);
+    private final GameInstance instance;
     private List<AbsPlayer> passPlayerList;
     private Map<Long, Player> passPlayerHash;
     private Map<String, Player> connectionHash;
     private volatile boolean isPass;
 
-    private PlayerPassHandler() {
+    /**
+     * @param instance
+     *            game instance whose players are passed
+     */
+    public PlayerPassHandler(GameInstance instance) {
+        this.instance = instance;
         this.passPlayerList = new ArrayList<>();
         this.passPlayerHash = new Hashtable<>();
         this.connectionHash = new Hashtable<>();
@@ -68,11 +75,12 @@ public enum PlayerPassHandler {
 
     public void callThriftServer(Ship ship) {
         TPlayer tPlayer = new TPlayer();
-        String serverLoc = TileCoordinator.INSTANCE.getSubTileHost(ship.getX(), ship.getY());
+        String serverLoc = this.instance.getTileCoordinator().getSubTileHost(ship.getX(),
+                ship.getY());
 
         tPlayer.id = ship.getUserID();
-        tPlayer.x = (int) (ship.getX() + SangraamaMap.INSTANCE.getOriginX());
-        tPlayer.y = (int) (ship.getY() + SangraamaMap.INSTANCE.getOriginY());
+        tPlayer.x = (int) (ship.getX() + this.instance.getMap().getOriginX());
+        tPlayer.y = (int) (ship.getY() + this.instance.getMap().getOriginY());
         tPlayer.v_x = ship.getV().x;
         tPlayer.v_y = ship.getV().y;
         if (serverLoc != null) {
@@ -120,7 +128,8 @@ public enum PlayerPassHandler {
          * " serverPort:" + serverLoc.getServerPort()); }
          */
 
-        String newHost = (String) TileCoordinator.INSTANCE.getSubTileHost(ship.getX(), ship.getY());
+        String newHost = (String) this.instance.getTileCoordinator().getSubTileHost(ship.getX(),
+                ship.getY());
         SendProtocol transferReq = new ClientTransferReq(30, ship.getUserID(), ship.getX(),
                 ship.getY(), ship.getHealth(), ship.getScore(), newHost, ship.getType());
         /*log.info("new player pass server url " + newHost + " for x:" + ship.getX() + " y:"
@@ -135,7 +144,7 @@ public enum PlayerPassHandler {
      */
     private void passNewConnectionInfo(String key, Player dummy) {
         String[] s = key.split(":");
-        String updateHost = (String) TileCoordinator.INSTANCE.getSubTileHost(
+        String updateHost = (String) this.instance.getTileCoordinator().getSubTileHost(
                 Float.parseFloat(s[0]), Float.parseFloat(s[1]));
         /*
          * log.info("new update server url " + updateHost + " for x:" + dummy.getX() + " y:" +
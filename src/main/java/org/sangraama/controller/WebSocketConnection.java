@@ -11,11 +11,15 @@ import org.apache.catalina.websocket.WsOutbound;
 import org.sangraama.assets.AbsPlayer;
 import org.sangraama.assets.Bullet;
 import org.sangraama.assets.DummyPlayer;
-import org.sangraama.assets.Player;
 import org.sangraama.assets.Ship;
-import org.sangraama.gameLogic.queue.BulletQueue;
-import org.sangraama.gameLogic.queue.DummyQueue;
+import org.sangraama.gameLogic.GameInstance;
+import org.sangraama.gameLogic.GameInstanceRegistry;
+import org.sangraama.gameLogic.queue.InputRing;
+import org.sangraama.jsonprotocols.BinaryProtocol;
+import org.sangraama.jsonprotocols.JsonEncoder;
+import org.sangraama.jsonprotocols.Quantizer;
 import org.sangraama.jsonprotocols.SendProtocol;
+import org.sangraama.jsonprotocols.UpdateFrame;
 import org.sangraama.jsonprotocols.receive.ClientEvent;
 import org.sangraama.jsonprotocols.transfer.BulletTransferReq;
 import org.sangraama.jsonprotocols.transfer.ScoreChangeTransferReq;
@@ -30,9 +34,46 @@ public class WebSocketConnection extends MessageInbound {
 
     private AbsPlayer player = null;
     private Gson gson;
+    /* Game instance which the client connected to */
+    private final GameInstance instance;
+    /* Whether client negotiated the binary protocol. Otherwise JSON text is used */
+    private final boolean isBinary;
 
     public WebSocketConnection() {
+        this(GameInstanceRegistry.INSTANCE.getDefault(), false);
+    }
+
+    /**
+     * Create a connection
+     * 
+     * @param instance
+     *            game instance which the client connected to
+     * @param isBinary
+     *            true if client negotiated the binary protocol
+     * @see BinaryProtocol
+     */
+    public WebSocketConnection(GameInstance instance, boolean isBinary) {
         this.gson = new Gson();
+        this.instance = instance;
+        this.isBinary = isBinary;
+    }
+
+    /**
+     * Get the game instance which the client connected to
+     * 
+     * @return game instance of the connection
+     */
+    public GameInstance getGameInstance() {
+        return this.instance;
+    }
+
+    /**
+     * Check whether updates should be sent in binary form
+     * 
+     * @return true if client negotiated the binary protocol
+     */
+    public boolean isBinaryProtocol() {
+        return this.isBinary;
     }
 
     /**
@@ -69,9 +110,11 @@ public class WebSocketConnection extends MessageInbound {
 
     @Override
     protected void onBinaryMessage(ByteBuffer byteBuffer) throws IOException {
-        // log.warn("binary messages are not supported");
-        System.out.println("Binary");
-        throw new UnsupportedOperationException("not supported binary messages");
+        try {
+            this.playerEvents(ClientEvent.fromBinary(byteBuffer));
+        } catch (Exception e) {
+            log.error("Error occured while processing binary message {}", e);
+        }
     }
 
     @Override
@@ -89,12 +132,16 @@ public class WebSocketConnection extends MessageInbound {
 
     private void playerEvents(ClientEvent event) {
         String T = " playerevent ";
+        if (this.player != null) {
+            this.player.markActive();
+            if (event.getAck() > 0) {
+                this.player.getBaseline().ack(event.getAck());
+            }
+        }
         switch (event.getType()) {
             case 1: // setting user event request
-                this.player.setV(event.getV_x(), event.getV_y());
-                this.player.setAngle(event.getA());
-                this.player.setAngularVelocity(event.getDa());
-                this.player.shoot(event.getS());
+                this.player.postInput(InputRing.MOVE, event.getV_x(), event.getV_y(),
+                        event.getA(), event.getDa(), event.getS() == 1);
                 // System.out.println(TAG + T + " set user events " + event.getV_x() + " : "
                 // + event.getV_y());
                 break;
@@ -106,22 +153,24 @@ public class WebSocketConnection extends MessageInbound {
                 break;
 
             case 3: // set AOI of the player
-                this.player.setAOI(event.getW(), event.getH());
+                this.player.postInput(InputRing.AOI, event.getW(), event.getH(), 0, 0, false);
                 // System.out.println(TAG + T + " set AOI of player: " + event.getUserID());
                 break;
 
             case 4: // Reset settings and make dummy player
-                this.player.setV(0, 0);
-                this.player.setAngle(0);
-                this.player.shoot(0);
+                this.player.postInput(InputRing.RESET, 0, 0, 0, 0, false);
                 // log.info(T + " RESET user events ");
                 break;
 
             case 5: // Set Virtual point as the center of AOI in order to get updates
-                this.player.setVirtualPoint(event.getX_vp(), event.getY_vp());
+                this.player.postInput(InputRing.VIRTUAL_POINT, event.getX_vp(), event.getY_vp(),
+                        0, 0, false);
                 // log.info(T + " set virtual point x:" + event.getX_vp() + " y:" + event.getY_vp());
                 break;
 
+            case 6: // Acknowledge a frame. Handled above, any event can carry ack
+                break;
+
             case 20: /*
                       * Adding the bullet to the game world of the server. The bullet was passed
                       * from the neighbor server. First the information is verified to check whether
@@ -131,9 +180,9 @@ public class WebSocketConnection extends MessageInbound {
                 if (VerifyMsg.INSTANCE.verifyMessage(event.getInfo(), event.getSignedInfo())) {
                     BulletTransferReq bulletTransReq = gson.fromJson(event.getInfo(),
                             BulletTransferReq.class);
-                    Bullet bullet = bulletTransReq.reCreateBullet(event.getInfo());
+                    Bullet bullet = bulletTransReq.reCreateBullet(this.instance, event.getInfo());
                     // Add the bullet transferred from the neighbor server to the game world
-                    BulletQueue.INSTANCE.addToBulletQueue(bullet);
+                    this.instance.getBulletQueue().addToBulletQueue(bullet);
                 }
 
                 break;
@@ -143,7 +192,8 @@ public class WebSocketConnection extends MessageInbound {
                     ScoreChangeTransferReq scoreChangeReq = gson.fromJson(event.getInfo(),
                             ScoreChangeTransferReq.class);
                     float scoreChange = scoreChangeReq.getScore(event.getInfo());
-                    ((Player) this.player).setScore(scoreChange);
+                    // Applied by the game engine thread, as the score is changed by collisions
+                    this.player.postInput(InputRing.SCORE, scoreChange, 0, 0, 0, false);
                 }
                 break;
 
@@ -160,14 +210,16 @@ public class WebSocketConnection extends MessageInbound {
                      * Remove already existing dummy player (null values aren't allowed by
                      * ConcurrentLinkedQueue)
                      */
-                    DummyQueue.INSTANCE.addToRemoveDummyQueue((DummyPlayer) this.player);
+                    this.instance.getDummyQueue().addToRemoveDummyQueue((DummyPlayer) this.player);
                 }
 
-                this.setPlayer(new Ship(event.getUserID(), event.getX(), event.getY(),
-                        event.getW(), event.getH(), 100, 0, this, event.getSt(), event.getBt()));
-                this.player.setV(event.getV_x(), event.getV_y());
-                this.player.setAngle(event.getA());
-                this.player.setVirtualPoint(event.getX_vp(), event.getY_vp());
+                this.setPlayer(new Ship(this.instance, event.getUserID(), event.getX(),
+                        event.getY(), event.getW(), event.getH(), 100, 0, this, event.getSt(),
+                        event.getBt()));
+                this.player.postInput(InputRing.MOVE, event.getV_x(), event.getV_y(),
+                        event.getA(), 0, false);
+                this.player.postInput(InputRing.VIRTUAL_POINT, event.getX_vp(), event.getY_vp(),
+                        0, 0, false);
 
                 // log.info(T + " add new Player " + event.toString());
                 /*
@@ -188,9 +240,10 @@ public class WebSocketConnection extends MessageInbound {
                       * @case 2: if it's a player => change it to dummy player <include
                       * authentication>
                       */
-                this.setDummyPlayer(new DummyPlayer(event.getUserID(), event.getW(), event.getH(),
-                        this));
-                this.player.setVirtualPoint(event.getX_vp(), event.getY_vp());
+                this.setDummyPlayer(new DummyPlayer(this.instance, event.getUserID(),
+                        event.getW(), event.getH(), this));
+                this.player.postInput(InputRing.VIRTUAL_POINT, event.getX_vp(), event.getY_vp(),
+                        0, 0, false);
 //                log.info(T + " add new dummy player: " + event.toString());
                 break;
 
@@ -210,8 +263,40 @@ public class WebSocketConnection extends MessageInbound {
      *            delta updates of players who are located inside AOI
      */
     public void sendUpdate(List<SendProtocol> playerDeltaList) throws IOException {
-        String convertedString = gson.toJson(playerDeltaList);
-        getWsOutbound().writeTextMessage(CharBuffer.wrap(convertedString));
+        this.sendUpdate(this.encode(playerDeltaList));
+    }
+
+    /**
+     * Send updates which are already encoded by the AOI stage
+     * 
+     * @param frame
+     *            delta updates encoded as JSON or binary
+     */
+    public void sendUpdate(UpdateFrame frame) throws IOException {
+        if (frame.isBinary()) {
+            getWsOutbound().writeBinaryMessage(frame.getBinary());
+        } else {
+            getWsOutbound().writeTextMessage(frame.getText());
+        }
+    }
+
+    /**
+     * Encode updates for the protocol of this connection. Falls back to JSON if a message doesn't
+     * have a binary form.
+     * 
+     * @param deltaList
+     *            updates to be sent
+     * @return encoded updates
+     */
+    public UpdateFrame encode(List<SendProtocol> deltaList) {
+        if (this.isBinary) {
+            Quantizer.bindMap(this.instance.getMap());
+            ByteBuffer binary = BinaryProtocol.encode(deltaList);
+            if (binary != null) {
+                return UpdateFrame.binary(binary);
+            }
+        }
+        return UpdateFrame.text(JsonEncoder.forThread().encode(deltaList));
     }
 
     /**
@@ -223,7 +308,7 @@ public class WebSocketConnection extends MessageInbound {
      */
     public void sendNewConnection(ArrayList<SendProtocol> transferReq) {
         try {
-            getWsOutbound().writeTextMessage(CharBuffer.wrap(gson.toJson(transferReq)));
+            getWsOutbound().writeTextMessage(JsonEncoder.forThread().encode(transferReq));
             // System.out.println(TAG + " new con details " + gson.toJson(transferReq));
         } catch (IOException e) {
             log.error("Unable to send new connnection information {}", e);
@@ -238,7 +323,7 @@ public class WebSocketConnection extends MessageInbound {
      */
     public void sendTileSizeInfo(List<SendProtocol> tilesInfo) {
         try {
-            getWsOutbound().writeTextMessage(CharBuffer.wrap(gson.toJson(tilesInfo)));
+            getWsOutbound().writeTextMessage(JsonEncoder.forThread().encode(tilesInfo));
             // System.out.println(TAG + " send size of tile " + gson.toJson(tilesInfo));
         } catch (IOException e) {
             log.error("Unable to send tile size information {}", e);
@@ -264,27 +349,13 @@ public class WebSocketConnection extends MessageInbound {
      */
     public void sendPassGameObjInfo(List<SendProtocol> tranferReqList) {
         try {
-            getWsOutbound().writeTextMessage(CharBuffer.wrap(gson.toJson(tranferReqList)));
-            log.info("send bullet transfer message : " + gson.toJson(tranferReqList));
+            getWsOutbound().writeTextMessage(JsonEncoder.forThread().encode(tranferReqList));
+            log.debug("send bullet transfer message of {} objects", tranferReqList.size());
         } catch (IOException e) {
             log.error("Unable to send passing game objects information {}", e);
         }
     }
 
-    /**
-     * Send the score change when a player in another server shoots a player in another server
-     * 
-     * @param scoreChangeReq
-     */
-    public void sendScoreChangeReq(List<SendProtocol> scoreChangeReq) {
-        try {
-            getWsOutbound().writeTextMessage(CharBuffer.wrap(gson.toJson(scoreChangeReq)));
-            log.info("send score change to player : " + gson.toJson(scoreChangeReq));
-        } catch (IOException e) {
-            log.error("Unable to send score change information {}", e);
-        }
-    }
-
     /**
      * Send coordination detail abo }
      * 
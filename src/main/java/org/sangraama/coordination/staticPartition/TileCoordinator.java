@@ -1,9 +1,8 @@
 package org.sangraama.coordination.staticPartition;
 
-import com.hazelcast.config.Config;
-import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
 import org.sangraama.assets.SangraamaMap;
+import org.sangraama.gameLogic.GameInstanceRegistry;
 import org.sangraama.jsonprotocols.send.SangraamaTile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,8 +12,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-public enum TileCoordinator {
-    INSTANCE;
+/**
+ * Sub-tiles of the map of a game instance, and the servers which own the sub-tiles of the game
+ * world. Kept in a Hazelcast map of the instance.
+ */
+public class TileCoordinator {
     private String TAG = "TileCoordinator: ";
     private Logger log = LoggerFactory.getLogger(TileCoordinator.class);
 
@@ -24,16 +26,24 @@ public enum TileCoordinator {
     private float subTileHeight;
     private float subTileWidth;
     private SangraamaMap sangraamaMap;
+    private String mapName;
     private String serverURL;
     private List<SangraamaTile> tileInfo;
 
-    TileCoordinator() {
+    /**
+     * @param sangraamaMap
+     *            map of the game instance
+     * @param mapName
+     *            name of the Hazelcast map which keeps the sub-tiles of the game world
+     */
+    public TileCoordinator(SangraamaMap sangraamaMap, String mapName) {
+        this.sangraamaMap = sangraamaMap;
+        this.mapName = mapName;
     }
 
     public void init() {
-        hazelcastInstance = Hazelcast.newHazelcastInstance(new Config());
-        this.subtileMap = hazelcastInstance.getMap("subtile");
-        this.sangraamaMap = SangraamaMap.INSTANCE;
+        hazelcastInstance = GameInstanceRegistry.INSTANCE.getHazelcastInstance();
+        this.subtileMap = hazelcastInstance.getMap(this.mapName);
         this.subTileHeight = sangraamaMap.getSubTileWidth();
         this.subTileWidth = sangraamaMap.getSubTileHeight();
         this.serverURL = sangraamaMap.getHost();
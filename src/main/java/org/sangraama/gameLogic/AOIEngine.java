@@ -1,178 +1,516 @@
 package org.sangraama.gameLogic;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Vector;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
-
-import javax.swing.Timer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 
 import org.sangraama.assets.AbsPlayer;
-import org.sangraama.assets.Bullet;
 import org.sangraama.assets.DummyPlayer;
 import org.sangraama.assets.Player;
+import org.sangraama.assets.SangraamaMap;
 import org.sangraama.common.Constants;
-import org.sangraama.gameLogic.queue.PlayerQueue;
+import org.sangraama.gameLogic.aoi.AOIPartition;
+import org.sangraama.gameLogic.aoi.UniformGrid;
+import org.sangraama.gameLogic.delta.DeltaCompressor;
+import org.sangraama.gameLogic.snapshot.InterestLists;
+import org.sangraama.gameLogic.snapshot.SnapshotBuffer;
+import org.sangraama.gameLogic.snapshot.WorldSnapshot;
+import org.sangraama.jsonprotocols.FragmentArena;
+import org.sangraama.jsonprotocols.Quantizer;
 import org.sangraama.jsonprotocols.SendProtocol;
+import org.sangraama.jsonprotocols.UpdateFrame;
+import org.sangraama.jsonprotocols.send.AOIEvent;
 import org.sangraama.jsonprotocols.send.BulletDelta;
+import org.sangraama.jsonprotocols.send.BulletSpawn;
+import org.sangraama.jsonprotocols.send.DefeatMsg;
 import org.sangraama.jsonprotocols.send.PlayerDelta;
+import org.sangraama.jsonprotocols.send.PlayerUpdate;
 import org.sangraama.jsonprotocols.send.SangraamaTile;
 import org.slf4j.*;
 
-public enum AOIEngine implements Runnable {
-    INSTANCE;
+/**
+ * Second stage of the tick pipeline. GameEngine publishes a WorldSnapshot after each world step;
+ * AOI filtering of tick N is done here while the game engine is already simulating tick N+1.
+ * 
+ * Subscribers are partitioned by the sub-tile of their AOI center, and AOI filtering and encoding
+ * of the partitions run on a work-stealing pool. Crowded partitions are split further, so the
+ * stage scales with the number of cores even if players gather on one sub-tile.
+ * 
+ * Each game instance has its own AOI stage, with its own workers and sender threads.
+ */
+public class AOIEngine implements Runnable {
     private static final Logger log = LoggerFactory.getLogger(GameEngine.class);
 
     private volatile boolean isRun = true;
-    private AtomicBoolean isUpdate;
-
-    private List<Player> playerList; // don't modify;read only
-    private List<Bullet> bulletList;
-    private List<DummyPlayer> dummyList;
-    /* Should be atomic operation. */
-    private List<Player> updatedPlayerList;
-    private Map<Long, PlayerDelta> playerDelta;
-    private Map<Long, BulletDelta> bulletDelta;
-    private List<Player> defeatedPlayerList;
-
-    private BlockingQueue<AbsPlayer> sendPlayerQueue;
+
+    private final GameInstance instance;
+    private SnapshotBuffer snapshotBuffer;
+    /* Fields of ships which are dirty on the current tick, for frames based on previous tick */
+    private SendProtocol[] partials;
+    /* Deltas of entities in the current snapshot, shared by every subscriber who sees the entity */
+    private SendProtocol[] deltas;
+    /* Deltas encoded once per tick. Frames of subscribers are assembled from these */
+    private FragmentArena fragments;
+    /* Delta compression of frames against what each client has, using the fragments */
+    private DeltaCompressor compressor;
+    /* Spatial index of the current snapshot. null if spatial index is disabled */
+    private UniformGrid grid;
+    private volatile long lastStageDuration = 0;
+
+    private ForkJoinPool pool;
+    /* Query results of a worker thread */
+    private ThreadLocal<int[]> queryResult;
+    private Map<Long, AOIPartition> partitions;
+    private List<AOITask> tasks;
+    private volatile List<AOIPartition> activePartitions;
+
+    /* Sender workers. Each connection is always sent by the same worker */
     private ArrayList<UpdateEngine> updateSend;
 
-    AOIEngine() {
-        this.isUpdate = new AtomicBoolean(false);
-        this.playerList = new ArrayList<>();
-        this.bulletList = new ArrayList<>();
-        this.dummyList = new Vector<>();
-        this.updatedPlayerList = new ArrayList<>();
-        this.defeatedPlayerList = new ArrayList<>();
-        this.sendPlayerQueue = new LinkedBlockingQueue<>(1000);// max allowed queue size
+    /**
+     * Create the AOI stage of a game instance and start its sender threads
+     * 
+     * @param instance
+     *            game instance whose snapshots are processed by the stage
+     */
+    AOIEngine(final GameInstance instance) {
+        this.instance = instance;
+        this.snapshotBuffer = new SnapshotBuffer();
+        this.deltas = new SendProtocol[64];
+        this.partials = new SendProtocol[64];
+        this.fragments = new FragmentArena();
+        this.compressor = new DeltaCompressor(this.fragments, Constants.keyframeInterval,
+                Constants.spawnOnceBullets, Constants.deadReckoning);
+        // Workers encode positions using the sub-tile size of the map of the instance
+        this.pool = new ForkJoinPool(Constants.aoiParallelism,
+                new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                    @Override
+                    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                        return new ForkJoinWorkerThread(pool) {
+                            @Override
+                            protected void onStart() {
+                                super.onStart();
+                                Quantizer.bindMap(instance.getMap());
+                            }
+                        };
+                    }
+                }, null, false);
+        this.queryResult = new ThreadLocal<int[]>() {
+            @Override
+            protected int[] initialValue() {
+                return new int[64];
+            }
+        };
+        this.partitions = new HashMap<>();
+        this.tasks = new ArrayList<>();
+        this.activePartitions = Collections.emptyList();
         this.updateSend = new ArrayList<>();
-        for (int i = 0; i < 1; i++) {
-            this.updateSend.add(new UpdateEngine(this.sendPlayerQueue));
+        for (int i = 0; i < Constants.senderThreads; i++) {
+            this.updateSend.add(new UpdateEngine(instance.getThreadName("UpdateEngine") + "-"
+                    + i));
             this.updateSend.get(i).start();
         }
     }
 
     @Override
     public void run() {
-        Timer timer = new Timer(Constants.simulatingDelay, new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent arg0) {
-                if (isUpdate.compareAndSet(true, true)) {
-                    pushUpdate();
+        Quantizer.bindMap(this.instance.getMap());
+        while (this.isRun) {
+            try {
+                WorldSnapshot snapshot = this.snapshotBuffer.take(Constants.simulatingDelay);
+                if (snapshot != null) {
+                    long start = System.nanoTime();
+                    pushUpdate(snapshot);
+                    this.lastStageDuration = System.nanoTime() - start;
+                    if (log.isDebugEnabled()) {
+                        for (AOIPartition partition : this.activePartitions) {
+                            log.debug("AOI partition (" + partition.getCol() + ","
+                                    + partition.getRow() + ") subscribers:"
+                                    + partition.getLastCount() + " time(ns):"
+                                    + partition.getLastDuration());
+                        }
+                    }
                 }
+            } catch (InterruptedException e) {
+                log.warn("AOI stage interrupted", e);
             }
-        });
-        timer.start();
+        }
+    }
+
+    /**
+     * Get the buffer which game engine publishes the state of each tick into
+     * 
+     * @return snapshot buffer
+     */
+    public SnapshotBuffer getSnapshotBuffer() {
+        return this.snapshotBuffer;
     }
 
-    public void pushUpdate() {
-        this.playerDelta = new HashMap<Long, PlayerDelta>();
-        this.bulletDelta = new HashMap<Long, BulletDelta>();
+    private void pushUpdate(WorldSnapshot snapshot) {
+        if (this.deltas.length < snapshot.size()) {
+            this.deltas = new SendProtocol[Math.max(snapshot.size(), this.deltas.length * 2)];
+            this.partials = new SendProtocol[this.deltas.length];
+        }
+        boolean withPartials = hasDeltaSubscriber(snapshot);
+        for (int i = 0; i < snapshot.size(); i++) {
+            this.deltas[i] = this.createDelta(snapshot, i);
+            this.partials[i] = withPartials ? this.createPartial(snapshot, i) : null;
+        }
+        this.fragments.encode(this.deltas, withPartials ? this.partials : null, snapshot.size(),
+                hasBinarySubscriber(snapshot));
+        if (Constants.useSpatialGrid && !snapshot.getInterest().isAvailable()) {
+            if (this.grid == null) {
+                this.grid = createGrid();
+            }
+            this.grid.build(snapshot);
+        }
 
-        // Make a clone of Updates which need to send
-        this.playerList = this.updatedPlayerList;
-        for (Player player : playerList) {
-            playerDelta.put(player.getUserID(), player.getPlayerDelta());
+        List<AOIPartition> active = this.partitionSubscribers(snapshot);
+        this.tasks.clear();
+        for (AOIPartition partition : active) {
+            AOITask task = new AOITask(snapshot, partition, 0, partition.size());
+            this.tasks.add(task);
+            this.pool.execute(task);
+        }
+        for (AOITask task : this.tasks) {
+            try {
+                task.join();
+            } catch (Exception e) {
+                log.error("Unable to compute AOI of partition", e);
+            }
         }
-        // Update bullet data
-        for (Bullet bullet : this.bulletList) {
-            this.bulletDelta.put(bullet.getId(), bullet.getBulletDelta());
+        for (AOIPartition partition : active) {
+            partition.complete();
         }
+        this.activePartitions = Collections.unmodifiableList(active);
+    }
 
-        try {
-            // Send updates for player
-            for (Player player : playerList) {
-                player.setDeltaList(this.getAreaOfInterest(player));
-                this.sendPlayerQueue.offer(player, 10000, TimeUnit.MICROSECONDS);
+    private boolean hasDeltaSubscriber(WorldSnapshot snapshot) {
+        for (Player player : snapshot.getPlayers()) {
+            if (player.getBaseline().isEnabled()) {
+                return true;
             }
-            // Send updates for Dummy Player
-            for (DummyPlayer dummy : dummyList) {
-                dummy.setDeltaList(this.getAreaOfInterest(dummy));
-                this.sendPlayerQueue.offer(dummy, 10000, TimeUnit.MICROSECONDS);
+        }
+        for (DummyPlayer dummy : snapshot.getDummies()) {
+            if (dummy.getBaseline().isEnabled()) {
+                return true;
             }
+        }
+        return false;
+    }
 
-            for (Player defeatedPlayer : this.defeatedPlayerList) {
-                PlayerQueue.INSTANCE.addToRemovePlayerQueue(defeatedPlayer);
+    private boolean hasBinarySubscriber(WorldSnapshot snapshot) {
+        for (Player player : snapshot.getPlayers()) {
+            if (player.isBinaryProtocol()) {
+                return true;
+            }
+        }
+        for (DummyPlayer dummy : snapshot.getDummies()) {
+            if (dummy.isBinaryProtocol()) {
+                return true;
             }
-            this.defeatedPlayerList.clear(); // Remove defeated Players
-            this.isUpdate.set(false);
-        } catch (Exception e) {
-            e.printStackTrace();
         }
+        return false;
     }
 
     /**
-     * This method can replace with region query in 4.14 box2D manual
+     * Group the subscribers of the snapshot by the sub-tile which their AOI center lies on.
+     * Partitions which don't have subscribers on this tick are discarded.
      * 
-     * @param p
-     * @return ArrayList<PlayerDelta>
+     * @param snapshot
+     *            state of the game world
+     * @return partitions which have at least one subscriber
      */
-    private List<SendProtocol> getAreaOfInterest(Player p) {
-        List<SendProtocol> delta = new ArrayList<>();
-
-        for (Player player : playerList) {
-            if (p.getXVPLeft() <= player.getX() && player.getX() <= p.getXVPRight()
-                    && p.getYVPUp() <= player.getY() && player.getY() <= p.getYVPDown()) {
-                delta.add(this.playerDelta.get(player.getUserID()));
+    private List<AOIPartition> partitionSubscribers(WorldSnapshot snapshot) {
+        for (AOIPartition partition : this.partitions.values()) {
+            partition.clear();
+        }
+        SangraamaMap map = this.instance.getMap();
+        int subscriber = 0;
+        for (Player player : snapshot.getPlayers()) {
+            this.getPartition(map, player).add(player, subscriber++);
+        }
+        for (DummyPlayer dummy : snapshot.getDummies()) {
+            this.getPartition(map, dummy).add(dummy, subscriber++);
+        }
+        List<AOIPartition> active = new ArrayList<>(this.partitions.size());
+        for (Iterator<AOIPartition> it = this.partitions.values().iterator(); it.hasNext();) {
+            AOIPartition partition = it.next();
+            if (partition.size() > 0) {
+                active.add(partition);
+            } else {
+                it.remove();
             }
         }
+        return active;
+    }
 
-        for (Bullet bullet : bulletList) {
-            if (p.getXVPLeft() <= bullet.getX() && bullet.getX() <= p.getXVPRight()
-                    && p.getYVPUp() <= bullet.getY() && bullet.getY() <= p.getYVPDown()) {
-                delta.add(this.bulletDelta.get(bullet.getId()));
-            }
+    private AOIPartition getPartition(SangraamaMap map, AbsPlayer p) {
+        int col = 0, row = 0;
+        if (map.getSubTileWidth() > 0 && map.getSubTileHeight() > 0) {
+            float x = (p.getXVPLeft() + p.getXVPRight()) / 2;
+            float y = (p.getYVPUp() + p.getYVPDown()) / 2;
+            col = (int) Math.floor((x - map.getOriginX()) / map.getSubTileWidth());
+            row = (int) Math.floor((y - map.getOriginY()) / map.getSubTileHeight());
+        }
+        long key = ((long) row << 32) | (col & 0xffffffffL);
+        AOIPartition partition = this.partitions.get(key);
+        if (partition == null) {
+            partition = new AOIPartition(col, row);
+            this.partitions.put(key, partition);
+        }
+        return partition;
+    }
+
+    /**
+     * Compute AOI of a range of subscribers of a partition, assemble their frames from the encoded
+     * fragments and hand them over to the sender threads. Ranges larger than
+     * Constants.aoiSplitThreshold are split into halves, so idle workers can steal half of a
+     * crowded sub-tile.
+     */
+    private class AOITask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final WorldSnapshot snapshot;
+        private final AOIPartition partition;
+        private final int from, to;
+
+        AOITask(WorldSnapshot snapshot, AOIPartition partition, int from, int to) {
+            this.snapshot = snapshot;
+            this.partition = partition;
+            this.from = from;
+            this.to = to;
         }
-        for (Player player : defeatedPlayerList) {
-            if (p.getXVPLeft() <= player.getX() && player.getX() <= p.getXVPRight()
-                    && p.getYVPUp() <= player.getY() && player.getY() <= p.getYVPDown()) {
-                delta.add(player.getDefeatMsg());
+
+        @Override
+        protected void compute() {
+            if (to - from > Constants.aoiSplitThreshold) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new AOITask(snapshot, partition, from, mid), new AOITask(snapshot,
+                        partition, mid, to));
+                return;
+            }
+            long start = System.nanoTime();
+            int[] result = getQueryResult(snapshot.size());
+            List<SendProtocol> events = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                AbsPlayer p = partition.getSubscriber(i);
+                events.clear();
+                int found = getAreaOfInterest(snapshot, p, partition.getSubscriberIndex(i),
+                        result, events);
+                if (p.getBaseline().isEnabled()) {
+                    found = compressor.compress(snapshot, p.getUserID(), p.getBaseline(),
+                            result, found, events);
+                }
+                UpdateFrame frame = fragments.assemble(p.isBinaryProtocol(), events, result,
+                        found);
+                frame.setTick(snapshot.getTickNumber());
+                getSender(p).post(p, frame);
             }
+            partition.addDuration(System.nanoTime() - start);
         }
-        return delta;
     }
 
     /**
-     * This method can replace with region query in 4.14 box2D manual
+     * Queue a message for a player, which is sent by the sender worker of its shard. Used by the
+     * game engine thread, so a slow connection doesn't stall the tick.
      * 
-     * @param d
-     * @return ArrayList<PlayerDelta>
+     * @param p
+     *            player or dummy player
+     * @param message
+     *            message which isn't an update (Ex: score change for another server)
      */
-    private List<SendProtocol> getAreaOfInterest(DummyPlayer d) {
-        List<SendProtocol> delta = new ArrayList<>();
+    public void postMessage(AbsPlayer p, SendProtocol message) {
+        getSender(p).postMessage(p, message);
+    }
 
-        for (Player player : playerList) {
-            if (d.getXVPLeft() <= player.getX() && player.getX() <= d.getXVPRight()
-                    && d.getYVPUp() <= player.getY() && player.getY() <= d.getYVPDown()) {
-                delta.add(this.playerDelta.get(player.getUserID()));
-            }
+    /**
+     * Queue the last message for a player, and close its connection once the message is sent
+     * 
+     * @param p
+     *            player or dummy player
+     * @param message
+     *            last message of the connection
+     */
+    public void postClose(AbsPlayer p, SendProtocol message) {
+        getSender(p).postClose(p, message);
+    }
+
+    /**
+     * Get the sender worker of the shard which the player belongs to
+     * 
+     * @param p
+     *            player or dummy player
+     * @return sender worker
+     */
+    private UpdateEngine getSender(AbsPlayer p) {
+        long id = p.getUserID();
+        int hash = (int) (id ^ (id >>> 32)) & 0x7fffffff;
+        return this.updateSend.get(hash % this.updateSend.size());
+    }
+
+    /**
+     * Create the spatial index over the tile of this server. Cells are sized using sub-tile size
+     * and typical AOI size.
+     * 
+     * @return uniform grid
+     */
+    private UniformGrid createGrid() {
+        SangraamaMap map = this.instance.getMap();
+        float cellSize = UniformGrid.calCellSize(map.getSubTileWidth(), Constants.typicalAOISize);
+        log.info("AOI grid cell size:" + cellSize);
+        return new UniformGrid(map.getOriginX(), map.getOriginY(), map.getMapWidth(),
+                map.getMapHeight(), cellSize);
+    }
+
+    /**
+     * Find the entities which are inside the AOI of the subscriber. Uses the interest lists if
+     * those are maintained by the game engine (sensor AOI), else the uniform grid if spatial index
+     * is enabled, otherwise checks every entity.
+     * 
+     * @param snapshot
+     *            state of the game world
+     * @param p
+     *            player or dummy player who subscribed for updates
+     * @param subscriber
+     *            index of the subscriber in the snapshot
+     * @param result
+     *            array to write entity indices into. Length should be at least snapshot.size()
+     * @param events
+     *            list to add AOI events of the subscriber into
+     * @return number of entities written into result
+     */
+    private int getAreaOfInterest(WorldSnapshot snapshot, AbsPlayer p, int subscriber,
+            int[] result, List<SendProtocol> events) {
+        InterestLists interest = snapshot.getInterest();
+        if (interest.isAvailable()) {
+            return this.getInterestUpdates(interest, subscriber, result, events);
+        }
+        float xLeft = p.getXVPLeft(), xRight = p.getXVPRight();
+        float yUp = p.getYVPUp(), yDown = p.getYVPDown();
+        if (this.grid != null) {
+            return this.grid.query(snapshot, xLeft, xRight, yUp, yDown, result);
+        } else {
+            return UniformGrid.scan(snapshot, xLeft, xRight, yUp, yDown, result);
         }
+    }
 
-        for (Bullet bullet : bulletList) {
-            if (d.getXVPLeft() <= bullet.getX() && bullet.getX() <= d.getXVPRight()
-                    && d.getYVPUp() <= bullet.getY() && bullet.getY() <= d.getYVPDown()) {
-                delta.add(this.bulletDelta.get(bullet.getId()));
-            }
+    /**
+     * Get AOI events and visible entities which are maintained by sensor AOI
+     * 
+     * @param interest
+     *            interest lists of the snapshot
+     * @param subscriber
+     *            index of the subscriber in the snapshot
+     * @param result
+     *            array to write entity indices into
+     * @param events
+     *            list to add AOI events of the subscriber into
+     * @return number of entities written into result
+     */
+    private int getInterestUpdates(InterestLists interest, int subscriber, int[] result,
+            List<SendProtocol> events) {
+        int eventFrom = interest.getEventFrom(subscriber);
+        int eventTo = interest.getEventTo(subscriber);
+        int entryFrom = interest.getEntryFrom(subscriber);
+        int entryTo = interest.getEntryTo(subscriber);
+        for (int i = eventFrom; i < eventTo; i++) {
+            events.add(new AOIEvent(interest.getEventType(i) == InterestLists.EVENT_ENTER,
+                    interest.getEventOwner(i), interest.getEventId(i), interest.getEventKind(i)));
         }
+        int found = 0;
+        for (int i = entryFrom; i < entryTo; i++) {
+            result[found++] = interest.getEntry(i);
+        }
+        return found;
+    }
 
-        for (Player player : defeatedPlayerList) {
-            if (d.getXVPLeft() <= player.getX() && player.getX() <= d.getXVPRight()
-                    && d.getYVPUp() <= player.getY() && player.getY() <= d.getYVPDown()) {
-                delta.add(player.getDefeatMsg());
-            }
+    /**
+     * Get the query result buffer of the current worker thread
+     * 
+     * @param size
+     *            minimum length of the buffer
+     * @return buffer to write entity indices into
+     */
+    private int[] getQueryResult(int size) {
+        int[] result = this.queryResult.get();
+        if (result.length < size) {
+            result = new int[Math.max(size, result.length * 2)];
+            this.queryResult.set(result);
         }
+        return result;
+    }
 
+    /**
+     * Create the delta message of an entity. Message is created once per tick, before workers
+     * start, and shared by every subscriber who is interested in it.
+     * 
+     * @param snapshot
+     *            state of the game world
+     * @param i
+     *            index of the entity in snapshot
+     * @return delta message of the entity
+     */
+    private SendProtocol createDelta(WorldSnapshot snapshot, int i) {
+        SendProtocol delta;
+        switch (snapshot.getKind(i)) {
+            case WorldSnapshot.KIND_PLAYER:
+                if (Constants.deadReckoning) {
+                    delta = new PlayerDelta(snapshot.getX(i), snapshot.getY(i),
+                            snapshot.getAngle(i), snapshot.getId(i), snapshot.getHealth(i),
+                            snapshot.getScore(i), snapshot.getType(i), snapshot.getVx(i),
+                            snapshot.getVy(i));
+                } else {
+                    delta = new PlayerDelta(snapshot.getX(i), snapshot.getY(i),
+                            snapshot.getAngle(i), snapshot.getId(i), snapshot.getHealth(i),
+                            snapshot.getScore(i), snapshot.getType(i));
+                }
+                break;
+            case WorldSnapshot.KIND_BULLET:
+                delta = new BulletDelta(snapshot.getX(i), snapshot.getY(i),
+                        snapshot.getAngle(i), snapshot.getOwnerId(i), snapshot.getId(i),
+                        snapshot.getType(i));
+                break;
+            default:
+                delta = new DefeatMsg(snapshot.getId(i), snapshot.getX(i), snapshot.getY(i),
+                        snapshot.getAngle(i), snapshot.getScore(i), snapshot.getType(i));
+                break;
+        }
         return delta;
     }
 
+    /**
+     * Create the partial update of a ship with the fields which are dirty on this tick. Shared by
+     * every subscriber whose frame is based on previous tick. For a bullet, the spawn message is
+     * used by every subscriber who doesn't know about the bullet yet.
+     * 
+     * @param snapshot
+     *            state of the game world
+     * @param i
+     *            index of the entity in snapshot
+     * @return partial update, spawn message of a bullet which clients simulate, null if entity is
+     *         a ship which didn't change or a defeated player
+     */
+    private SendProtocol createPartial(WorldSnapshot snapshot, int i) {
+        if (snapshot.getKind(i) == WorldSnapshot.KIND_BULLET && Constants.spawnOnceBullets) {
+            return new BulletSpawn(snapshot.getOwnerId(i), snapshot.getId(i), snapshot.getX(i),
+                    snapshot.getY(i), snapshot.getVx(i), snapshot.getVy(i), snapshot.getType(i),
+                    snapshot.getTickNumber());
+        }
+        int dirty = snapshot.getDirty(i);
+        if (snapshot.getKind(i) != WorldSnapshot.KIND_PLAYER || dirty == 0) {
+            return null;
+        }
+        return new PlayerUpdate(snapshot.getId(i), dirty, snapshot.getX(i), snapshot.getY(i),
+                snapshot.getAngle(i), snapshot.getHealth(i), snapshot.getScore(i),
+                snapshot.getType(i), snapshot.getVx(i), snapshot.getVy(i));
+    }
+
     /**
      * NOTE: For Dynamic load handling :: When sub-tiles moving around the servers, size of map get
      * change. Send notifications to clients
@@ -181,47 +519,57 @@ public enum AOIEngine implements Runnable {
      *            Details of sub-tiles
      */
     public void pushTileSizeInfo(ArrayList<SangraamaTile> tiles) {
-        List<Player> playerLists = this.updatedPlayerList;
+        List<Player> playerLists = this.instance.getGameEngine().getPlayerView();
         for (Player player : playerLists) {
             player.sendTileSizeInfo(tiles);
         }
     }
 
-    public void setUpdatedPlayerList(List<Player> playerList) {
-        /*
-         * if previous updates unable to send to players, ignore current updates until previous
-         * update sent.
-         */
-        this.updatedPlayerList = playerList;
-        this.isUpdate.lazySet(true);
-    }
-
-    public void setUpdatedDummyPlayerList(List<DummyPlayer> dummyList) {
-        this.dummyList = dummyList;
+    /**
+     * Get the time taken by the AOI stage to process the latest frame
+     * 
+     * @return duration in nanoseconds
+     */
+    public long getLastStageDuration() {
+        return lastStageDuration;
     }
 
-    public void setDefeatList(List<Player> playerList) {
-        this.defeatedPlayerList = playerList;
+    /**
+     * Get the number of snapshots which replaced before AOI stage processed them
+     * 
+     * @return number of dropped snapshots
+     */
+    public long getDroppedSnapshots() {
+        return this.snapshotBuffer.getDroppedSnapshots();
     }
 
-    public void setBulletList(List<Bullet> bulletList) {
-        this.bulletList = bulletList;
+    /**
+     * Get the partitions processed on the latest frame, with the time spent on each of them
+     * 
+     * @return partitions of the latest frame
+     */
+    public List<AOIPartition> getPartitions() {
+        return this.activePartitions;
     }
 
-    public List<DummyPlayer> getDummyList() {
-        return this.dummyList;
+    /**
+     * Get the sender workers. Per connection counters are kept by the players
+     * 
+     * @return sender workers
+     * @see AbsPlayer#getCoalescedUpdates()
+     * @see AbsPlayer#getDroppedUpdates()
+     */
+    public List<UpdateEngine> getSenders() {
+        return Collections.unmodifiableList(this.updateSend);
     }
 
     public synchronized boolean setStop() {
-        this.playerList.clear();
-        this.bulletList.clear();
-        this.dummyList.clear();
-        this.updatedPlayerList.clear();
         for (UpdateEngine t : this.updateSend)
             t.setStop();
+        this.pool.shutdown();
 
         this.isRun = false;
         return this.isRun;
     }
 
-}
\ No newline at end of file
+}
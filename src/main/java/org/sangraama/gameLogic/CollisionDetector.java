@@ -3,25 +3,70 @@ package org.sangraama.gameLogic;
 import org.jbox2d.callbacks.ContactImpulse;
 import org.jbox2d.callbacks.ContactListener;
 import org.jbox2d.collision.Manifold;
+import org.jbox2d.dynamics.Fixture;
 import org.jbox2d.dynamics.contacts.Contact;
+import org.sangraama.assets.Bullet;
+import org.sangraama.assets.Player;
+import org.sangraama.common.Constants;
+import org.sangraama.gameLogic.aoi.SensorAOIEngine;
+import org.sangraama.gameLogic.region.PhysicsRegion;
 
 public class CollisionDetector implements ContactListener {
 
-    CollisionManager sanCollisionManager;
+    ContactRing contacts;
+    SensorAOIEngine sensorAOI;
+    long tickNumber;
 
-    public CollisionDetector() {
-        sanCollisionManager = CollisionManager.INSTANCE;
+    /**
+     * Create contact listener of the game world
+     *
+     * @param contacts
+     *            ring which contacts are recorded into during the world step
+     * @param sensorAOI
+     *            AOI engine which owns sensors in the world, or null if sensor AOI is not used
+     */
+    public CollisionDetector(ContactRing contacts, SensorAOIEngine sensorAOI) {
+        this.contacts = contacts;
+        this.sensorAOI = sensorAOI;
+    }
+
+    /**
+     * Set the tick of the next world step, which is written into the records
+     */
+    public void setTickNumber(long tickNumber) {
+        this.tickNumber = tickNumber;
     }
 
     @Override
     public void beginContact(Contact contact) {
-        sanCollisionManager.addToCollisionList(contact);
+        if (sensorAOI != null && sensorAOI.beginContact(contact)) {
+            return;
+        }
+        Fixture a = contact.getFixtureA();
+        Fixture b = contact.getFixtureB();
+        int categoryA = a.getFilterData().categoryBits;
+        int categoryB = b.getFilterData().categoryBits;
+        long idA = getEntityId(a, categoryA);
+        long idB = getEntityId(b, categoryB);
+        if (PhysicsRegion.isGhost(a) || PhysicsRegion.isGhost(b)) {
+            /*
+             * Contact across a region border is found by both regions, each with the real body
+             * of one entity and the ghost of the other. Record it only in the region which owns
+             * the entity that sorts first by category and ID
+             */
+            boolean isAFirst = categoryA < categoryB || (categoryA == categoryB && idA < idB);
+            if (PhysicsRegion.isGhost(isAFirst ? a : b)) {
+                return;
+            }
+        }
+        contacts.add(categoryA, idA, categoryB, idB, tickNumber);
     }
 
     @Override
     public void endContact(Contact contact) {
-        // TODO Auto-generated method stub
-
+        if (sensorAOI != null) {
+            sensorAOI.endContact(contact);
+        }
     }
 
     @Override
@@ -36,4 +81,12 @@ public class CollisionDetector implements ContactListener {
 
     }
 
+    private static long getEntityId(Fixture fixture, int category) {
+        if (category == Constants.CATEGORY_SHIP) {
+            return ((Player) fixture.getUserData()).getUserID();
+        } else if (category == Constants.CATEGORY_BULLET) {
+            return ((Bullet) fixture.getUserData()).getKey();
+        }
+        return 0;
+    }
 }
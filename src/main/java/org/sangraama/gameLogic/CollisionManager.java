@@ -1,163 +1,113 @@
 package org.sangraama.gameLogic;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.util.ArrayList;
-import java.util.List;
-
-import javax.swing.Timer;
-
-import org.jbox2d.dynamics.contacts.Contact;
 import org.sangraama.assets.Bullet;
 import org.sangraama.assets.DummyPlayer;
 import org.sangraama.assets.Player;
-import org.sangraama.assets.Ship;
 import org.sangraama.common.Constants;
 import org.sangraama.gameLogic.queue.BulletQueue;
 import org.sangraama.jsonprotocols.transfer.ScoreChangeTransferReq;
 import org.slf4j.*;
 
-public enum CollisionManager implements Runnable {
-    INSTANCE;
+/**
+ * Apply the effects of collisions: health of ships, score of shooters and removal of bullets.
+ * Contacts are recorded into a ContactRing during the world step and resolved right after it by
+ * the game engine thread, while the entities of the records are still in the game world. Each
+ * game instance has its own collision manager.
+ */
+public class CollisionManager {
     public static final Logger log = LoggerFactory.getLogger(CollisionManager.class);
     private GameEngine gameEngine;
     private BulletQueue bulletQueue;
-    private volatile boolean isRun = true;
-    private volatile boolean isUpdate = false;
-    private List<Contact> collisionList;
-
-    CollisionManager() {
-        this.gameEngine = GameEngine.INSTANCE;
-        this.bulletQueue = BulletQueue.INSTANCE;
-        this.collisionList = new ArrayList<>();
-    }
-
-    public synchronized boolean setStop() {
-        this.isRun = false;
-        return this.isRun;
-    }
 
-    public synchronized void addToCollisionList(Contact col) {
-        this.collisionList.add(col);
-        this.isUpdate = true;
+    /**
+     * @param gameEngine
+     *            game engine of the game instance
+     * @param bulletQueue
+     *            bullet queue of the game instance
+     */
+    CollisionManager(GameEngine gameEngine, BulletQueue bulletQueue) {
+        this.gameEngine = gameEngine;
+        this.bulletQueue = bulletQueue;
     }
 
-    @Override
-    public void run() {
-        Timer timer = new Timer(Constants.simulatingDelay, new ActionListener() {
-
-            @Override
-            public void actionPerformed(ActionEvent arg0) {
-                while (collisionList.size() > 0) {
-                    processCollisions(collisionList.get(0));
-                    collisionList.remove(0);
+    /**
+     * Resolve the contacts recorded in the ring, and consume them. Contacts are classified by the
+     * category bits of the fixtures; fixture A of a record has the lower bit.
+     *
+     * @param contacts
+     *            contacts of the last world step
+     * @param players
+     *            players of the game world
+     * @param bullets
+     *            bullets of the game world
+     */
+    public void resolve(ContactRing contacts, EntityRegistry<Player> players,
+            EntityRegistry<Bullet> bullets) {
+        int count = contacts.size();
+        for (int i = 0; i < count; i++) {
+            int categoryA = contacts.getCategoryA(i);
+            int categoryB = contacts.getCategoryB(i);
+            if (categoryA == Constants.CATEGORY_SHIP && categoryB == Constants.CATEGORY_SHIP) {
+                reduceShipHealth(players.get(contacts.getIdA(i)), -0.2f);
+                reduceShipHealth(players.get(contacts.getIdB(i)), -0.2f);
+            } else if (categoryA == Constants.CATEGORY_SHIP
+                    && categoryB == Constants.CATEGORY_BULLET) {
+                Player ship = players.get(contacts.getIdA(i));
+                Bullet bullet = bullets.get(contacts.getIdB(i));
+                if (ship != null && bullet != null) {
+                    processBulletShipCollition(players, ship, bullet);
+                }
+            } else if (categoryA == Constants.CATEGORY_SHIP
+                    && categoryB == Constants.CATEGORY_ISLAND) {
+                reduceShipHealth(players.get(contacts.getIdA(i)), -0.1f);
+            } else if (categoryA == Constants.CATEGORY_BULLET
+                    && (categoryB == Constants.CATEGORY_ISLAND
+                    || categoryB == Constants.CATEGORY_WALL)) {
+                Bullet bullet = bullets.get(contacts.getIdA(i));
+                if (bullet != null) {
+                    this.bulletQueue.addToRemoveBulletQueue(bullet);
                 }
             }
-        });
-        timer.start();
-
-    }
-
-    private void processCollisions(Contact collision) {
-        // System.out.println(TAG + "Processing collisions ## ## ");
-        if (collision.getFixtureA().getUserData().getClass() == Ship.class
-                && collision.getFixtureB().getUserData().getClass() == Ship.class) {
-            // System.out.println(TAG + "Ships are colliding.. " + i);
-            Ship ship1 = (Ship) collision.getFixtureA().getUserData();
-            Ship ship2 = (Ship) collision.getFixtureB().getUserData();
-            processShipsCollision(ship1, ship2);
-
-        } else if ((collision.getFixtureA().getUserData().getClass() == Ship.class && collision
-                .getFixtureB().getUserData().getClass() == Bullet.class)
-                || (collision.getFixtureA().getUserData().getClass() == Bullet.class && collision
-                        .getFixtureB().getUserData().getClass() == Ship.class)) {
-            // System.out.println(TAG + "Hitting Bullet..");
-            if (collision.getFixtureA().getUserData().getClass() == Ship.class) {
-                Player ship = (Player) collision.getFixtureA().getUserData();
-                Bullet bullet = (Bullet) collision.getFixtureB().getUserData();
-                processBulletShipCollition(ship, bullet);
-            } else {
-                Player ship = (Player) collision.getFixtureB().getUserData();
-                Bullet bullet = (Bullet) collision.getFixtureA().getUserData();
-                processBulletShipCollition(ship, bullet);
-            }
-        } else if (("island".equals(collision.getFixtureA().getUserData()) && collision
-                .getFixtureB().getUserData().getClass() == Ship.class)
-                || ("island".equals(collision.getFixtureB().getUserData()) && collision
-                        .getFixtureA().getUserData().getClass() == Ship.class)) {
-            Player ship;
-            // System.out.println(TAG + "$$Hitting Island..");
-            if (collision.getFixtureA().getUserData().getClass() == Ship.class) {
-                ship = (Player) collision.getFixtureA().getUserData();
-            } else {
-                ship = (Player) collision.getFixtureB().getUserData();
-            }
-            reduceShipHealth(ship.getUserID(), (float) -0.1);
-        } else if (("island".equals(collision.getFixtureA().getUserData()) && collision
-                .getFixtureB().getUserData().getClass() == Bullet.class)
-                || ("island".equals(collision.getFixtureB().getUserData()) && collision
-                        .getFixtureA().getUserData().getClass() == Bullet.class)) {
-            Bullet bullet;
-            if (collision.getFixtureA().getUserData().getClass() == Ship.class) {
-                bullet = (Bullet) collision.getFixtureA().getUserData();
-            } else {
-                bullet = (Bullet) collision.getFixtureB().getUserData();
-            }
-            this.bulletQueue.addToRemoveBulletQueue(bullet);
-        } else if (("wall".equals(collision.getFixtureA().getUserData()) && collision.getFixtureB()
-                .getUserData().getClass() == Bullet.class)
-                || ("wall".equals(collision.getFixtureB().getUserData()) && collision.getFixtureA()
-                        .getUserData().getClass() == Bullet.class)) {
-            Bullet bullet;
-            if (collision.getFixtureA().getUserData().getClass() == Ship.class) {
-                bullet = (Bullet) collision.getFixtureA().getUserData();
-            } else {
-                bullet = (Bullet) collision.getFixtureB().getUserData();
-            }
-            this.bulletQueue.addToRemoveBulletQueue(bullet);
         }
-    }
-
-    private void processShipsCollision(Ship... ships) {
-        for (Ship ship : ships) {
-            reduceShipHealth(ship.getUserID(), -0.2f);
+        contacts.consume(count);
+        long dropped = contacts.takeDropped();
+        if (dropped > 0) {
+            log.warn("Contact ring is full. Dropped " + dropped + " contacts");
         }
     }
 
-    private void processBulletShipCollition(Player ship, Bullet bullet) {
-        boolean playerInServer = false;
-        reduceShipHealth(ship.getUserID(), -1f);
-        long shooterUserID = bullet.getPlayerId();
-        for (Player player : gameEngine.getPlayerList()) {
-            if (player.getUserID() == shooterUserID) {
-                player.setScore(10);
-                playerInServer = true;
-                break;
+    private void processBulletShipCollition(EntityRegistry<Player> players, Player ship,
+            Bullet bullet) {
+        if (!bullet.isRaycast()) { // ray cast bullets are marked when their hits are recorded
+            if (bullet.isHit()) {
+                return;
             }
+            bullet.setHit();
+        }
+        reduceShipHealth(ship, -1f);
+        long shooterUserID = bullet.getPlayerId();
+        Player shooter = players.get(shooterUserID);
+        if (shooter != null) {
+            shooter.setScore(10);
         }
         this.bulletQueue.addToRemoveBulletQueue(bullet);
-        if (!playerInServer) {
+        if (shooter == null) {
             sendScoreChangeEventFromDummy(shooterUserID, 10);
         }
     }
 
-    private void reduceShipHealth(float userID, float valChange) {
-        for (Player player : gameEngine.getPlayerList()) {
-            if (player.getUserID() == userID) {
-                player.setHealth(valChange);
-                break;
-            }
+    private void reduceShipHealth(Player player, float valChange) {
+        if (player != null) {
+            player.setHealth(valChange);
         }
     }
 
     private void sendScoreChangeEventFromDummy(long shipID, int scoreChange) {
-        List<DummyPlayer> dummyList = AOIEngine.INSTANCE.getDummyList();
-        for (DummyPlayer dummyPlayer : dummyList) {
-            if (dummyPlayer.getUserID() == shipID) {
-                ScoreChangeTransferReq scoreChangeReq = new ScoreChangeTransferReq(21, shipID,
-                        scoreChange);
-                dummyPlayer.sendScoreChange(scoreChangeReq);
-            }
+        DummyPlayer dummyPlayer = this.gameEngine.getDummyPlayer(shipID);
+        if (dummyPlayer != null) {
+            ScoreChangeTransferReq scoreChangeReq = new ScoreChangeTransferReq(21, shipID,
+                    scoreChange);
+            dummyPlayer.sendScoreChange(scoreChangeReq);
         }
     }
 }
@@ -0,0 +1,109 @@
+package org.sangraama.gameLogic;
+
+/**
+ * Preallocated ring of contact records. A record keeps the category bits of both fixtures, the IDs
+ * of their entities (user ID of a ship, key of a bullet, 0 for others) and the tick of the contact,
+ * so no JBox2D contact is referred after the world step which reported it. Records are written in
+ * the order of category bits: fixture A has the lower bit.
+ *
+ * Written during the world step and read right after it by the game engine thread.
+ */
+public class ContactRing {
+    private final int mask;
+    private final int[] categoryA;
+    private final int[] categoryB;
+    private final long[] idA;
+    private final long[] idB;
+    private final long[] tick;
+    private long head = 0; // next record to read
+    private long tail = 0; // next record to write
+    private long dropped = 0;
+
+    /**
+     * @param capacity
+     *            maximum number of records which aren't read yet. Rounded up to a power of 2
+     */
+    public ContactRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.mask = size - 1;
+        this.categoryA = new int[size];
+        this.categoryB = new int[size];
+        this.idA = new long[size];
+        this.idB = new long[size];
+        this.tick = new long[size];
+    }
+
+    /**
+     * Record a contact. Dropped if the ring is full.
+     *
+     * @return false if the ring is full
+     */
+    public boolean add(int categoryA, long idA, int categoryB, long idB, long tickNumber) {
+        if (this.tail - this.head > this.mask) {
+            this.dropped++;
+            return false;
+        }
+        int i = (int) (this.tail++ & this.mask);
+        if (categoryA <= categoryB) {
+            this.categoryA[i] = categoryA;
+            this.idA[i] = idA;
+            this.categoryB[i] = categoryB;
+            this.idB[i] = idB;
+        } else {
+            this.categoryA[i] = categoryB;
+            this.idA[i] = idB;
+            this.categoryB[i] = categoryA;
+            this.idB[i] = idA;
+        }
+        this.tick[i] = tickNumber;
+        return true;
+    }
+
+    /**
+     * Get number of records which aren't read yet
+     */
+    public int size() {
+        return (int) (this.tail - this.head);
+    }
+
+    /* Fields of the i-th unread record */
+
+    public int getCategoryA(int i) {
+        return this.categoryA[(int) ((this.head + i) & this.mask)];
+    }
+
+    public int getCategoryB(int i) {
+        return this.categoryB[(int) ((this.head + i) & this.mask)];
+    }
+
+    public long getIdA(int i) {
+        return this.idA[(int) ((this.head + i) & this.mask)];
+    }
+
+    public long getIdB(int i) {
+        return this.idB[(int) ((this.head + i) & this.mask)];
+    }
+
+    public long getTick(int i) {
+        return this.tick[(int) ((this.head + i) & this.mask)];
+    }
+
+    /**
+     * Mark records as read, so their space is reused
+     *
+     * @param count
+     *            number of records from the oldest unread one
+     */
+    public void consume(int count) {
+        this.head += Math.min(count, this.size());
+    }
+
+    /**
+     * Get number of contacts dropped because the ring was full, since the last call
+     */
+    public long takeDropped() {
+        long count = this.dropped;
+        this.dropped = 0;
+        return count;
+    }
+}
@@ -0,0 +1,184 @@
+package org.sangraama.gameLogic;
+
+import java.util.Arrays;
+
+/**
+ * Entities of the game world keyed by a long ID (Ex: user ID). Entities are kept in a dense array
+ * for iteration, and an open addressing hash table of indexes into the dense array finds them by
+ * key. Removing swaps the last entity into the hole, so add, lookup and remove take constant time
+ * and keys are never boxed. Order of iteration changes when entities are removed.
+ *
+ * Not thread safe. Other threads should use a copy which isn't modified anymore.
+ *
+ * @param <T>
+ *            type of the entities
+ */
+public class EntityRegistry<T> {
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    /* Dense arrays of keys and entities */
+    private long[] keys;
+    private Object[] entities;
+    private int size;
+    /* Hash table with linear probing. Holds index into the dense arrays + 1, 0 when empty */
+    private int[] table;
+    private int shift; // 64 - log2(table.length)
+
+    public EntityRegistry() {
+        this.keys = new long[8];
+        this.entities = new Object[8];
+        this.table = new int[16];
+        this.shift = 64 - 4;
+    }
+
+    /**
+     * Create a copy of a registry
+     *
+     * @param other
+     *            registry to copy
+     */
+    public EntityRegistry(EntityRegistry<T> other) {
+        this.keys = other.keys.clone();
+        this.entities = other.entities.clone();
+        this.size = other.size;
+        this.table = other.table.clone();
+        this.shift = other.shift;
+    }
+
+    /**
+     * Get entity of a key
+     *
+     * @param key
+     *            ID of the entity
+     * @return the entity, or null if there is no entity with the key
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long key) {
+        int slot = this.find(key);
+        return slot < 0 ? null : (T) this.entities[this.table[slot] - 1];
+    }
+
+    /**
+     * Add an entity, or replace the entity which has the same key
+     *
+     * @param key
+     *            ID of the entity
+     * @param entity
+     *            entity to add
+     * @return replaced entity, or null if there wasn't an entity with the key
+     */
+    @SuppressWarnings("unchecked")
+    public T put(long key, T entity) {
+        int slot = this.find(key);
+        if (slot >= 0) {
+            int index = this.table[slot] - 1;
+            T old = (T) this.entities[index];
+            this.entities[index] = entity;
+            return old;
+        }
+        if (this.size == this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, this.size * 2);
+            this.entities = Arrays.copyOf(this.entities, this.size * 2);
+        }
+        if ((this.size + 1) * 2 > this.table.length) {
+            this.rehash(this.table.length * 2);
+        }
+        this.keys[this.size] = key;
+        this.entities[this.size] = entity;
+        this.size++;
+        this.insert(key, this.size);
+        return null;
+    }
+
+    /**
+     * Remove an entity if it's the entity of the key. Entity which replaced it is kept.
+     *
+     * @param key
+     *            ID of the entity
+     * @param entity
+     *            entity to remove
+     * @return true if the entity was removed
+     */
+    public boolean remove(long key, T entity) {
+        int slot = this.find(key);
+        if (slot < 0 || this.entities[this.table[slot] - 1] != entity) {
+            return false;
+        }
+        int index = this.table[slot] - 1;
+        this.delete(slot);
+        int last = --this.size;
+        if (index != last) {
+            // Move the last entity into the hole
+            this.table[this.find(this.keys[last])] = index + 1;
+            this.keys[index] = this.keys[last];
+            this.entities[index] = this.entities[last];
+        }
+        this.entities[last] = null;
+        return true;
+    }
+
+    /**
+     * Get entity at an index of the dense array, for iteration
+     *
+     * @param index
+     *            index from 0 to size() - 1
+     */
+    @SuppressWarnings("unchecked")
+    public T getAt(int index) {
+        return (T) this.entities[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int home(long key) {
+        return (int) ((key * GOLDEN_RATIO) >>> this.shift);
+    }
+
+    /* Slot of a key in the hash table, or -1 */
+    private int find(long key) {
+        int mask = this.table.length - 1;
+        for (int slot = this.home(key);; slot = (slot + 1) & mask) {
+            int index = this.table[slot];
+            if (index == 0) {
+                return -1;
+            }
+            if (this.keys[index - 1] == key) {
+                return slot;
+            }
+        }
+    }
+
+    private void insert(long key, int indexPlusOne) {
+        int mask = this.table.length - 1;
+        int slot = this.home(key);
+        while (this.table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        this.table[slot] = indexPlusOne;
+    }
+
+    /* Empty a slot and shift back the following entries of the probe sequence */
+    private void delete(int slot) {
+        int mask = this.table.length - 1;
+        int hole = slot;
+        this.table[hole] = 0;
+        for (int next = (hole + 1) & mask; this.table[next] != 0; next = (next + 1) & mask) {
+            int home = this.home(this.keys[this.table[next] - 1]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                this.table[hole] = this.table[next];
+                this.table[next] = 0;
+                hole = next;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        this.table = new int[capacity];
+        this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        for (int i = 0; i < this.size; i++) {
+            this.insert(this.keys[i], i + 1);
+        }
+    }
+}
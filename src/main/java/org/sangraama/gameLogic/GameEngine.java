@@ -1,55 +1,89 @@
 package org.sangraama.gameLogic;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
-import javax.swing.Timer;
-
-import org.jbox2d.common.Vec2;
 import org.jbox2d.dynamics.Body;
 import org.jbox2d.dynamics.World;
+import org.jbox2d.dynamics.contacts.Contact;
 import org.sangraama.asserts.map.GameMap;
 import org.sangraama.asserts.map.PhysicsAPI;
+import org.sangraama.asserts.map.StaticObject;
 import org.sangraama.assets.Bullet;
+import org.sangraama.assets.BulletPool;
 import org.sangraama.assets.DummyPlayer;
 import org.sangraama.assets.Player;
 import org.sangraama.assets.Wall;
 import org.sangraama.common.Constants;
-import org.sangraama.gameLogic.queue.BulletQueue;
-import org.sangraama.gameLogic.queue.DummyQueue;
-import org.sangraama.gameLogic.queue.PlayerQueue;
+import org.sangraama.gameLogic.aoi.SensorAOIEngine;
+import org.sangraama.gameLogic.queue.AdmissionQueue;
+import org.sangraama.gameLogic.region.PhysicsRegion;
+import org.sangraama.gameLogic.region.RegionGrid;
+import org.sangraama.gameLogic.snapshot.SnapshotBuffer;
+import org.sangraama.gameLogic.snapshot.WorldSnapshot;
+import org.sangraama.gameLogic.tick.TickScheduler;
+import org.sangraama.gameLogic.tick.Tickable;
+import org.sangraama.gameLogic.tick.TimingWheel;
 import org.sangraama.util.BoundaryCreator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public enum GameEngine implements Runnable {
+/**
+ * Simulation of the game world of a game instance. Each instance has its own game engine thread.
+ */
+public class GameEngine implements Runnable, Tickable {
 
-    INSTANCE;
     public static final Logger log = LoggerFactory.getLogger(GameEngine.class);
 
+    /* Ticks between allocation statistics in debug log */
+    private static final int STATS_INTERVAL = Constants.fps * 10;
+
     private volatile boolean isRun = true;
+    private TickScheduler tickScheduler;
+    private long lastAllocatedBytes = -1;
+    private long lastPairs = 0, lastFilteredPairs = 0;
 
-    private World world;
+    private final GameInstance instance;
+    private CollisionManager collisionManager;
     private AOIEngine updateEngine;
-    // list of players details
-    private List<Player> playerList;
-    private ConcurrentLinkedQueue<Player> newPlayerQueue;
-    private ConcurrentLinkedQueue<Player> removePlayerQueue;
+    private SnapshotBuffer snapshotBuffer;
+    // players of the game world, keyed by user ID
+    private EntityRegistry<Player> players;
+    /*
+     * Copies of players for other threads, as a list and keyed by user ID. Replaced when players
+     * are added or removed
+     */
+    private volatile List<Player> playerView;
+    private volatile EntityRegistry<Player> playerIndex;
+    private AdmissionQueue<Player> newPlayerQueue;
+    private AdmissionQueue<Player> removePlayerQueue;
     private List<Player> defeatedList;
     private ConcurrentLinkedQueue<Player> defeatedPlayerQueue;
-    // list of dummy players details
-    private List<DummyPlayer> dummyList;
-    private ConcurrentLinkedQueue<DummyPlayer> newDummyQueue;
-    private ConcurrentLinkedQueue<DummyPlayer> removeDummyQueue;
-    // list of bullet details
-    private List<Bullet> bulletList;
-    private ConcurrentLinkedQueue<Bullet> newBulletQueue;
-    private ConcurrentLinkedQueue<Bullet> removeBulletQueue;
-
-    private CollisionDetector sangraamaCollisionDet;
+    // dummy players keyed by user ID
+    private EntityRegistry<DummyPlayer> dummies;
+    private volatile List<DummyPlayer> dummyView;
+    private volatile EntityRegistry<DummyPlayer> dummyIndex;
+    private AdmissionQueue<DummyPlayer> newDummyQueue;
+    private AdmissionQueue<DummyPlayer> removeDummyQueue;
+    // bullets keyed by Bullet.getKey(), since bullet IDs are not unique
+    private EntityRegistry<Bullet> bullets;
+    private long bulletKeys = 0; // last key given to a bullet
+    private AdmissionQueue<Bullet> newBulletQueue;
+    private AdmissionQueue<Bullet> removeBulletQueue;
+    /* Removed bullets waiting to be returned to the pool, in the order of removal */
+    private ArrayDeque<Bullet> retiredBullets;
+    private long tickNumber;
+    /* Deadlines of bullet ranges and player connection checks */
+    private TimingWheel<Bullet> bulletTimers;
+    private TimingWheel<Player> playerTimers;
+
+    private RegionGrid regions; // worlds of the physics regions of the tile
+    private SensorAOIEngine sensorAOI; // null unless Constants.useSensorAOI
     private List<Wall> wallList;
 
     /**
@@ -58,39 +92,61 @@ public enum GameEngine implements Runnable {
     private int maxPlayers = 0;
     private int maxDummies = 0;
 
-    // this method only access via class
-    GameEngine() {
-        this.world = new World(new Vec2(0.0f, 0.0f));
+    /**
+     * Create the game engine of a game instance. Queues and AOI stage of the instance should be
+     * created before.
+     *
+     * @param instance
+     *            game instance which the engine simulates
+     */
+    GameEngine(GameInstance instance) {
+        this.instance = instance;
         /**
          * Player Details
          */
-        this.playerList = new ArrayList<>();
-        this.newPlayerQueue = new ConcurrentLinkedQueue<Player>();
-        this.removePlayerQueue = new ConcurrentLinkedQueue<Player>();
+        this.players = new EntityRegistry<>();
+        this.playerView = Collections.emptyList();
+        this.playerIndex = new EntityRegistry<>();
+        this.newPlayerQueue = new AdmissionQueue<>("new players", Constants.playerQueueSize);
+        this.removePlayerQueue = new AdmissionQueue<>("removed players",
+                Constants.playerQueueSize);
         this.defeatedList = new ArrayList<>();
         this.defeatedPlayerQueue = new ConcurrentLinkedQueue<Player>();
-        PlayerQueue.INSTANCE.init(this.newPlayerQueue, this.removePlayerQueue,
+        instance.getPlayerQueue().init(this.newPlayerQueue, this.removePlayerQueue,
                 this.defeatedPlayerQueue);
         /**
          * Dummy Player Details
          */
-        this.dummyList = new ArrayList<>();
-        this.newDummyQueue = new ConcurrentLinkedQueue<DummyPlayer>();
-        this.removeDummyQueue = new ConcurrentLinkedQueue<DummyPlayer>();
-        DummyQueue.INSTANCE.init(this.newDummyQueue, this.removeDummyQueue);
+        this.dummies = new EntityRegistry<>();
+        this.dummyView = Collections.emptyList();
+        this.dummyIndex = new EntityRegistry<>();
+        this.newDummyQueue = new AdmissionQueue<>("new dummies", Constants.dummyQueueSize);
+        this.removeDummyQueue = new AdmissionQueue<>("removed dummies", Constants.dummyQueueSize);
+        instance.getDummyQueue().init(this.newDummyQueue, this.removeDummyQueue);
         /**
          * Bullet details
          */
-        this.bulletList = new ArrayList<>();
-        this.newBulletQueue = new ConcurrentLinkedQueue<Bullet>();
-        this.removeBulletQueue = new ConcurrentLinkedQueue<Bullet>();
-        BulletQueue.INSTANCE.init(this.newBulletQueue, this.removeBulletQueue);
+        this.bullets = new EntityRegistry<>();
+        this.newBulletQueue = new AdmissionQueue<>("new bullets", Constants.bulletQueueSize);
+        this.removeBulletQueue = new AdmissionQueue<>("removed bullets",
+                Constants.bulletQueueSize);
+        this.retiredBullets = new ArrayDeque<>();
+        this.bulletTimers = new TimingWheel<>(0);
+        this.playerTimers = new TimingWheel<>(0);
+        instance.getBulletQueue().init(this.newBulletQueue, this.removeBulletQueue);
 
         this.wallList = new ArrayList<>();
-        this.updateEngine = AOIEngine.INSTANCE;
+        this.updateEngine = instance.getAOIEngine();
+        this.snapshotBuffer = this.updateEngine.getSnapshotBuffer();
+        this.tickScheduler = new TickScheduler(instance.getThreadName("GameEngine"),
+                Constants.simulatingDelay, Constants.maxCatchUpSteps, this);
     }
 
     public synchronized boolean setStop() {
+        this.tickScheduler.setStop();
+        if (this.regions != null) {
+            this.regions.setStop();
+        }
         this.isRun = false;
         return this.isRun;
     }
@@ -100,83 +156,133 @@ public enum GameEngine implements Runnable {
         log.info("GameEngine Start running.. fps:" + Constants.fps + " timesteps:"
                 + Constants.timeStep);
         init();
-        Timer timer = new Timer(Constants.simulatingDelay, new ActionListener() {
-
-            @Override
-            public void actionPerformed(ActionEvent arg0) {
-                updateGameWorld();
+        this.tickScheduler.run();
+    }
 
-                world.step(Constants.timeStep, Constants.velocityIterations,
-                        Constants.positionIterations);
-                pushUpdate();
-            }
-        });
-        timer.start();
-
-        /*
-         * while (this.isRun) { try { Thread.sleep(Constants.simulatingDelay); updateGameWorld();
-         * world.step(Constants.timeStep, Constants.velocityIterations,
-         * Constants.positionIterations); pushUpdate();
-         * 
-         * } catch (InterruptedException e) { e.printStackTrace(); } }
-         */
+    @Override
+    public void tick(long tickNumber) {
+        this.tickNumber = tickNumber;
+        updateGameWorld();
+        if (this.sensorAOI != null) {
+            this.sensorAOI.updateSensors();
+        }
+        try {
+            this.regions.step(tickNumber);
+        } catch (IllegalStateException e) {
+            // Stop the instance rather than run a world which is frozen
+            log.error("Physics regions failed at tick " + tickNumber + ". Stopping game instance "
+                    + this.instance.getName(), e);
+            this.instance.setStop();
+            return;
+        }
+        for (int i = 0; i < this.regions.size(); i++) {
+            this.collisionManager.resolve(this.regions.get(i).getContacts(), this.players,
+                    this.bullets);
+        }
+        this.regions.sync(this.players, this.bullets);
+        pushUpdate(tickNumber);
+        if (log.isDebugEnabled() && tickNumber % STATS_INTERVAL == 0) {
+            logAllocation(tickNumber);
+            logContacts(tickNumber);
+            logQueues(tickNumber);
+            logRegions(tickNumber);
+        }
     }
 
     /* Load static map objects into game engine and apply object physics using JBox2D */
     public void init() {
+        int regionsX = Constants.physicsRegionsX;
+        int regionsY = Constants.physicsRegionsY;
+        if (Constants.useSensorAOI && regionsX * regionsY > 1) {
+            log.warn("Sensor AOI needs a single physics region. Physics regions are not used");
+            regionsX = 1;
+            regionsY = 1;
+        }
+        this.collisionManager = this.instance.getCollisionManager();
+        this.regions = new RegionGrid(this.instance.getMap(), regionsX, regionsY,
+                Constants.regionMargin, Constants.useSensorAOI);
         GameMap g = GameMap.getMap();
-        g.generate(); // generate the static objects into game engine, using any tile editor module.
+        List<StaticObject> staticObjects;
+        synchronized (g) { // map is shared by the engines of the game instances
+            g.generate(); // generate the static objects, using any tile editor module.
+            staticObjects = g.getStaticObjects();
+        }
         PhysicsAPI physicsAPI = new PhysicsAPI();
-        physicsAPI.applyPhysics(g.getStaticObjects(), world);// apply physics to the static objects,
-                                                             // and add them to the game world.
+        // apply physics to the static objects, and add them to the world of every region
+        for (int i = 0; i < this.regions.size(); i++) {
+            physicsAPI.applyPhysics(staticObjects, this.regions.get(i).getWorld());
+        }
         log.info("Static Game Objects added to the game world!!");
-        this.sangraamaCollisionDet = new CollisionDetector();
-        world.setContactListener(sangraamaCollisionDet);
+        this.sensorAOI = this.regions.get(0).getSensorAOI();
         addWalls();
+        this.regions.start();
 
     }
 
     public void updateGameWorld() {
+        this.expireTimers();
         this.performPlayerUpdates();
         this.performDummyPlayerUpdates();
         this.performBulletUpdates();
     }
 
     private void performPlayerUpdates() {
-        // Remove existing players from the game world
+        boolean isChanged = false;
+        // Remove existing players from the game world, up to the budget of a tick
         Player rmPlayer;
-        while ((rmPlayer = this.removePlayerQueue.poll()) != null) {
+        int budget = Constants.playerRemoveBudget;
+        while (budget-- > 0 && (rmPlayer = this.removePlayerQueue.poll()) != null) {
             // System.out.println(TAG + "Removing players");
-            if (this.playerList.remove(rmPlayer)) { // True if player contains
-                this.world.destroyBody(rmPlayer.getBody());
+            if (this.players.remove(rmPlayer.getUserID(), rmPlayer)) { // True if player contains
+                this.destroyPlayer(rmPlayer);
+                isChanged = true;
                 // log.info("Removed player :" + rmPlayer.getUserID());
 
             }
-            log.info("=> (in rm) player remained:" + this.playerList.size() + " /max:" + maxPlayers
+            log.info("=> (in rm) player remained:" + this.players.size() + " /max:" + maxPlayers
                     + " #############");
             rmPlayer = null; // free the memory @need to add to garbage collector
         }
 
-        // Add new player to the world
+        // Add new player to the world. The rest of a join storm waits for the next ticks
         Player newPlayer;
-        while ((newPlayer = this.newPlayerQueue.poll()) != null) {
-            Body newPlayerBody = world.createBody(newPlayer.getBodyDef());
-            newPlayerBody.createFixture(newPlayer.getFixtureDef());
-            newPlayer.setBody(newPlayerBody);
-            this.playerList.add(newPlayer);
-
-            if (this.playerList.size() > maxPlayers)
-                maxPlayers = this.playerList.size();
+        budget = Constants.playerAddBudget;
+        while (budget-- > 0 && (newPlayer = this.newPlayerQueue.poll()) != null) {
+            newPlayer.setBody(this.regions.createBody(newPlayer.getBodyDef(),
+                    newPlayer.getFixtureDef()));
+            Player replaced = this.players.put(newPlayer.getUserID(), newPlayer);
+            if (replaced != null) {
+                // Same user connected again before the old ship was removed
+                log.info(newPlayer.getUserID() + " replaced the ship of the old connection");
+                this.destroyPlayer(replaced);
+            }
+            this.playerTimers.schedule(newPlayer.getCheckTimer(),
+                    this.tickNumber + Constants.playerCheckInterval);
+            if (this.sensorAOI != null) {
+                this.sensorAOI.addSubscriber(newPlayer);
+            }
+            isChanged = true;
+
+            if (this.players.size() > maxPlayers)
+                maxPlayers = this.players.size();
             // log.info("Added new player :" + newPlayer.getUserID());
-            log.info("=> (in add) player remained:" + this.playerList.size() + " / max:" + maxPlayers
+            log.info("=> (in add) player remained:" + this.players.size() + " / max:" + maxPlayers
                     + " #############");
             // Send size of the tile
             newPlayer.sendTileSizeInfo();
 
         }
+        if (isChanged) {
+            List<Player> view = new ArrayList<>(this.players.size());
+            for (int i = 0; i < this.players.size(); i++) {
+                view.add(this.players.getAt(i));
+            }
+            this.playerView = Collections.unmodifiableList(view);
+            this.playerIndex = new EntityRegistry<>(this.players);
+        }
 
-        for (Player player : playerList) {
-            player.applyUpdate();
+        for (int i = 0; i < this.players.size(); i++) {
+            this.players.getAt(i).applyUpdate();
         }
 
         // Add defeated player to the list
@@ -188,14 +294,20 @@ public enum GameEngine implements Runnable {
     }
 
     private void performDummyPlayerUpdates() {
+        boolean isChanged = false;
         // Remove existing dummy players from the game world
         DummyPlayer rmDummy;
-        while ((rmDummy = this.removeDummyQueue.poll()) != null) {
-            if (this.dummyList.remove(rmDummy)) { // True if player contains
-                if (this.dummyList.size() > maxDummies)
-                    maxDummies = this.dummyList.size();
+        int budget = Constants.dummyRemoveBudget;
+        while (budget-- > 0 && (rmDummy = this.removeDummyQueue.poll()) != null) {
+            if (this.dummies.remove(rmDummy.getUserID(), rmDummy)) { // True if player contains
+                if (this.sensorAOI != null) {
+                    this.sensorAOI.removeSubscriber(rmDummy);
+                }
+                isChanged = true;
+                if (this.dummies.size() > maxDummies)
+                    maxDummies = this.dummies.size();
                 // log.info("remove Dummy player :" + rmDummy.getUserID());
-                log.info("=> (in rm) DUMMY remained:" + this.dummyList.size() + " / max:" + maxDummies
+                log.info("=> (in rm) DUMMY remained:" + this.dummies.size() + " / max:" + maxDummies
                         + " **************");
             }
             rmDummy = null; // free the memory @need to add to garbage collector
@@ -203,80 +315,305 @@ public enum GameEngine implements Runnable {
 
         // Add new player to the world
         DummyPlayer newDummy;
-        while ((newDummy = this.newDummyQueue.poll()) != null) {
-            this.dummyList.add(newDummy);
-            
+        budget = Constants.dummyAddBudget;
+        while (budget-- > 0 && (newDummy = this.newDummyQueue.poll()) != null) {
+            DummyPlayer replacedDummy = this.dummies.put(newDummy.getUserID(), newDummy);
+            if (this.sensorAOI != null) {
+                if (replacedDummy != null) {
+                    this.sensorAOI.removeSubscriber(replacedDummy);
+                }
+                this.sensorAOI.addSubscriber(newDummy);
+            }
+            isChanged = true;
+
             // log.info("add Dummy player :" + newDummy.getUserID());
-            log.info("=> (in add) DUMMY remained:" + this.dummyList.size() + " / max:" + maxDummies
+            log.info("=> (in add) DUMMY remained:" + this.dummies.size() + " / max:" + maxDummies
                     + " **************");
             // Send size of the tile
             newDummy.sendTileSizeInfo();
         }
+        if (isChanged) {
+            List<DummyPlayer> view = new ArrayList<>(this.dummies.size());
+            for (int i = 0; i < this.dummies.size(); i++) {
+                view.add(this.dummies.getAt(i));
+            }
+            this.dummyView = Collections.unmodifiableList(view);
+            this.dummyIndex = new EntityRegistry<>(this.dummies);
+        }
+
+        for (int i = 0; i < this.dummies.size(); i++) {
+            this.dummies.getAt(i).applyUpdate();
+        }
     }
 
     private void performBulletUpdates() {
         Bullet rmvBullet;
-        while ((rmvBullet = this.removeBulletQueue.poll()) != null) {
-            if (this.bulletList.remove(rmvBullet)) {
-                this.world.destroyBody(rmvBullet.getBody());
-
+        int budget = Constants.bulletRemoveBudget;
+        while (budget-- > 0 && (rmvBullet = this.removeBulletQueue.poll()) != null) {
+            if (this.bullets.remove(rmvBullet.getKey(), rmvBullet)) {
+                this.bulletTimers.cancel(rmvBullet.getRangeTimer());
+                if (rmvBullet.isRaycast()) {
+                    this.regions.removeProjectile(rmvBullet);
+                } else {
+                    this.regions.destroyBody(rmvBullet, rmvBullet.getBody());
+                }
+                rmvBullet.setRemovedTick(this.tickNumber);
+                this.retiredBullets.add(rmvBullet);
             }
             // log.info("Removed bullet :" + rmvBullet.getId());
             rmvBullet = null;
         }
 
+        // Return bullets which are not referred by pending collisions anymore
+        Bullet retired;
+        while ((retired = this.retiredBullets.peek()) != null
+                && this.tickNumber - retired.getRemovedTick() >= Constants.bulletReuseDelay) {
+            BulletPool.INSTANCE.release(this.retiredBullets.poll());
+        }
+
         // Add new bullet to the world
         Bullet newBullet;
-        while ((newBullet = this.newBulletQueue.poll()) != null) {
+        budget = Constants.bulletAddBudget;
+        while (budget-- > 0 && (newBullet = this.newBulletQueue.poll()) != null) {
             // System.out.println(TAG + "Adding new bullets");
-            Body newBulletBody = world.createBody(newBullet.getBodyDef());
-            newBulletBody.createFixture(newBullet.getFixtureDef());
+            newBullet.setKey(++this.bulletKeys);
+            this.bullets.put(newBullet.getKey(), newBullet);
+            this.scheduleRange(newBullet);
+            if (newBullet.isRaycast()) {
+                this.regions.addProjectile(newBullet);
+                continue;
+            }
+            Body newBulletBody = this.regions.createBody(newBullet.getBodyDef(),
+                    newBullet.getFixtureDef());
             newBullet.setBody(newBulletBody);
             newBulletBody.setLinearVelocity(newBullet.getVelocity());
-            this.bulletList.add(newBullet);
             /*
              * System.out.println(TAG + "Added new bullet :" + newBullet.getId() + "x : " +
              * newBulletBody.getPosition().x + "y : " + newBulletBody.getPosition().y);
              */
         }
+    }
+
+    /* Remove a ship from the physics world and from the engine stages */
+    private void destroyPlayer(Player player) {
+        this.regions.destroyBody(player, player.getBody());
+        this.playerTimers.cancel(player.getCheckTimer());
+        if (this.sensorAOI != null) {
+            this.sensorAOI.removeSubscriber(player);
+        }
+    }
+
+    /**
+     * Schedule removal of a new bullet on the tick it runs out of range. Bullet moves at a
+     * constant speed, so the distance left to Constants.bulletRange is converted to ticks. A
+     * bullet which bounced off is removed after travelling the same distance.
+     * 
+     * @param bullet
+     *            bullet which is added to the game world in this tick
+     */
+    private void scheduleRange(Bullet bullet) {
+        float dx = bullet.getX() - bullet.getOriginX();
+        float dy = bullet.getY() - bullet.getOriginY();
+        float distance = Constants.bulletRange - (float) Math.sqrt(dx * dx + dy * dy);
+        float step = bullet.getVelocity().length() * Constants.timeStep;
+        if (step > 0) {
+            long ticks = (long) Math.ceil(distance / step);
+            this.bulletTimers.schedule(bullet.getRangeTimer(), this.tickNumber + ticks);
+        }
+    }
+
+    /**
+     * Handle the timers which expire on this tick: remove bullets which are out of range, and
+     * players who are disconnected or idle. Bodies are destroyed when the remove queues are
+     * processed in this tick.
+     */
+    private void expireTimers() {
+        int expired = this.bulletTimers.advance(this.tickNumber);
+        for (int i = 0; i < expired; i++) {
+            this.removeBulletQueue.put(this.bulletTimers.getExpired(i));
+        }
+        expired = this.playerTimers.advance(this.tickNumber);
+        for (int i = 0; i < expired; i++) {
+            Player player = this.playerTimers.getExpired(i);
+            if (player.checkConnection()) {
+                this.playerTimers.schedule(player.getCheckTimer(),
+                        this.tickNumber + Constants.playerCheckInterval);
+            } else {
+                log.info(player.getUserID() + " is disconnected or idle. Removing the player");
+                player.disconnect();
+                this.instance.getPlayerQueue().addToRemovePlayerQueue(player);
+            }
+        }
+    }
 
-        for (Bullet bullet : bulletList) {
-            removeBulletByPosition(bullet);
+    /**
+     * Log bytes allocated by the game engine thread per tick, and how bullets were allocated. Shows
+     * the GC pressure of the engine during sustained fire.
+     */
+    private void logAllocation(long tickNumber) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        long allocated = ((com.sun.management.ThreadMXBean) threads)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+        if (this.lastAllocatedBytes >= 0) {
+            BulletPool pool = BulletPool.INSTANCE;
+            log.debug("tick:" + tickNumber + " allocated bytes/tick:"
+                    + (allocated - this.lastAllocatedBytes) / STATS_INTERVAL + " bullets:"
+                    + this.bullets.size() + " created:" + pool.getCreated() + " reused:"
+                    + pool.getReused() + " discarded:" + pool.getDiscarded() + " pooled:"
+                    + pool.size());
         }
+        this.lastAllocatedBytes = allocated;
+    }
 
+    /**
+     * Log broad phase pairs per tick, how many of them the collision matrix rejected, and the
+     * contacts which go through the narrow phase in each step
+     */
+    private void logContacts(long tickNumber) {
+        int contacts = 0, touching = 0;
+        long pairs = 0, filtered = 0;
+        for (int i = 0; i < this.regions.size(); i++) {
+            World world = this.regions.get(i).getWorld();
+            for (Contact contact = world.getContactList(); contact != null; contact = contact
+                    .getNext()) {
+                if (contact.isTouching()) {
+                    touching++;
+                }
+            }
+            contacts += world.getContactCount();
+            pairs += this.regions.get(i).getPairCounter().getPairs();
+            filtered += this.regions.get(i).getPairCounter().getFiltered();
+        }
+        log.debug("tick:" + tickNumber + " new pairs/tick:"
+                + (pairs - this.lastPairs) / (float) STATS_INTERVAL + " filtered/tick:"
+                + (filtered - this.lastFilteredPairs) / (float) STATS_INTERVAL + " contacts:"
+                + contacts + " touching:" + touching);
+        this.lastPairs = pairs;
+        this.lastFilteredPairs = filtered;
+    }
+
+    /**
+     * Log depth, wait times and refusals of the queues of entities which wait to be added to or
+     * removed from the game world
+     */
+    private void logQueues(long tickNumber) {
+        log.debug("tick:" + tickNumber + " " + this.newPlayerQueue.takeStats() + " | "
+                + this.removePlayerQueue.takeStats());
+        log.debug("tick:" + tickNumber + " " + this.newDummyQueue.takeStats() + " | "
+                + this.removeDummyQueue.takeStats());
+        log.debug("tick:" + tickNumber + " " + this.newBulletQueue.takeStats() + " | "
+                + this.removeBulletQueue.takeStats());
     }
 
-    public void removeBulletByPosition(Bullet bullet) {
-        float x = bullet.getOriginX();
-        float y = bullet.getOriginY();
-        float bulletX = bullet.getBody().getPosition().x;
-        float bulletY = bullet.getBody().getPosition().y;
-        float bulletRange = 15;
-        float currentRange = (float) Math.sqrt(Math.pow((bulletX - x), 2)
-                + Math.pow((bulletY - y), 2));
-        if (currentRange >= bulletRange) {
-            world.destroyBody(bullet.getBody());
-            removeBulletQueue.add(bullet);
+    /**
+     * Log step time, bodies and ghosts of each physics region, which shows whether the load is
+     * balanced over the regions
+     */
+    private void logRegions(long tickNumber) {
+        if (this.regions.size() == 1) {
+            return;
+        }
+        for (int i = 0; i < this.regions.size(); i++) {
+            PhysicsRegion region = this.regions.get(i);
+            log.debug("tick:" + tickNumber + " physics region (" + region.getCol() + ","
+                    + region.getRow() + ") bodies:" + region.getWorld().getBodyCount()
+                    + " ghosts:" + region.getGhostCount() + " projectiles:"
+                    + region.getProjectiles().size() + " step time(ns):"
+                    + region.getLastStepDuration());
         }
     }
 
-    public void pushUpdate() {
-        this.updateEngine.setBulletList(this.bulletList);
-        this.updateEngine.setDefeatList(this.defeatedList);
-        this.updateEngine.setUpdatedDummyPlayerList(this.dummyList);
-        this.updateEngine.setUpdatedPlayerList(this.playerList);
+    /**
+     * Write the state of the game world after the world step into a snapshot and publish it to the
+     * AOI stage. Bodies are only read on the game engine thread, so next world step can start
+     * while AOI stage is processing this snapshot.
+     * 
+     * @param tickNumber
+     *            number of the current tick
+     */
+    public void pushUpdate(long tickNumber) {
+        WorldSnapshot snapshot = this.snapshotBuffer.getBackBuffer();
+        snapshot.reset(tickNumber, this.playerView, this.dummyView);
+        for (int i = 0; i < this.players.size(); i++) {
+            this.players.getAt(i).writeSnapshot(snapshot);
+        }
+        for (int i = 0; i < this.bullets.size(); i++) {
+            this.bullets.getAt(i).writeSnapshot(snapshot);
+        }
+        for (Player defeatedPlayer : this.defeatedList) {
+            defeatedPlayer.writeDefeatSnapshot(snapshot);
+            // Defeat message is sent once, then remove defeated player from the game world
+            this.instance.getPlayerQueue().addToRemovePlayerQueue(defeatedPlayer);
+        }
+        this.defeatedList.clear();
+        if (this.sensorAOI != null) {
+            this.sensorAOI.writeInterest(snapshot);
+        }
+        this.snapshotBuffer.publish();
+    }
+
+    /**
+     * Find a player of the game world. Safe to use by other threads.
+     * 
+     * @param userID
+     *            user ID of the player
+     * @return the player, or null if the player isn't in the game world
+     */
+    public Player getPlayer(long userID) {
+        return this.playerIndex.get(userID);
+    }
+
+    /**
+     * Find a dummy player. Safe to use by other threads.
+     * 
+     * @param userID
+     *            user ID of the dummy player
+     * @return the dummy player, or null if there is no dummy player of the user
+     */
+    public DummyPlayer getDummyPlayer(long userID) {
+        return this.dummyIndex.get(userID);
     }
 
-    public List<Player> getPlayerList() {
-        return playerList;
+    /**
+     * Get players of the game world. Safe to use by other threads.
+     * 
+     * @return read only list of players
+     */
+    public List<Player> getPlayerView() {
+        return this.playerView;
+    }
+
+    /**
+     * Get dummy players of the game world. Safe to use by other threads.
+     * 
+     * @return read only list of dummy players
+     */
+    public List<DummyPlayer> getDummyList() {
+        return this.dummyView;
+    }
+
+    /**
+     * Get the scheduler which drives the simulation. Exposes tick number, tick duration and
+     * overrun counts.
+     * 
+     * @return tick scheduler of the game engine
+     */
+    public TickScheduler getTickScheduler() {
+        return this.tickScheduler;
     }
 
     private void addWalls() {
-        BoundaryCreator wallGen = new BoundaryCreator();
+        BoundaryCreator wallGen = new BoundaryCreator(this.instance.getMap());
         wallList = wallGen.calculateWallBoundary();
         for (Wall wall : wallList) {
             // System.out.println("Adding wall " + wall.getFixtureDef().userData);
-            this.world.createBody(wall.getBodyDef()).createFixture(wall.getFixtureDef());
+            for (int i = 0; i < this.regions.size(); i++) {
+                this.regions.get(i).getWorld().createBody(wall.getBodyDef())
+                        .createFixture(wall.getFixtureDef());
+            }
         }
     }
 
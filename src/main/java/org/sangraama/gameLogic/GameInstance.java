@@ -0,0 +1,138 @@
+package org.sangraama.gameLogic;
+
+import org.sangraama.assets.SangraamaMap;
+import org.sangraama.controller.BulletPassHandler;
+import org.sangraama.controller.PlayerPassHandler;
+import org.sangraama.coordination.staticPartition.TileCoordinator;
+import org.sangraama.gameLogic.queue.BulletQueue;
+import org.sangraama.gameLogic.queue.DummyQueue;
+import org.sangraama.gameLogic.queue.PlayerQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Independent game world of the server: its map, queues, game engine, AOI stage, collision
+ * handling and passing of players and bullets to other servers. A server runs several game
+ * instances (Ex: small arenas or test shards) which share the JVM, the bullet pool and the
+ * Hazelcast member. Connections are routed to an instance by the path of their URL (see
+ * PlayerConnectionHandlerServlet); players and bullets keep the instance they belong to.
+ */
+public class GameInstance {
+    private static final Logger log = LoggerFactory.getLogger(GameInstance.class);
+
+    /* Name of the instance which is served on the path of the server without an instance name */
+    public static final String DEFAULT_NAME = "default";
+
+    private final String name;
+    private final SangraamaMap map;
+    private final TileCoordinator tileCoordinator;
+    private final PlayerQueue playerQueue;
+    private final DummyQueue dummyQueue;
+    private final BulletQueue bulletQueue;
+    private final PlayerPassHandler playerPassHandler;
+    private final BulletPassHandler bulletPassHandler;
+    private final AOIEngine aoiEngine;
+    private final GameEngine gameEngine;
+    private final CollisionManager collisionManager;
+    private Thread aoiThread = null;
+    private Thread gameThread = null;
+
+    /**
+     * Create a game instance. Map should be set before, since the stages read it when they are
+     * created.
+     *
+     * @param name
+     *            name of the instance, used in the URL path of its connections
+     * @param map
+     *            tile and sub-tiles of the instance
+     */
+    public GameInstance(String name, SangraamaMap map) {
+        this.name = name;
+        this.map = map;
+        // Sub-tiles of the default instance keep the map name which other servers look up
+        this.tileCoordinator = new TileCoordinator(map, this.isDefault() ? "subtile"
+                : "subtile-" + name);
+        this.playerQueue = new PlayerQueue();
+        this.dummyQueue = new DummyQueue();
+        this.bulletQueue = new BulletQueue();
+        this.playerPassHandler = new PlayerPassHandler(this);
+        this.bulletPassHandler = new BulletPassHandler(this);
+        this.aoiEngine = new AOIEngine(this);
+        this.gameEngine = new GameEngine(this);
+        this.collisionManager = new CollisionManager(this.gameEngine, this.bulletQueue);
+    }
+
+    /**
+     * Start the AOI stage and the game engine, and publish the sub-tiles of the instance
+     */
+    public void start() {
+        this.aoiThread = new Thread(this.aoiEngine, this.getThreadName("AOIEngine"));
+        this.aoiThread.start();
+        this.gameThread = new Thread(this.gameEngine, this.getThreadName("GameEngine"));
+        this.gameThread.start();
+        this.tileCoordinator.init();// Should initialized after "SangraamaMap"
+        this.tileCoordinator.generateSubtiles();
+        log.info("game instance " + this.name + " started on " + this.map.getHost());
+    }
+
+    public void setStop() {
+        this.gameEngine.setStop();
+        this.aoiEngine.setStop();
+    }
+
+    /**
+     * Get the name of a thread of this instance. Threads of the default instance keep their old
+     * names.
+     */
+    String getThreadName(String stage) {
+        return this.isDefault() ? stage : stage + "-" + this.name;
+    }
+
+    public boolean isDefault() {
+        return DEFAULT_NAME.equals(this.name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SangraamaMap getMap() {
+        return map;
+    }
+
+    public TileCoordinator getTileCoordinator() {
+        return tileCoordinator;
+    }
+
+    public PlayerQueue getPlayerQueue() {
+        return playerQueue;
+    }
+
+    public DummyQueue getDummyQueue() {
+        return dummyQueue;
+    }
+
+    public BulletQueue getBulletQueue() {
+        return bulletQueue;
+    }
+
+    public PlayerPassHandler getPlayerPassHandler() {
+        return playerPassHandler;
+    }
+
+    public BulletPassHandler getBulletPassHandler() {
+        return bulletPassHandler;
+    }
+
+    public AOIEngine getAOIEngine() {
+        return aoiEngine;
+    }
+
+    public GameEngine getGameEngine() {
+        return gameEngine;
+    }
+
+    public CollisionManager getCollisionManager() {
+        return collisionManager;
+    }
+}
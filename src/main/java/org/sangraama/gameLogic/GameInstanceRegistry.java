@@ -0,0 +1,87 @@
+package org.sangraama.gameLogic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+
+/**
+ * Game instances which run on this server, keyed by name, and the Hazelcast member they share.
+ * Instances are registered when the server starts, and looked up by the connections.
+ */
+public enum GameInstanceRegistry {
+    INSTANCE;
+    private static final Logger log = LoggerFactory.getLogger(GameInstanceRegistry.class);
+
+    private final ConcurrentMap<String, GameInstance> instances = new ConcurrentHashMap<>();
+    private HazelcastInstance hazelcastInstance = null;
+
+    /**
+     * Add a game instance to the server
+     *
+     * @param instance
+     *            game instance which isn't started yet
+     * @throws IllegalArgumentException
+     *             if there is already an instance with the same name
+     */
+    public void register(GameInstance instance) {
+        if (this.instances.putIfAbsent(instance.getName(), instance) != null) {
+            throw new IllegalArgumentException("Game instance " + instance.getName()
+                    + " is already registered");
+        }
+        log.info("registered game instance " + instance.getName());
+    }
+
+    /**
+     * Find a game instance
+     *
+     * @param name
+     *            name of the instance
+     * @return the instance, or null if there isn't an instance with the name
+     */
+    public GameInstance get(String name) {
+        return this.instances.get(name);
+    }
+
+    /**
+     * Get the instance which is served on the path without an instance name
+     *
+     * @return the default instance, or null if it isn't registered
+     */
+    public GameInstance getDefault() {
+        return this.instances.get(GameInstance.DEFAULT_NAME);
+    }
+
+    public Collection<GameInstance> getInstances() {
+        return Collections.unmodifiableCollection(new ArrayList<>(this.instances.values()));
+    }
+
+    /**
+     * Get the Hazelcast member of this server. Created on first use and shared by the game
+     * instances, which keep their sub-tiles in maps of their own.
+     */
+    public synchronized HazelcastInstance getHazelcastInstance() {
+        if (this.hazelcastInstance == null) {
+            this.hazelcastInstance = Hazelcast.newHazelcastInstance(new Config());
+        }
+        return this.hazelcastInstance;
+    }
+
+    /**
+     * Stop every game instance and remove them from the registry
+     */
+    public void stopAll() {
+        for (GameInstance instance : this.instances.values()) {
+            instance.setStop();
+        }
+        this.instances.clear();
+    }
+}
@@ -0,0 +1,38 @@
+package org.sangraama.gameLogic;
+
+import org.jbox2d.callbacks.ContactFilter;
+import org.jbox2d.dynamics.Fixture;
+
+/**
+ * Contact filter of the game world which counts the new pairs found by the broad phase, and how
+ * many of them were rejected by the collision matrix. Filtering itself is the default category and
+ * mask test of JBox2D.
+ */
+public class PairCounter extends ContactFilter {
+    private long pairs = 0;
+    private long filtered = 0;
+
+    @Override
+    public boolean shouldCollide(Fixture fixtureA, Fixture fixtureB) {
+        this.pairs++;
+        if (super.shouldCollide(fixtureA, fixtureB)) {
+            return true;
+        }
+        this.filtered++;
+        return false;
+    }
+
+    /**
+     * Get number of new broad phase pairs
+     */
+    public long getPairs() {
+        return pairs;
+    }
+
+    /**
+     * Get number of new broad phase pairs which didn't become contacts
+     */
+    public long getFiltered() {
+        return filtered;
+    }
+}
@@ -0,0 +1,157 @@
+package org.sangraama.gameLogic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jbox2d.callbacks.RayCastCallback;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Fixture;
+import org.jbox2d.dynamics.World;
+import org.sangraama.assets.Bullet;
+import org.sangraama.assets.Player;
+import org.sangraama.common.Constants;
+
+/**
+ * Bullets which are moved analytically instead of being JBox2D bodies. Each tick a bullet moves
+ * along its velocity, and the segment it sweeps is ray cast against the game world. First ship,
+ * island or wall on the segment is hit; other bullets and sensors are ignored. This avoids the
+ * continuous collision (TOI) solving of bullet bodies in world step.
+ *
+ * Used for bullet types listed in Constants.raycastBulletTypes. Each physics region has one, which
+ * is stepped with the world of the region. Bullets are kept in an EntityRegistry on their key, so
+ * retiring a bullet or handing it over to another region takes constant time.
+ */
+public class ProjectileEngine implements RayCastCallback {
+    private final World world;
+    private final EntityRegistry<Bullet> bullets;
+    /* Hits of the last step. Ship is null when a bullet hit an island or a wall */
+    private final List<Bullet> hitBullets;
+    private final List<Player> hitShips;
+    private int[] hitCategories = new int[16];
+
+    /* Ray cast state */
+    private final Vec2 from = new Vec2();
+    private final Vec2 to = new Vec2();
+    private final Vec2 hitPoint = new Vec2();
+    private Object hitObject;
+    private int hitCategory;
+
+    public ProjectileEngine(World world) {
+        this.world = world;
+        this.bullets = new EntityRegistry<>();
+        this.hitBullets = new ArrayList<>();
+        this.hitShips = new ArrayList<>();
+    }
+
+    /**
+     * Check whether bullets of a type are ray cast. Sensor AOI only sees bodies, so every bullet
+     * is a body when it is used.
+     *
+     * @param bulletType
+     *            type of the bullet
+     * @return true if bullets of the type should be added to this engine
+     */
+    public static boolean isRaycastType(int bulletType) {
+        if (Constants.useSensorAOI) {
+            return false;
+        }
+        for (int type : Constants.raycastBulletTypes) {
+            if (type == bulletType) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void add(Bullet bullet) {
+        this.bullets.put(bullet.getKey(), bullet);
+    }
+
+    /**
+     * Remove a bullet. Last bullet is moved into its place, so bullets can be removed while
+     * iterating from the last one down.
+     *
+     * @return true if the bullet was in this engine
+     */
+    public boolean remove(Bullet bullet) {
+        return this.bullets.remove(bullet.getKey(), bullet);
+    }
+
+    /**
+     * Move the bullets for a time step and find what they hit. Should be called after the world
+     * step, so bullets are tested against the new positions of ships.
+     *
+     * @param timeStep
+     *            time step in seconds
+     * @return number of hits, which can be read by getHitBullet and getHitShip
+     */
+    public int step(float timeStep) {
+        this.hitBullets.clear();
+        this.hitShips.clear();
+        for (int i = 0; i < this.bullets.size(); i++) {
+            Bullet bullet = this.bullets.getAt(i);
+            if (bullet.isHit()) {
+                continue; // waiting to be removed
+            }
+            Vec2 v = bullet.getVelocity();
+            this.from.set(bullet.getX(), bullet.getY());
+            this.to.set(this.from.x + v.x * timeStep, this.from.y + v.y * timeStep);
+            this.hitObject = null;
+            this.world.raycast(this, this.from, this.to);
+            if (this.hitObject == null) {
+                bullet.setPosition(this.to.x, this.to.y);
+                continue;
+            }
+            bullet.setPosition(this.hitPoint.x, this.hitPoint.y);
+            bullet.setHit();
+            int hit = this.hitBullets.size();
+            if (hit == this.hitCategories.length) {
+                this.hitCategories = Arrays.copyOf(this.hitCategories, hit * 2);
+            }
+            this.hitCategories[hit] = this.hitCategory;
+            this.hitBullets.add(bullet);
+            this.hitShips.add(this.hitObject instanceof Player ? (Player) this.hitObject : null);
+        }
+        return this.hitBullets.size();
+    }
+
+    @Override
+    public float reportFixture(Fixture fixture, Vec2 point, Vec2 normal, float fraction) {
+        int category = fixture.getFilterData().categoryBits;
+        if (fixture.isSensor() || (category != Constants.CATEGORY_SHIP
+                && category != Constants.CATEGORY_ISLAND && category != Constants.CATEGORY_WALL)) {
+            return -1; // pass through
+        }
+        this.hitObject = fixture.getUserData();
+        this.hitCategory = category;
+        this.hitPoint.set(point);
+        return fraction; // clip the ray, so the closest hit is reported last
+    }
+
+    public Bullet getHitBullet(int i) {
+        return this.hitBullets.get(i);
+    }
+
+    /**
+     * @return ship which was hit, null if the bullet hit an island or a wall
+     */
+    public Player getHitShip(int i) {
+        return this.hitShips.get(i);
+    }
+
+    /**
+     * @return category bits of the fixture which was hit
+     */
+    public int getHitCategory(int i) {
+        return this.hitCategories[i];
+    }
+
+    public Bullet get(int i) {
+        return this.bullets.getAt(i);
+    }
+
+    public int size() {
+        return this.bullets.size();
+    }
+}
@@ -1,31 +1,102 @@
 package org.sangraama.gameLogic;
 
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import org.sangraama.assets.AbsPlayer;
+import org.sangraama.jsonprotocols.SendProtocol;
+import org.sangraama.jsonprotocols.UpdateFrame;
 
+/**
+ * Sender worker of a shard of connections. A connection is scheduled on the worker when a new
+ * update is posted into its empty mailbox; while it is waiting, newer updates replace the pending
+ * one. So a slow client only blocks its own shard and always gets the latest state.
+ */
 public class UpdateEngine extends Thread {
     private volatile boolean isRun = true;
+    /*
+     * Players who have a pending update in their mailbox or queued messages. Each player is queued
+     * at most once for its mailbox, and once for each queued message
+     */
     private BlockingQueue<AbsPlayer> sendPlayerQueue;
 
-    public UpdateEngine(BlockingQueue<AbsPlayer> sendPlayerQueue) {
-        this.sendPlayerQueue = sendPlayerQueue;
+    public UpdateEngine(String name) {
+        super(name);
+        this.sendPlayerQueue = new LinkedBlockingQueue<>();
+    }
+
+    /**
+     * Post the latest update of a player. Replaces the pending update if the previous one is not
+     * sent yet.
+     *
+     * @param player
+     *            player or dummy player which belongs to this shard
+     * @param updateMsg
+     *            delta updates encoded for the protocol of the connection
+     */
+    public void post(AbsPlayer player, UpdateFrame updateMsg) {
+        if (player.postUpdate(updateMsg)) {
+            this.sendPlayerQueue.add(player);
+        }
+    }
+
+    /**
+     * Queue a message which isn't an update for a player. Messages are sent in order, before the
+     * pending update.
+     *
+     * @param player
+     *            player or dummy player which belongs to this shard
+     * @param message
+     *            message to be sent (Ex: score change for another server)
+     */
+    public void postMessage(AbsPlayer player, SendProtocol message) {
+        player.queueMessage(message);
+        this.sendPlayerQueue.add(player);
+    }
+
+    /**
+     * Queue the last message for a player, and close its connection after sending it
+     *
+     * @param player
+     *            player or dummy player which belongs to this shard
+     * @param message
+     *            last message of the connection
+     */
+    public void postClose(AbsPlayer player, SendProtocol message) {
+        player.queueMessage(message);
+        player.queueClose();
+        this.sendPlayerQueue.add(player);
     }
 
     public void run() {
         while (this.isRun) {
             try {
                 AbsPlayer abs = this.sendPlayerQueue.take();
-                abs.sendUpdate(abs.getDeltaList());
-                abs.setDeltaList(null);
+                abs.sendMessages();
+                UpdateFrame updateMsg = abs.takeUpdate();
+                if (updateMsg != null) {
+                    abs.sendUpdate(updateMsg);
+                }
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                if (this.isRun) { // interrupted by setStop when the game instance stops
+                    e.printStackTrace();
+                }
             }
         }
     }
 
+    /**
+     * Get number of players who are waiting to be sent by this worker
+     *
+     * @return number of pending players
+     */
+    public int getPendingCount() {
+        return this.sendPlayerQueue.size();
+    }
+
     public void setStop() {
         this.isRun = false;
+        this.interrupt();
     }
 
 }
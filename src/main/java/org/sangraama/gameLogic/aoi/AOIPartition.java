@@ -0,0 +1,129 @@
+package org.sangraama.gameLogic.aoi;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sangraama.assets.AbsPlayer;
+
+/**
+ * Subscribers whose AOI center lies on the same sub-tile. AOI of a partition is computed as one
+ * unit of work (split further if the sub-tile is crowded), so subscribers which read the same
+ * grid cells are processed together. Partitions are recycled from tick to tick.
+ */
+public class AOIPartition {
+
+    private final int col, row;
+    private AbsPlayer[] subscribers;
+    private int[] subscriberIndex; // index of the subscriber in the snapshot
+    private int count = 0;
+
+    /* Time spent on the partition by all workers on the current tick */
+    private AtomicLong duration;
+    private volatile long lastDuration = 0;
+    private volatile int lastCount = 0;
+
+    /**
+     * Create a partition for a sub-tile
+     *
+     * @param col
+     *            column of the sub-tile on the tile of this server
+     * @param row
+     *            row of the sub-tile on the tile of this server
+     */
+    public AOIPartition(int col, int row) {
+        this.col = col;
+        this.row = row;
+        this.subscribers = new AbsPlayer[16];
+        this.subscriberIndex = new int[16];
+        this.duration = new AtomicLong();
+    }
+
+    /**
+     * Remove subscribers of the previous tick
+     */
+    public void clear() {
+        for (int i = 0; i < this.count; i++) {
+            this.subscribers[i] = null;
+        }
+        this.count = 0;
+        this.duration.set(0);
+    }
+
+    /**
+     * Add a subscriber to the partition
+     *
+     * @param p
+     *            player or dummy player
+     * @param index
+     *            index of the subscriber in the snapshot
+     */
+    public void add(AbsPlayer p, int index) {
+        if (this.count == this.subscribers.length) {
+            AbsPlayer[] s = new AbsPlayer[this.count * 2];
+            System.arraycopy(this.subscribers, 0, s, 0, this.count);
+            this.subscribers = s;
+            int[] idx = new int[this.count * 2];
+            System.arraycopy(this.subscriberIndex, 0, idx, 0, this.count);
+            this.subscriberIndex = idx;
+        }
+        this.subscribers[this.count] = p;
+        this.subscriberIndex[this.count] = index;
+        this.count++;
+    }
+
+    /**
+     * Add time spent by a worker on part of this partition
+     *
+     * @param nanos
+     *            duration in nanoseconds
+     */
+    public void addDuration(long nanos) {
+        this.duration.addAndGet(nanos);
+    }
+
+    /**
+     * Publish timing of the current tick. Called after all workers finished the partition.
+     */
+    public void complete() {
+        this.lastDuration = this.duration.get();
+        this.lastCount = this.count;
+    }
+
+    public AbsPlayer getSubscriber(int i) {
+        return this.subscribers[i];
+    }
+
+    public int getSubscriberIndex(int i) {
+        return this.subscriberIndex[i];
+    }
+
+    public int size() {
+        return this.count;
+    }
+
+    public int getCol() {
+        return col;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Get the CPU time spent on this partition on the last completed tick. Sum of all workers, so
+     * it can be larger than the wall time of the AOI stage.
+     *
+     * @return duration in nanoseconds
+     */
+    public long getLastDuration() {
+        return lastDuration;
+    }
+
+    /**
+     * Get number of subscribers of this partition on the last completed tick
+     *
+     * @return number of subscribers
+     */
+    public int getLastCount() {
+        return lastCount;
+    }
+}
@@ -0,0 +1,245 @@
+package org.sangraama.gameLogic.aoi;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jbox2d.collision.shapes.PolygonShape;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.BodyDef;
+import org.jbox2d.dynamics.BodyType;
+import org.jbox2d.dynamics.Fixture;
+import org.jbox2d.dynamics.FixtureDef;
+import org.jbox2d.dynamics.World;
+import org.jbox2d.dynamics.contacts.Contact;
+import org.sangraama.assets.AbsPlayer;
+import org.sangraama.assets.Bullet;
+import org.sangraama.assets.DummyPlayer;
+import org.sangraama.assets.Player;
+import org.sangraama.common.CollisionMatrix;
+import org.sangraama.common.Constants;
+import org.sangraama.gameLogic.snapshot.InterestLists;
+import org.sangraama.gameLogic.snapshot.WorldSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Incremental AOI using Box2D sensors (region query in 4.14 box2D manual). Each subscriber gets a
+ * kinematic body with a sensor fixture sized to its AOI rectangle. Visible sets are maintained
+ * from beginContact/endContact, so per tick AOI work is proportional to the entities which cross
+ * AOI boundaries instead of all entities of the tile. Enter and leave events are recorded for the
+ * clients.
+ * 
+ * Every method is called by the game engine thread.
+ */
+public class SensorAOIEngine {
+    private static final Logger log = LoggerFactory.getLogger(SensorAOIEngine.class);
+
+    private World world;
+    private Map<AbsPlayer, AOISensor> sensors;
+    private Vec2 center;
+
+    public SensorAOIEngine(World world) {
+        this.world = world;
+        this.sensors = new IdentityHashMap<>();
+        this.center = new Vec2();
+    }
+
+    /**
+     * Create a sensor for a subscriber (player or dummy player)
+     * 
+     * @param subscriber
+     *            player who subscribes for updates
+     */
+    public void addSubscriber(AbsPlayer subscriber) {
+        if (this.sensors.containsKey(subscriber)) {
+            return;
+        }
+        BodyDef bd = new BodyDef();
+        bd.type = BodyType.KINEMATIC;
+        bd.position.set(centerX(subscriber), centerY(subscriber));
+        AOISensor sensor = new AOISensor(subscriber, this.world.createBody(bd));
+        this.sensors.put(subscriber, sensor);
+        sensor.resize();
+    }
+
+    /**
+     * Remove the sensor of a subscriber
+     * 
+     * @param subscriber
+     *            player who subscribed for updates
+     */
+    public void removeSubscriber(AbsPlayer subscriber) {
+        AOISensor sensor = this.sensors.remove(subscriber);
+        if (sensor != null) {
+            this.world.destroyBody(sensor.body);
+        }
+    }
+
+    /**
+     * Move the sensors to the current AOI of subscribers. Should be called before the world step.
+     */
+    public void updateSensors() {
+        for (AOISensor sensor : this.sensors.values()) {
+            AbsPlayer p = sensor.subscriber;
+            if (sensor.halfWidth != p.getAOIWidth() || sensor.halfHeight != p.getAOIHeight()) {
+                sensor.resize();
+            }
+            this.center.set(centerX(p), centerY(p));
+            sensor.body.setTransform(this.center, 0);
+        }
+    }
+
+    /**
+     * Handle begin of a contact
+     * 
+     * @param contact
+     *            contact reported by the world
+     * @return true if contact belongs to an AOI sensor, false otherwise
+     */
+    public boolean beginContact(Contact contact) {
+        Fixture a = contact.getFixtureA(), b = contact.getFixtureB();
+        if (a.getUserData() instanceof AOISensor) {
+            ((AOISensor) a.getUserData()).enter(b.getUserData());
+            return true;
+        } else if (b.getUserData() instanceof AOISensor) {
+            ((AOISensor) b.getUserData()).enter(a.getUserData());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Handle end of a contact
+     * 
+     * @param contact
+     *            contact reported by the world
+     * @return true if contact belongs to an AOI sensor, false otherwise
+     */
+    public boolean endContact(Contact contact) {
+        Fixture a = contact.getFixtureA(), b = contact.getFixtureB();
+        if (a.getUserData() instanceof AOISensor) {
+            ((AOISensor) a.getUserData()).leave(b.getUserData());
+            return true;
+        } else if (b.getUserData() instanceof AOISensor) {
+            ((AOISensor) b.getUserData()).leave(a.getUserData());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Write visible entities and AOI events of each subscriber into the snapshot. Entities should
+     * be already written into the snapshot.
+     * 
+     * @param snapshot
+     *            snapshot of the current tick
+     */
+    public void writeInterest(WorldSnapshot snapshot) {
+        InterestLists interest = snapshot.getInterest();
+        interest.begin();
+        for (Player player : snapshot.getPlayers()) {
+            this.writeInterest(interest, player);
+        }
+        for (DummyPlayer dummy : snapshot.getDummies()) {
+            this.writeInterest(interest, dummy);
+        }
+    }
+
+    private void writeInterest(InterestLists interest, AbsPlayer subscriber) {
+        AOISensor sensor = this.sensors.get(subscriber);
+        if (sensor != null) {
+            for (Object entity : sensor.visible) {
+                if (entity instanceof Player) {
+                    Player p = (Player) entity;
+                    interest.addEntry(p.getSnapshotIndex());
+                    if (p.getDefeatSnapshotIndex() >= 0) {
+                        interest.addEntry(p.getDefeatSnapshotIndex());
+                    }
+                } else {
+                    interest.addEntry(((Bullet) entity).getSnapshotIndex());
+                }
+            }
+            for (int i = 0; i < sensor.events.size(); i++) {
+                Object entity = sensor.events.get(i);
+                byte type = sensor.eventTypes.get(i);
+                if (entity instanceof Player) {
+                    Player p = (Player) entity;
+                    interest.addEvent(type, WorldSnapshot.KIND_PLAYER, p.getUserID(),
+                            p.getUserID());
+                } else {
+                    Bullet b = (Bullet) entity;
+                    interest.addEvent(type, WorldSnapshot.KIND_BULLET, b.getId(), b.getPlayerId());
+                }
+            }
+            sensor.events.clear();
+            sensor.eventTypes.clear();
+        }
+        interest.endSubscriber();
+    }
+
+    private static float centerX(AbsPlayer p) {
+        return (p.getXVPLeft() + p.getXVPRight()) / 2;
+    }
+
+    private static float centerY(AbsPlayer p) {
+        return (p.getYVPUp() + p.getYVPDown()) / 2;
+    }
+
+    /**
+     * Sensor of a subscriber and the entities which are inside it
+     */
+    private static class AOISensor {
+        private final AbsPlayer subscriber;
+        private final Body body;
+        private Fixture fixture;
+        private float halfWidth = -1, halfHeight = -1;
+        private final Set<Object> visible = new LinkedHashSet<>();
+        private final List<Object> events = new ArrayList<>();
+        private final List<Byte> eventTypes = new ArrayList<>();
+
+        AOISensor(AbsPlayer subscriber, Body body) {
+            this.subscriber = subscriber;
+            this.body = body;
+        }
+
+        /**
+         * Recreate the sensor fixture with the current AOI size of the subscriber
+         */
+        void resize() {
+            if (this.fixture != null) {
+                this.body.destroyFixture(this.fixture);
+            }
+            this.halfWidth = subscriber.getAOIWidth();
+            this.halfHeight = subscriber.getAOIHeight();
+            PolygonShape ps = new PolygonShape();
+            ps.setAsBox(Math.max(this.halfWidth, 0.1f), Math.max(this.halfHeight, 0.1f));
+            FixtureDef fd = new FixtureDef();
+            fd.shape = ps;
+            fd.isSensor = true;
+            fd.userData = this;
+            CollisionMatrix.apply(fd, Constants.CATEGORY_SENSOR);
+            this.fixture = this.body.createFixture(fd);
+            log.debug("AOI sensor of " + subscriber.getUserID() + " w:" + halfWidth + " h:"
+                    + halfHeight);
+        }
+
+        void enter(Object entity) {
+            if ((entity instanceof Player || entity instanceof Bullet) && this.visible.add(entity)) {
+                this.events.add(entity);
+                this.eventTypes.add(InterestLists.EVENT_ENTER);
+            }
+        }
+
+        void leave(Object entity) {
+            if (this.visible.remove(entity)) {
+                this.events.add(entity);
+                this.eventTypes.add(InterestLists.EVENT_LEAVE);
+            }
+        }
+    }
+}
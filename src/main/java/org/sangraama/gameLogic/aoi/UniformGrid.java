@@ -0,0 +1,188 @@
+package org.sangraama.gameLogic.aoi;
+
+import org.sangraama.gameLogic.snapshot.WorldSnapshot;
+
+/**
+ * Uniform grid spatial index over the entities of a world snapshot. Entities are bucketed into
+ * cells once per tick (counting sort into recycled arrays), then an AOI query only visits the
+ * cells which overlap the AOI rectangle instead of every entity of the tile.
+ * 
+ * Entities outside the grid area are clamped into the border cells, so queries still find them.
+ */
+public class UniformGrid {
+
+    private final float originX, originY;
+    private final float cellSize;
+    private final int cols, rows;
+
+    private int[] cellStart; // entries of cell c are cellEntries[cellStart[c] .. cellStart[c+1])
+    private int[] cellEntries; // entity indices of the snapshot, ordered by cell
+    private int[] entityCell;
+    private int size = 0;
+
+    /**
+     * Create a grid over the given area
+     * 
+     * @param originX
+     *            x coordinate of the origin of the area
+     * @param originY
+     *            y coordinate of the origin of the area
+     * @param width
+     *            width of the area
+     * @param height
+     *            height of the area
+     * @param cellSize
+     *            width and height of a cell
+     */
+    public UniformGrid(float originX, float originY, float width, float height, float cellSize) {
+        this.originX = originX;
+        this.originY = originY;
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cellStart = new int[cols * rows + 1];
+        this.cellEntries = new int[64];
+        this.entityCell = new int[64];
+    }
+
+    /**
+     * Calculate the cell size for a sub-tile. Sub-tile is divided into equal cells which are not
+     * larger than half of the typical AOI, so cell borders line up with sub-tile borders and an
+     * AOI query visits about 9 cells.
+     * 
+     * @param subTileSize
+     *            width (or height) of a sub-tile
+     * @param typicalAOISize
+     *            typical width (or height) of an AOI
+     * @return size of a cell
+     */
+    public static float calCellSize(float subTileSize, float typicalAOISize) {
+        if (subTileSize <= 0) {
+            return typicalAOISize / 2;
+        }
+        int cellsPerSubTile = (int) Math.ceil(subTileSize / (typicalAOISize / 2));
+        return subTileSize / Math.max(1, cellsPerSubTile);
+    }
+
+    /**
+     * Bucket the entities of the snapshot into the cells
+     * 
+     * @param snapshot
+     *            state of the game world
+     */
+    public void build(WorldSnapshot snapshot) {
+        int n = snapshot.size();
+        if (this.cellEntries.length < n) {
+            this.cellEntries = new int[Math.max(n, this.cellEntries.length * 2)];
+            this.entityCell = new int[this.cellEntries.length];
+        }
+        int cells = cols * rows;
+        for (int c = 0; c <= cells; c++) {
+            this.cellStart[c] = 0;
+        }
+        // count entities of each cell
+        for (int i = 0; i < n; i++) {
+            int cell = this.row(snapshot.getY(i)) * cols + this.col(snapshot.getX(i));
+            this.entityCell[i] = cell;
+            this.cellStart[cell + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            this.cellStart[c + 1] += this.cellStart[c];
+        }
+        // place entities; cellStart[c] is used as insert position and restored afterwards
+        for (int i = 0; i < n; i++) {
+            this.cellEntries[this.cellStart[this.entityCell[i]]++] = i;
+        }
+        for (int c = cells; c > 0; c--) {
+            this.cellStart[c] = this.cellStart[c - 1];
+        }
+        this.cellStart[0] = 0;
+        this.size = n;
+    }
+
+    /**
+     * Find the entities inside the given rectangle. Grid should be built with the same snapshot.
+     * 
+     * @param snapshot
+     *            state of the game world
+     * @param xLeft
+     *            left limit of the rectangle
+     * @param xRight
+     *            right limit of the rectangle
+     * @param yUp
+     *            upper limit of the rectangle
+     * @param yDown
+     *            lower limit of the rectangle
+     * @param result
+     *            array to write entity indices into. Length should be at least snapshot.size()
+     * @return number of entities written into result
+     */
+    public int query(WorldSnapshot snapshot, float xLeft, float xRight, float yUp, float yDown,
+            int[] result) {
+        if (xRight < xLeft || yDown < yUp) {
+            return 0;
+        }
+        int found = 0;
+        int colFrom = this.col(xLeft), colTo = this.col(xRight);
+        int rowFrom = this.row(yUp), rowTo = this.row(yDown);
+        for (int r = rowFrom; r <= rowTo; r++) {
+            for (int c = colFrom; c <= colTo; c++) {
+                int cell = r * cols + c;
+                for (int k = this.cellStart[cell]; k < this.cellStart[cell + 1]; k++) {
+                    int i = this.cellEntries[k];
+                    float x = snapshot.getX(i), y = snapshot.getY(i);
+                    if (xLeft <= x && x <= xRight && yUp <= y && y <= yDown) {
+                        result[found++] = i;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Find the entities inside the given rectangle by checking every entity of the snapshot.
+     * Used when spatial index is disabled and as the reference for the grid.
+     * 
+     * @return number of entities written into result
+     * @see #query(WorldSnapshot, float, float, float, float, int[])
+     */
+    public static int scan(WorldSnapshot snapshot, float xLeft, float xRight, float yUp,
+            float yDown, int[] result) {
+        int found = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            float x = snapshot.getX(i), y = snapshot.getY(i);
+            if (xLeft <= x && x <= xRight && yUp <= y && y <= yDown) {
+                result[found++] = i;
+            }
+        }
+        return found;
+    }
+
+    private int col(float x) {
+        int c = (int) ((x - originX) / cellSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    private int row(float y) {
+        int r = (int) ((y - originY) / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public int getCellCount() {
+        return cols * rows;
+    }
+
+    /**
+     * Get number of entities bucketed by the last build
+     * 
+     * @return number of entities
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,312 @@
+package org.sangraama.gameLogic.delta;
+
+import java.util.Arrays;
+
+/**
+ * Ship states which were sent to a client on recent ticks, used as baselines of delta compression.
+ * When the client acknowledges a tick, frames after that only carry the fields which changed
+ * since the state of that tick. Client rebuilds the state from its own copy of the baseline tick,
+ * so a lost frame doesn't corrupt the state.
+ *
+ * While frames are delivered in order, a frame can also be based on the previous tick, so that
+ * only the fields which are dirty on this tick are sent. That's only done when the frame of the
+ * previous tick was written to the connection; a frame which is still waiting in the mailbox, is
+ * being written, was replaced or failed to send makes the next frame fall back to an acknowledged
+ * tick.
+ *
+ * History is written by the AOI stage (one worker per client per tick); acknowledgements come from
+ * the connection thread, and deliveries from the sender worker of the connection.
+ */
+public class ClientBaseline {
+    /* Number of recent frames kept. Older acknowledgements fall back to a keyframe */
+    public static final int HISTORY = 32;
+
+    private final SentFrame[] frames;
+    private volatile long ackedTick = -1;
+    private volatile long deliveredTick = -1; // tick of the last frame written to the client
+
+    public ClientBaseline() {
+        this.frames = new SentFrame[HISTORY];
+        for (int i = 0; i < HISTORY; i++) {
+            this.frames[i] = new SentFrame();
+        }
+    }
+
+    /**
+     * Client received the frame of the tick. Acknowledgements of older ticks are ignored.
+     *
+     * @param tick
+     *            tick number of the frame
+     */
+    public void ack(long tick) {
+        if (tick > this.ackedTick) {
+            this.ackedTick = tick;
+        }
+    }
+
+    /**
+     * Check whether client uses delta compression, i.e. it has acknowledged a frame
+     *
+     * @return true if client sends acknowledgements
+     */
+    public boolean isEnabled() {
+        return this.ackedTick >= 0;
+    }
+
+    /**
+     * Get the frame which should be used as the baseline of the given tick
+     *
+     * @param tick
+     *            current tick
+     * @return state sent on the last acknowledged tick, null if it isn't available anymore
+     */
+    public SentFrame getBaseline(long tick) {
+        long acked = this.ackedTick;
+        if (acked < 0 || tick - acked >= HISTORY || acked >= tick) {
+            return null;
+        }
+        SentFrame frame = this.frames[(int) (acked % HISTORY)];
+        return frame.getTick() == acked ? frame : null;
+    }
+
+    /**
+     * Get the frame of the previous tick, if the client surely has it. Client applies frames in
+     * order, so a frame based on it only needs the changes of this tick.
+     *
+     * @param tick
+     *            current tick
+     * @return state sent on previous tick, null if it was not written to the connection (yet)
+     */
+    public SentFrame getPrevious(long tick) {
+        if (this.deliveredTick != tick - 1) {
+            return null;
+        }
+        SentFrame frame = this.frames[(int) ((tick - 1) % HISTORY)];
+        return frame.getTick() == tick - 1 ? frame : null;
+    }
+
+    /**
+     * The frame of a tick was written to the connection. Called by the sender worker after the
+     * write succeeded.
+     *
+     * @param tick
+     *            tick number of the frame
+     */
+    public void delivered(long tick) {
+        this.deliveredTick = tick;
+    }
+
+    /**
+     * Start recording the state which is sent on a tick. Replaces the oldest frame.
+     *
+     * @param tick
+     *            current tick
+     * @return empty frame of the tick
+     */
+    public SentFrame beginFrame(long tick) {
+        SentFrame frame = this.frames[(int) (tick % HISTORY)];
+        frame.reset(tick);
+        return frame;
+    }
+
+    public long getAckedTick() {
+        return ackedTick;
+    }
+
+    /**
+     * State of the ships sent on a tick, with a hash index on user ID. Also the bullets which the
+     * client simulates from their spawn message, indexed on owner and bullet ID.
+     */
+    public static final class SentFrame {
+        private long tick = -1;
+        private int count = 0;
+        private long[] id = new long[16];
+        private float[] x = new float[16];
+        private float[] y = new float[16];
+        private float[] angle = new float[16];
+        private float[] health = new float[16];
+        private float[] score = new float[16];
+        private int[] type = new int[16];
+        /* open addressing table of entry index + 1, 0 is an empty slot */
+        private int[] slots = new int[32];
+
+        private int bulletCount = 0;
+        private long[] bulletOwner = new long[16];
+        private long[] bulletId = new long[16];
+        private int[] bulletSlots = new int[32];
+
+        void reset(long tick) {
+            this.tick = tick;
+            this.count = 0;
+            Arrays.fill(this.slots, 0);
+            this.bulletCount = 0;
+            Arrays.fill(this.bulletSlots, 0);
+        }
+
+        /**
+         * Record the state of a ship
+         */
+        public void add(long userID, float x, float y, float angle, float health, float score,
+                int type) {
+            if (this.count == this.id.length) {
+                this.grow();
+            }
+            int i = this.count++;
+            this.id[i] = userID;
+            this.x[i] = x;
+            this.y[i] = y;
+            this.angle[i] = angle;
+            this.health[i] = health;
+            this.score[i] = score;
+            this.type[i] = type;
+            this.insert(i);
+        }
+
+        /**
+         * Find the state of a ship
+         *
+         * @param userID
+         *            user ID of the ship
+         * @return index of the ship in the frame, -1 if it wasn't sent on this tick
+         */
+        public int find(long userID) {
+            int mask = this.slots.length - 1;
+            for (int s = hash(userID) & mask;; s = (s + 1) & mask) {
+                int e = this.slots[s];
+                if (e == 0) {
+                    return -1;
+                }
+                if (this.id[e - 1] == userID) {
+                    return e - 1;
+                }
+            }
+        }
+
+        /**
+         * Record a bullet which the client knows about
+         */
+        public void addBullet(long ownerID, long bulletID) {
+            if (this.bulletCount == this.bulletId.length) {
+                int capacity = this.bulletId.length * 2;
+                this.bulletOwner = Arrays.copyOf(this.bulletOwner, capacity);
+                this.bulletId = Arrays.copyOf(this.bulletId, capacity);
+                this.bulletSlots = new int[capacity * 2];
+                for (int i = 0; i < this.bulletCount; i++) {
+                    this.insertBullet(i);
+                }
+            }
+            int i = this.bulletCount++;
+            this.bulletOwner[i] = ownerID;
+            this.bulletId[i] = bulletID;
+            this.insertBullet(i);
+        }
+
+        /**
+         * Check whether the client knew about a bullet on this tick
+         *
+         * @param ownerID
+         *            user ID of the player who fired the bullet
+         * @param bulletID
+         *            ID of the bullet
+         * @return true if bullet was sent to the client
+         */
+        public boolean hasBullet(long ownerID, long bulletID) {
+            int mask = this.bulletSlots.length - 1;
+            for (int s = hash(ownerID * 31 + bulletID) & mask;; s = (s + 1) & mask) {
+                int e = this.bulletSlots[s];
+                if (e == 0) {
+                    return false;
+                }
+                if (this.bulletId[e - 1] == bulletID && this.bulletOwner[e - 1] == ownerID) {
+                    return true;
+                }
+            }
+        }
+
+        private void insertBullet(int i) {
+            int mask = this.bulletSlots.length - 1;
+            int s = hash(this.bulletOwner[i] * 31 + this.bulletId[i]) & mask;
+            while (this.bulletSlots[s] != 0) {
+                s = (s + 1) & mask;
+            }
+            this.bulletSlots[s] = i + 1;
+        }
+
+        private void insert(int i) {
+            int mask = this.slots.length - 1;
+            int s = hash(this.id[i]) & mask;
+            while (this.slots[s] != 0) {
+                s = (s + 1) & mask;
+            }
+            this.slots[s] = i + 1;
+        }
+
+        private void grow() {
+            int capacity = this.id.length * 2;
+            this.id = Arrays.copyOf(this.id, capacity);
+            this.x = Arrays.copyOf(this.x, capacity);
+            this.y = Arrays.copyOf(this.y, capacity);
+            this.angle = Arrays.copyOf(this.angle, capacity);
+            this.health = Arrays.copyOf(this.health, capacity);
+            this.score = Arrays.copyOf(this.score, capacity);
+            this.type = Arrays.copyOf(this.type, capacity);
+            this.slots = new int[capacity * 2];
+            for (int i = 0; i < this.count; i++) {
+                this.insert(i);
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        public long getTick() {
+            return tick;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public long getId(int i) {
+            return id[i];
+        }
+
+        public float getX(int i) {
+            return x[i];
+        }
+
+        public float getY(int i) {
+            return y[i];
+        }
+
+        public float getAngle(int i) {
+            return angle[i];
+        }
+
+        public float getHealth(int i) {
+            return health[i];
+        }
+
+        public float getScore(int i) {
+            return score[i];
+        }
+
+        public int getType(int i) {
+            return type[i];
+        }
+
+        public int getBulletCount() {
+            return bulletCount;
+        }
+
+        public long getBulletOwner(int i) {
+            return bulletOwner[i];
+        }
+
+        public long getBulletId(int i) {
+            return bulletId[i];
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.sangraama.gameLogic.delta;
+
+import java.util.List;
+
+import org.sangraama.gameLogic.delta.ClientBaseline.SentFrame;
+import org.sangraama.gameLogic.snapshot.WorldSnapshot;
+import org.sangraama.jsonprotocols.FragmentArena;
+import org.sangraama.jsonprotocols.SendProtocol;
+import org.sangraama.jsonprotocols.send.AOIEvent;
+import org.sangraama.jsonprotocols.send.BulletDespawn;
+import org.sangraama.jsonprotocols.send.FrameHeader;
+import org.sangraama.jsonprotocols.send.PlayerUpdate;
+
+/**
+ * Delta compression of the frame of a subscriber against a ClientBaseline. Used by the AOI stage
+ * after AOI filtering; stateless apart from the fragments of the tick, so AOI workers share one.
+ */
+public class DeltaCompressor {
+    private final FragmentArena fragments;
+    private final int keyframeInterval;
+    private final boolean spawnOnceBullets;
+    private final boolean deadReckoning;
+
+    /**
+     * @param fragments
+     *            fragments of the current tick, which give the partial fragment of an entity
+     * @param keyframeInterval
+     *            number of ticks between keyframes of a client
+     * @param spawnOnceBullets
+     *            send bullets as spawn and despawn messages instead of on every tick
+     * @param deadReckoning
+     *            clients extrapolate positions from velocities
+     */
+    public DeltaCompressor(FragmentArena fragments, int keyframeInterval,
+            boolean spawnOnceBullets, boolean deadReckoning) {
+        this.fragments = fragments;
+        this.keyframeInterval = keyframeInterval;
+        this.spawnOnceBullets = spawnOnceBullets;
+        this.deadReckoning = deadReckoning;
+    }
+
+    /**
+     * Replace the states of ships which the client already has by the changed fields. If the
+     * client surely has the frame of previous tick, the frame is based on it and ships carry the
+     * fields which are dirty on this tick (partial fragments encoded once per tick); a clean ship
+     * costs nothing. Otherwise compared with the state sent on the last tick which the client
+     * acknowledged. Entities which the client doesn't have (and every entity on a keyframe) stay
+     * in result and are sent in full. Ships which were in the baseline but are not visible anymore
+     * are sent as AOI leave events. If bullets are spawned once, a bullet is sent as a spawn
+     * message unless the client already simulates it, and as a despawn message once it's gone.
+     *
+     * @param snapshot
+     *            state of the game world
+     * @param userID
+     *            user ID of the subscriber
+     * @param baseline
+     *            frames sent to the subscriber. The frame of this tick is written into it
+     * @param result
+     *            entities inside the AOI. Rewritten with the fragments which are sent
+     * @param found
+     *            number of entities inside the AOI
+     * @param events
+     *            messages of the subscriber. Frame header, leave events and partial updates are
+     *            added to this
+     * @return number of fragments written into result
+     */
+    public int compress(WorldSnapshot snapshot, long userID, ClientBaseline baseline,
+            int[] result, int found, List<SendProtocol> events) {
+        long tick = snapshot.getTickNumber();
+        boolean isKeyframe = (tick + userID) % this.keyframeInterval == 0;
+        SentFrame previous = isKeyframe ? null : baseline.getPrevious(tick);
+        SentFrame base = isKeyframe || previous != null ? previous : baseline.getBaseline(tick);
+        isKeyframe = base == null;
+        SentFrame frame = baseline.beginFrame(tick);
+        events.add(0, new FrameHeader(userID, tick, isKeyframe ? -1 : base.getTick()));
+
+        int sent = 0;
+        for (int k = 0; k < found; k++) {
+            int i = result[k];
+            if (snapshot.getKind(i) == WorldSnapshot.KIND_BULLET && this.spawnOnceBullets) {
+                long owner = snapshot.getOwnerId(i), id = snapshot.getId(i);
+                frame.addBullet(owner, id);
+                if (isKeyframe || !base.hasBullet(owner, id)
+                        || snapshot.getRefTick(i) > base.getTick()) {
+                    result[sent++] = this.fragments.getPartial(i);
+                }
+                continue;
+            }
+            if (snapshot.getKind(i) != WorldSnapshot.KIND_PLAYER) {
+                result[sent++] = i;
+                continue;
+            }
+            long id = snapshot.getId(i);
+            float x = snapshot.getX(i), y = snapshot.getY(i), angle = snapshot.getAngle(i);
+            float health = snapshot.getHealth(i), score = snapshot.getScore(i);
+            int type = snapshot.getType(i);
+            frame.add(id, x, y, angle, health, score, type);
+            int b = isKeyframe ? -1 : base.find(id);
+            if (b < 0) {
+                result[sent++] = i;
+                continue;
+            }
+            if (base == previous) {
+                int partial = this.fragments.getPartial(i);
+                if (partial >= 0) {
+                    result[sent++] = partial;
+                }
+                continue;
+            }
+            int mask = 0;
+            if (this.deadReckoning) {
+                // Client extrapolates from the base unless velocity was corrected after it
+                if (snapshot.getRefTick(i) > base.getTick()) {
+                    mask |= PlayerUpdate.X | PlayerUpdate.Y | PlayerUpdate.VELOCITY;
+                }
+            } else {
+                if (x != base.getX(b)) {
+                    mask |= PlayerUpdate.X;
+                }
+                if (y != base.getY(b)) {
+                    mask |= PlayerUpdate.Y;
+                }
+            }
+            if (angle != base.getAngle(b)) {
+                mask |= PlayerUpdate.ANGLE;
+            }
+            if (health != base.getHealth(b)) {
+                mask |= PlayerUpdate.HEALTH;
+            }
+            if (score != base.getScore(b)) {
+                mask |= PlayerUpdate.SCORE;
+            }
+            if (type != base.getType(b)) {
+                mask |= PlayerUpdate.IMAGE_TYPE;
+            }
+            if (mask != 0) {
+                events.add(new PlayerUpdate(id, mask, x, y, angle, health, score, type,
+                        snapshot.getVx(i), snapshot.getVy(i)));
+            }
+        }
+        if (!isKeyframe) {
+            for (int b = 0; b < base.size(); b++) {
+                long id = base.getId(b);
+                if (frame.find(id) < 0) {
+                    events.add(new AOIEvent(false, id, id, WorldSnapshot.KIND_PLAYER));
+                }
+            }
+            for (int b = 0; b < base.getBulletCount(); b++) {
+                long owner = base.getBulletOwner(b), id = base.getBulletId(b);
+                if (!frame.hasBullet(owner, id)) {
+                    events.add(new BulletDespawn(owner, id));
+                }
+            }
+        }
+        return sent;
+    }
+}
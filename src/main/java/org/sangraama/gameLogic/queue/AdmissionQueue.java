@@ -0,0 +1,188 @@
+package org.sangraama.gameLogic.queue;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multiple producer, single consumer ring of entities which wait to be added to or removed
+ * from the game world. Connection threads write, and the game engine thread reads at most a budget
+ * of entities per tick, so a join storm is spread over several ticks instead of blowing the frame
+ * budget of one tick. Entities which are not read in a tick wait for the next ones.
+ *
+ * Each slot has a sequence number which tells whether it's free for the producer of a position or
+ * written for the consumer (as in D. Vyukov's bounded queue), so writing and reading don't lock.
+ * The ring records when each entity was written, for the wait time metrics.
+ */
+public class AdmissionQueue<T> {
+    private final String name;
+    private final int mask;
+    private final Object[] items;
+    private final long[] offeredAt; // System.nanoTime() when the entity was written
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(); // next position to claim by producers
+    private volatile long head = 0; // next position to read. Written by consumer
+    /* Entities which must not be refused (removals) and came while the ring was full */
+    private final ConcurrentLinkedQueue<T> overflow = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger overflowSize = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+    /* Wait times of the read entities since takeStats(). Written by consumer */
+    private long waited = 0;
+    private long waitNanos = 0;
+    private long maxWaitNanos = 0;
+
+    /**
+     * @param name
+     *            name of the queue in the metrics
+     * @param capacity
+     *            maximum number of waiting entities. Rounded up to a power of 2
+     */
+    public AdmissionQueue(String name, int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.name = name;
+        this.mask = size - 1;
+        this.items = new Object[size];
+        this.offeredAt = new long[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Write an entity if there is space. Called by any thread.
+     *
+     * @param item
+     *            entity to add to or remove from the game world
+     * @return false if the ring is full and the entity was refused
+     */
+    public boolean offer(T item) {
+        if (this.write(item)) {
+            return true;
+        }
+        this.rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Write an entity which must not be refused. If the ring is full, the entity waits in an
+     * unbounded overflow list which is read after the ring. Called by any thread.
+     *
+     * @param item
+     *            entity to remove from the game world
+     */
+    public void put(T item) {
+        if (!this.write(item)) {
+            this.overflowed.incrementAndGet();
+            this.overflowSize.incrementAndGet();
+            this.overflow.add(item);
+        }
+    }
+
+    /**
+     * Read the oldest entity of the ring, or of the overflow list if the ring is empty. Called by
+     * the consumer only.
+     *
+     * @return entity, or null if nothing is waiting
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long h = this.head;
+        int i = (int) (h & this.mask);
+        if (this.sequences.get(i) != h + 1) {
+            T item = this.overflow.poll();
+            if (item != null) {
+                this.overflowSize.decrementAndGet();
+            }
+            return item;
+        }
+        T item = (T) this.items[i];
+        this.items[i] = null;
+        long wait = System.nanoTime() - this.offeredAt[i];
+        this.sequences.lazySet(i, h + this.mask + 1); // free the slot for the next round
+        this.head = h + 1;
+        this.waited++;
+        this.waitNanos += wait;
+        if (wait > this.maxWaitNanos) {
+            this.maxWaitNanos = wait;
+        }
+        return item;
+    }
+
+    private boolean write(T item) {
+        long now = System.nanoTime();
+        while (true) {
+            long t = this.tail.get();
+            int i = (int) (t & this.mask);
+            long sequence = this.sequences.get(i);
+            if (sequence == t) {
+                if (this.tail.compareAndSet(t, t + 1)) {
+                    this.items[i] = item;
+                    this.offeredAt[i] = now;
+                    this.sequences.lazySet(i, t + 1); // publish the entity
+                    return true;
+                }
+            } else if (sequence < t) { // slot wasn't read since the last round, ring is full
+                return false;
+            }
+            // else another producer claimed the position, try the next one
+        }
+    }
+
+    /**
+     * Get number of waiting entities
+     */
+    public int size() {
+        long depth = this.tail.get() - this.head;
+        return (int) Math.max(0, Math.min(depth, this.mask + 1)) + this.overflowSize.get();
+    }
+
+    /**
+     * Get number of entities refused because the ring was full
+     */
+    public long getRejected() {
+        return this.rejected.get();
+    }
+
+    /**
+     * Get number of entities which went to the overflow list because the ring was full
+     */
+    public long getOverflowed() {
+        return this.overflowed.get();
+    }
+
+    /**
+     * Get mean wait time of the entities read since the last takeStats()
+     *
+     * @return wait time in milliseconds
+     */
+    public double getMeanWaitMillis() {
+        return this.waited == 0 ? 0 : this.waitNanos / 1e6 / this.waited;
+    }
+
+    /**
+     * Get longest wait time of the entities read since the last takeStats()
+     *
+     * @return wait time in milliseconds
+     */
+    public double getMaxWaitMillis() {
+        return this.maxWaitNanos / 1e6;
+    }
+
+    /**
+     * Describe depth and wait times of the queue, and start new wait time statistics. Called by
+     * the consumer only.
+     */
+    public String takeStats() {
+        String stats = this.name + " depth:" + this.size() + " read:" + this.waited
+                + " wait ms mean:" + String.format("%.1f", this.getMeanWaitMillis()) + " max:"
+                + String.format("%.1f", this.getMaxWaitMillis()) + " rejected:"
+                + this.getRejected() + " overflowed:" + this.getOverflowed();
+        this.waited = 0;
+        this.waitNanos = 0;
+        this.maxWaitNanos = 0;
+        return stats;
+    }
+}
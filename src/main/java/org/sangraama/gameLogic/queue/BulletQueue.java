@@ -1,34 +1,41 @@
 package org.sangraama.gameLogic.queue;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
-
 import org.sangraama.assets.Bullet;
+import org.sangraama.assets.BulletPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 
-public enum BulletQueue {
-    INSTANCE;
+public class BulletQueue {
     private String TAG = "BulletQueue : ";
     private Marker subTile = MarkerFactory.getMarker("Bullet Queue: ");
     private Logger log = LoggerFactory.getLogger(BulletQueue.class);
     
-    ConcurrentLinkedQueue<Bullet> newBulletQueue;
-    ConcurrentLinkedQueue<Bullet> removeBulletQueue;
+    AdmissionQueue<Bullet> newBulletQueue;
+    AdmissionQueue<Bullet> removeBulletQueue;
     
-    private BulletQueue() {
+    public BulletQueue() {
         log.info(TAG, " Init Bullet queue ... ");
     }
     
-    public void init(ConcurrentLinkedQueue<Bullet> newQueue,ConcurrentLinkedQueue<Bullet> removeQueue) {
+    public void init(AdmissionQueue<Bullet> newQueue, AdmissionQueue<Bullet> removeQueue) {
         this.newBulletQueue = newQueue;
         this.removeBulletQueue = removeQueue;
     }
 
+    /**
+     * Queue a new bullet to be added to the game world. If too many bullets are waiting, the shot
+     * is dropped.
+     *
+     * @param bullet
+     *            new bullet
+     */
     public void addToBulletQueue(Bullet bullet) {
         try{
-        this.newBulletQueue.add(bullet);
+            if (!this.newBulletQueue.offer(bullet)) {
+                BulletPool.INSTANCE.release(bullet);
+            }
         }catch(Exception e){
             log.error(TAG, e);
             e.printStackTrace();
@@ -37,7 +44,7 @@ public enum BulletQueue {
 
     public void addToRemoveBulletQueue(Bullet bullet) {
         try{
-            this.removeBulletQueue.add(bullet);
+            this.removeBulletQueue.put(bullet);
             }catch(Exception e){
                 log.error(TAG, e);
                 e.printStackTrace();
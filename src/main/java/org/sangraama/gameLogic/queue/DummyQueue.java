@@ -1,34 +1,43 @@
 package org.sangraama.gameLogic.queue;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
-
 import org.sangraama.assets.DummyPlayer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 
-public enum DummyQueue {
-    INSTANCE;
+public class DummyQueue {
     private String TAG = "DummyQueue : ";
     private Marker subTile = MarkerFactory.getMarker("Dummy Queue: ");
     private Logger log = LoggerFactory.getLogger(DummyQueue.class);
     
-    ConcurrentLinkedQueue<DummyPlayer> newDummyQueue;
-    ConcurrentLinkedQueue<DummyPlayer> removeDummyQueue;
+    AdmissionQueue<DummyPlayer> newDummyQueue;
+    AdmissionQueue<DummyPlayer> removeDummyQueue;
     
-    private DummyQueue() {
+    public DummyQueue() {
         log.info(TAG, " Init Dummy queue ... ");
     }
     
-    public void init(ConcurrentLinkedQueue<DummyPlayer> newQueue,ConcurrentLinkedQueue<DummyPlayer> removeQueue) {
+    public void init(AdmissionQueue<DummyPlayer> newQueue,
+            AdmissionQueue<DummyPlayer> removeQueue) {
         this.newDummyQueue = newQueue;
         this.removeDummyQueue = removeQueue;
     }
 
+    /**
+     * Queue a new dummy player to be added to the game world. If too many dummy players are
+     * waiting, it's refused and the connection is closed.
+     *
+     * @param dummyPlayer
+     *            new dummy player
+     */
     public void addToDummyQueue(DummyPlayer dummyPlayer) {
         try{
-        this.newDummyQueue.add(dummyPlayer);
+            if (!this.newDummyQueue.offer(dummyPlayer)) {
+                log.warn(TAG + "Too many dummy players are waiting to join. Refused "
+                        + dummyPlayer.getUserID());
+                dummyPlayer.disconnect();
+            }
         }catch(Exception e){
             log.error(TAG, e);
             e.printStackTrace();
@@ -37,7 +46,7 @@ public enum DummyQueue {
 
     public void addToRemoveDummyQueue(DummyPlayer dummyPlayer) {
         try{
-            this.removeDummyQueue.add(dummyPlayer);
+            this.removeDummyQueue.put(dummyPlayer);
             }catch(Exception e){
                 log.error(TAG, e);
                 e.printStackTrace();
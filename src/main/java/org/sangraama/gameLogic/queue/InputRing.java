@@ -0,0 +1,129 @@
+package org.sangraama.gameLogic.queue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single producer, single consumer ring of input commands of a player. The thread which handles
+ * the messages of the connection writes commands, and the game engine thread reads them at the
+ * start of a tick, so the player's state is only changed by the game engine thread. Commands are
+ * stored in preallocated arrays; writing and reading don't lock or allocate.
+ *
+ * When the ring is full, new commands are dropped until the game engine catches up.
+ */
+public class InputRing {
+    /* Command types, same as the client event types */
+    public static final byte MOVE = 1; // velocity, angle, angular velocity and shoot
+    public static final byte AOI = 3; // width and height of the AOI in vx and vy
+    public static final byte RESET = 4; // stop, angle 0 and don't shoot
+    public static final byte VIRTUAL_POINT = 5; // virtual point in vx and vy
+    public static final byte SCORE = 21; // score change from another server in vx
+
+    private final int mask;
+    private final byte[] types;
+    private final float[] vx;
+    private final float[] vy;
+    private final float[] angle;
+    private final float[] angularVelocity;
+    private final boolean[] shoot;
+    private final AtomicLong head = new AtomicLong(); // next command to read. Written by consumer
+    private final AtomicLong tail = new AtomicLong(); // next command to write. Written by producer
+    private long cachedHead = 0; // producer's copy of head
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity
+     *            maximum number of unread commands. Rounded up to a power of 2
+     */
+    public InputRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.mask = size - 1;
+        this.types = new byte[size];
+        this.vx = new float[size];
+        this.vy = new float[size];
+        this.angle = new float[size];
+        this.angularVelocity = new float[size];
+        this.shoot = new boolean[size];
+    }
+
+    /**
+     * Write a command. Called by the producer only.
+     *
+     * @param type
+     *            MOVE, RESET, AOI, VIRTUAL_POINT or SCORE
+     * @return false if the ring is full and the command was dropped
+     */
+    public boolean offer(byte type, float vx, float vy, float angle, float angularVelocity,
+            boolean shoot) {
+        long t = this.tail.get();
+        if (t - this.cachedHead > this.mask) {
+            this.cachedHead = this.head.get();
+            if (t - this.cachedHead > this.mask) {
+                this.dropped.incrementAndGet();
+                return false;
+            }
+        }
+        int i = (int) (t & this.mask);
+        this.types[i] = type;
+        this.vx[i] = vx;
+        this.vy[i] = vy;
+        this.angle[i] = angle;
+        this.angularVelocity[i] = angularVelocity;
+        this.shoot[i] = shoot;
+        this.tail.lazySet(t + 1); // publish the command
+        return true;
+    }
+
+    /**
+     * Get number of unread commands. Called by the consumer only.
+     */
+    public int size() {
+        return (int) (this.tail.get() - this.head.get());
+    }
+
+    /* Fields of the i-th unread command. Called by the consumer only */
+
+    public byte getType(int i) {
+        return this.types[this.index(i)];
+    }
+
+    public float getVx(int i) {
+        return this.vx[this.index(i)];
+    }
+
+    public float getVy(int i) {
+        return this.vy[this.index(i)];
+    }
+
+    public float getAngle(int i) {
+        return this.angle[this.index(i)];
+    }
+
+    public float getAngularVelocity(int i) {
+        return this.angularVelocity[this.index(i)];
+    }
+
+    public boolean isShoot(int i) {
+        return this.shoot[this.index(i)];
+    }
+
+    /**
+     * Release read commands, so the producer can reuse their space. Called by the consumer only.
+     *
+     * @param count
+     *            number of commands from the oldest unread one
+     */
+    public void consume(int count) {
+        this.head.lazySet(this.head.get() + count);
+    }
+
+    /**
+     * Get number of commands dropped because the ring was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private int index(int i) {
+        return (int) ((this.head.get() + i) & this.mask);
+    }
+}
@@ -8,29 +8,41 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 
-public enum PlayerQueue {
-    INSTANCE;
+public class PlayerQueue {
     private String TAG = "PlayerQueue : ";
     private Marker subTile = MarkerFactory.getMarker("Player Queue : ");
     private Logger log = LoggerFactory.getLogger(PlayerQueue.class);
     
-    ConcurrentLinkedQueue<Player> newPlayerQueue;
-    ConcurrentLinkedQueue<Player> removePlayerQueue;
+    AdmissionQueue<Player> newPlayerQueue;
+    AdmissionQueue<Player> removePlayerQueue;
     ConcurrentLinkedQueue<Player> defeatedPlayerQueue;
     
-    private PlayerQueue() {
+    public PlayerQueue() {
         log.info(TAG, " Init Player queue ... ");
     }
     
-    public void init(ConcurrentLinkedQueue<Player> newQueue,ConcurrentLinkedQueue<Player> removeQueue,ConcurrentLinkedQueue<Player> defeatedQueue) {
+    public void init(AdmissionQueue<Player> newQueue, AdmissionQueue<Player> removeQueue,
+            ConcurrentLinkedQueue<Player> defeatedQueue) {
         this.newPlayerQueue = newQueue;
         this.removePlayerQueue = removeQueue;
         this.defeatedPlayerQueue = defeatedQueue;
     }
 
+    /**
+     * Queue a new player to be added to the game world. If too many players are waiting (Ex: mass
+     * reconnect after a neighbour server restarted), the player is refused and the connection is
+     * closed, so the client connects again later.
+     *
+     * @param player
+     *            new player
+     */
     public void addToPlayerQueue(Player player) {
         try{
-        this.newPlayerQueue.add(player);
+            if (!this.newPlayerQueue.offer(player)) {
+                log.warn(TAG + "Too many players are waiting to join. Refused "
+                        + player.getUserID());
+                player.disconnect();
+            }
         }catch(Exception e){
             log.error(TAG, e);
             e.printStackTrace();
@@ -39,7 +51,7 @@ public enum PlayerQueue {
 
     public void addToRemovePlayerQueue(Player removePlayer) {
         try{
-            this.removePlayerQueue.add(removePlayer);
+            this.removePlayerQueue.put(removePlayer);
             }catch(Exception e){
                 log.error(TAG, e);
                 e.printStackTrace();
@@ -0,0 +1,297 @@
+package org.sangraama.gameLogic.region;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.BodyDef;
+import org.jbox2d.dynamics.BodyType;
+import org.jbox2d.dynamics.Fixture;
+import org.jbox2d.dynamics.FixtureDef;
+import org.jbox2d.dynamics.World;
+import org.sangraama.assets.Bullet;
+import org.sangraama.assets.Player;
+import org.sangraama.common.Constants;
+import org.sangraama.gameLogic.CollisionDetector;
+import org.sangraama.gameLogic.ContactRing;
+import org.sangraama.gameLogic.PairCounter;
+import org.sangraama.gameLogic.ProjectileEngine;
+import org.sangraama.gameLogic.aoi.SensorAOIEngine;
+
+/**
+ * Part of the tile of this server which has its own JBox2D world, so regions can be stepped by
+ * different threads. A region owns the bodies whose position is on its sub-tiles, and keeps a
+ * kinematic ghost of each body of a neighbour region which is within the border margin. Ghosts
+ * have the fixture of their entity, so bodies of this region collide with them as with the real
+ * ones, with the ghost treated as immovable (ghosts of bullets are sensors). Contacts and ray
+ * cast hits of a step are recorded into the contact ring of the region.
+ *
+ * Bodies are created, moved between regions and destroyed by the game engine thread while the
+ * regions are not stepping (see RegionGrid).
+ */
+public class PhysicsRegion {
+    private final int col, row;
+    /* Sub-tiles of the region, in JBox2D units */
+    private final float minX, minY, maxX, maxY;
+    private final World world;
+    private final ContactRing contacts;
+    private final CollisionDetector detector;
+    private final PairCounter pairCounter;
+    private final ProjectileEngine projectiles; // bullets which don't have bodies
+    private final SensorAOIEngine sensorAOI; // null unless sensor AOI is used
+    /* Ghosts of bodies of neighbour regions, keyed by their entity (player or bullet) */
+    private final Map<Object, Ghost> ghosts;
+    private final BodyDef ghostDef;
+    /* Definitions reused to copy bodies of other regions */
+    private final BodyDef adoptDef;
+    private final FixtureDef fixtureDef;
+    private long tickNumber;
+    private volatile long lastStepDuration = 0;
+
+    /**
+     * Create a region and its world. Static map objects should be added to the world before the
+     * first step.
+     *
+     * @param col
+     *            column of the region on the tile
+     * @param row
+     *            row of the region on the tile
+     * @param minX
+     *            left edge of the region
+     * @param minY
+     *            top edge of the region
+     * @param maxX
+     *            right edge of the region
+     * @param maxY
+     *            bottom edge of the region
+     * @param withSensorAOI
+     *            true to attach the sensors of sensor AOI to the world of the region
+     */
+    public PhysicsRegion(int col, int row, float minX, float minY, float maxX, float maxY,
+            boolean withSensorAOI) {
+        this.col = col;
+        this.row = row;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.world = new World(new Vec2(0.0f, 0.0f));
+        this.sensorAOI = withSensorAOI ? new SensorAOIEngine(this.world) : null;
+        this.contacts = new ContactRing(Constants.contactRingSize);
+        this.detector = new CollisionDetector(this.contacts, this.sensorAOI);
+        this.world.setContactListener(this.detector);
+        this.pairCounter = new PairCounter();
+        this.world.setContactFilter(this.pairCounter);
+        this.projectiles = new ProjectileEngine(this.world);
+        this.ghosts = new IdentityHashMap<>();
+        this.ghostDef = new BodyDef();
+        this.ghostDef.type = BodyType.KINEMATIC;
+        this.adoptDef = new BodyDef();
+        this.fixtureDef = new FixtureDef();
+    }
+
+    /**
+     * Check whether a fixture belongs to the ghost of a body of another region
+     */
+    public static boolean isGhost(Fixture fixture) {
+        return fixture.getBody().getUserData() instanceof Ghost;
+    }
+
+    /**
+     * Step the world, then move the ray cast bullets and record what they hit, with the same
+     * effect as a contact of a bullet body. Called by the step thread of the region.
+     *
+     * @param tickNumber
+     *            number of the current tick, written into the contact records
+     */
+    public void step(long tickNumber) {
+        long start = System.nanoTime();
+        this.tickNumber = tickNumber;
+        this.detector.setTickNumber(tickNumber);
+        this.world.step(Constants.timeStep, Constants.velocityIterations,
+                Constants.positionIterations);
+        int hits = this.projectiles.step(Constants.timeStep);
+        for (int i = 0; i < hits; i++) {
+            Bullet bullet = this.projectiles.getHitBullet(i);
+            Player ship = this.projectiles.getHitShip(i);
+            this.contacts.add(Constants.CATEGORY_BULLET, bullet.getKey(),
+                    this.projectiles.getHitCategory(i), ship != null ? ship.getUserID() : 0,
+                    tickNumber);
+        }
+        this.lastStepDuration = System.nanoTime() - start;
+    }
+
+    /**
+     * Create a body which is owned by this region
+     *
+     * @param bd
+     *            body definition of the entity
+     * @param fd
+     *            fixture definition of the entity
+     * @return new body
+     */
+    public Body createBody(BodyDef bd, FixtureDef fd) {
+        Body body = this.world.createBody(bd);
+        body.createFixture(fd);
+        body.setUserData(this);
+        return body;
+    }
+
+    /**
+     * Check whether a point is on the region or within a margin of its edges
+     */
+    public boolean isNear(float x, float y, float margin) {
+        return this.minX - margin <= x && x <= this.maxX + margin && this.minY - margin <= y
+                && y <= this.maxY + margin;
+    }
+
+    /**
+     * Take over a body of another region: create the same body in this world and destroy the old
+     * one
+     *
+     * @param body
+     *            body which moved onto this region
+     * @return body in this region
+     */
+    Body adopt(Body body) {
+        this.adoptDef.type = body.getType();
+        this.adoptDef.position.set(body.getPosition());
+        this.adoptDef.angle = body.getAngle();
+        this.adoptDef.linearVelocity.set(body.getLinearVelocity());
+        this.adoptDef.angularVelocity = body.getAngularVelocity();
+        this.adoptDef.linearDamping = body.getLinearDamping();
+        this.adoptDef.angularDamping = body.getAngularDamping();
+        this.adoptDef.bullet = body.isBullet();
+        this.adoptDef.fixedRotation = body.isFixedRotation();
+        this.adoptDef.allowSleep = body.isSleepingAllowed();
+        Body adopted = this.world.createBody(this.adoptDef);
+        this.copyFixtures(body, adopted, false);
+        adopted.setUserData(this);
+        body.getWorld().destroyBody(body);
+        return adopted;
+    }
+
+    /**
+     * Create or move the ghost of a body of a neighbour region to the state of the body
+     *
+     * @param entity
+     *            player or bullet of the body
+     * @param body
+     *            real body of the entity, in another region
+     */
+    void syncGhost(Object entity, Body body) {
+        Ghost ghost = this.ghosts.get(entity);
+        if (ghost == null) {
+            this.ghostDef.position.set(body.getPosition());
+            this.ghostDef.angle = body.getAngle();
+            ghost = new Ghost(this.world.createBody(this.ghostDef));
+            // Bullets are light, a bullet ghost shouldn't push ships as an immovable body
+            this.copyFixtures(body, ghost.body, body.isBullet());
+            ghost.body.setUserData(ghost);
+            this.ghosts.put(entity, ghost);
+        } else {
+            ghost.body.setTransform(body.getPosition(), body.getAngle());
+        }
+        ghost.body.setLinearVelocity(body.getLinearVelocity());
+        ghost.body.setAngularVelocity(body.getAngularVelocity());
+        ghost.syncedTick = this.tickNumber;
+    }
+
+    /**
+     * Destroy the ghost of an entity, if there is one
+     */
+    void removeGhost(Object entity) {
+        Ghost ghost = this.ghosts.remove(entity);
+        if (ghost != null) {
+            this.world.destroyBody(ghost.body);
+        }
+    }
+
+    /**
+     * Destroy the ghosts which were not synchronized after the last step, since their bodies left
+     * the margin or became owned by this region
+     */
+    void sweepGhosts() {
+        for (Iterator<Ghost> it = this.ghosts.values().iterator(); it.hasNext();) {
+            Ghost ghost = it.next();
+            if (ghost.syncedTick != this.tickNumber) {
+                this.world.destroyBody(ghost.body);
+                it.remove();
+            }
+        }
+    }
+
+    /* Create fixtures of a body on another body. Shapes are copied by JBox2D */
+    private void copyFixtures(Body from, Body to, boolean isSensor) {
+        for (Fixture fixture = from.getFixtureList(); fixture != null; fixture = fixture
+                .getNext()) {
+            this.fixtureDef.shape = fixture.getShape();
+            this.fixtureDef.density = fixture.getDensity();
+            this.fixtureDef.friction = fixture.getFriction();
+            this.fixtureDef.restitution = fixture.getRestitution();
+            this.fixtureDef.filter.set(fixture.getFilterData());
+            this.fixtureDef.userData = fixture.getUserData();
+            this.fixtureDef.isSensor = isSensor || fixture.isSensor();
+            to.createFixture(this.fixtureDef);
+        }
+        this.fixtureDef.shape = null;
+        this.fixtureDef.userData = null;
+    }
+
+    public int getCol() {
+        return col;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Get the contacts recorded by the last step. Read and consumed by the game engine thread.
+     */
+    public ContactRing getContacts() {
+        return contacts;
+    }
+
+    public PairCounter getPairCounter() {
+        return pairCounter;
+    }
+
+    public ProjectileEngine getProjectiles() {
+        return projectiles;
+    }
+
+    /**
+     * @return sensor AOI engine of the region, null if sensor AOI is not used
+     */
+    public SensorAOIEngine getSensorAOI() {
+        return sensorAOI;
+    }
+
+    public int getGhostCount() {
+        return this.ghosts.size();
+    }
+
+    /**
+     * Get time of the last step of the region in nanoseconds
+     */
+    public long getLastStepDuration() {
+        return lastStepDuration;
+    }
+
+    /* Kinematic copy of a body of another region */
+    private static class Ghost {
+        private final Body body;
+        private long syncedTick = -1;
+
+        private Ghost(Body body) {
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package org.sangraama.gameLogic.region;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.BodyDef;
+import org.jbox2d.dynamics.FixtureDef;
+import org.sangraama.assets.Bullet;
+import org.sangraama.assets.Player;
+import org.sangraama.assets.SangraamaMap;
+import org.sangraama.gameLogic.EntityRegistry;
+import org.sangraama.gameLogic.ProjectileEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Physics of the tile of this server, split into a grid of regions of whole sub-tiles. Each region
+ * has its own JBox2D world, and the worlds are stepped in parallel: the game engine thread steps
+ * the first region and a step thread steps each of the others. A body is owned by the region of
+ * the sub-tile it's on, as players are owned by the server of their sub-tile; bodies outside of
+ * the tile belong to the nearest border region until they are passed to another server.
+ *
+ * After each step, bodies which crossed a region border are moved to their new region, and ghosts
+ * are updated in the neighbour regions within the margin of each body. A contact across a seam is
+ * found by both regions (real body of one entity, ghost of the other), and is recorded only by
+ * the region which owns the entity which sorts first (see CollisionDetector). The margin should
+ * be larger than the biggest body, so both regions see the contact.
+ *
+ * With a single region, everything runs on the game engine thread and there are no ghosts.
+ *
+ * If the step of a region throws, a step thread dies or a barrier is broken while the grid is
+ * running, the physics can't be stepped any more: step() throws IllegalStateException from then
+ * on, and the game engine stops.
+ */
+public class RegionGrid {
+    private static final Logger log = LoggerFactory.getLogger(RegionGrid.class);
+    /* Longest wait for the other regions on a barrier, far above the time step */
+    private static final long STEP_TIMEOUT_SECONDS = 10;
+
+    private final float originX, originY;
+    private final float regionWidth, regionHeight;
+    private final int cols, rows;
+    private final float margin;
+    private final PhysicsRegion[] regions;
+    private final List<StepThread> stepThreads;
+    private CyclicBarrier startStep, endStep;
+    private volatile boolean isRun = true;
+    private volatile Throwable failure = null; // reason why a step thread stopped
+    private long tickNumber; // published to the step threads by startStep
+
+    /**
+     * Split the tile of this server into regions
+     *
+     * @param map
+     *            tile and sub-tile sizes of this server
+     * @param regionsX
+     *            number of regions along x axis. Fewer regions are created if there are not enough
+     *            sub-tiles
+     * @param regionsY
+     *            number of regions along y axis
+     * @param margin
+     *            distance from a region border within which bodies have ghosts in the neighbour
+     *            region
+     * @param withSensorAOI
+     *            true if sensor AOI is used. Needs a single region
+     */
+    public RegionGrid(SangraamaMap map, int regionsX, int regionsY, float margin,
+            boolean withSensorAOI) {
+        int subTileCols = countSubTiles(map.getMapWidth(), map.getSubTileWidth());
+        int subTileRows = countSubTiles(map.getMapHeight(), map.getSubTileHeight());
+        int colSubTiles = (subTileCols + Math.max(regionsX, 1) - 1) / Math.max(regionsX, 1);
+        int rowSubTiles = (subTileRows + Math.max(regionsY, 1) - 1) / Math.max(regionsY, 1);
+        this.originX = map.getOriginX();
+        this.originY = map.getOriginY();
+        this.cols = (subTileCols + colSubTiles - 1) / colSubTiles;
+        this.rows = (subTileRows + rowSubTiles - 1) / rowSubTiles;
+        this.regionWidth = this.cols > 1 ? colSubTiles * map.getSubTileWidth() : map.getMapWidth();
+        this.regionHeight = this.rows > 1 ? rowSubTiles * map.getSubTileHeight()
+                : map.getMapHeight();
+        this.margin = margin;
+        this.regions = new PhysicsRegion[this.cols * this.rows];
+        for (int row = 0; row < this.rows; row++) {
+            for (int col = 0; col < this.cols; col++) {
+                float minX = this.originX + col * this.regionWidth;
+                float minY = this.originY + row * this.regionHeight;
+                float maxX = Math.min(minX + this.regionWidth, map.getEdgeX());
+                float maxY = Math.min(minY + this.regionHeight, map.getEdgeY());
+                this.regions[row * this.cols + col] = new PhysicsRegion(col, row, minX, minY,
+                        maxX, maxY, withSensorAOI && this.regions.length == 1);
+            }
+        }
+        this.stepThreads = new ArrayList<>();
+        log.info("physics regions:" + this.cols + "x" + this.rows + " region w:"
+                + this.regionWidth + " h:" + this.regionHeight + " margin:" + margin);
+    }
+
+    /* Number of sub-tiles along a side of the tile, 1 if sizes are not configured */
+    private static int countSubTiles(float tileSize, float subTileSize) {
+        if (tileSize <= 0 || subTileSize <= 0) {
+            return 1;
+        }
+        return Math.max(1, (int) Math.ceil(tileSize / subTileSize - 1e-4f));
+    }
+
+    /**
+     * Start the step threads of the regions other than the first one
+     */
+    public void start() {
+        if (this.regions.length == 1) {
+            return;
+        }
+        this.startStep = new CyclicBarrier(this.regions.length);
+        this.endStep = new CyclicBarrier(this.regions.length);
+        for (int i = 1; i < this.regions.length; i++) {
+            StepThread thread = new StepThread(this.regions[i]);
+            this.stepThreads.add(thread);
+            thread.start();
+        }
+    }
+
+    public void setStop() {
+        this.isRun = false;
+        for (StepThread thread : this.stepThreads) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Step all regions for a tick and wait until every region finished. Called by the game engine
+     * thread.
+     *
+     * @param tickNumber
+     *            number of the current tick
+     * @throws IllegalStateException
+     *             if the step of a region failed, a step thread stopped, a barrier is broken or
+     *             the regions didn't finish in time while the grid is running. Physics regions
+     *             can't be stepped after that
+     */
+    public void step(long tickNumber) {
+        this.tickNumber = tickNumber;
+        if (this.stepThreads.isEmpty()) {
+            for (PhysicsRegion region : this.regions) {
+                region.step(tickNumber);
+            }
+            return;
+        }
+        if (this.failure != null) {
+            throw new IllegalStateException("A physics region stopped stepping", this.failure);
+        }
+        RuntimeException stepFailure = null;
+        try {
+            this.startStep.await(STEP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            try {
+                this.regions[0].step(tickNumber);
+            } catch (RuntimeException e) {
+                stepFailure = e;
+            }
+            this.endStep.await(STEP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+            if (!this.isRun) {
+                return;
+            }
+            this.fail(e);
+            throw new IllegalStateException("Step of physics regions failed", e);
+        }
+        if (stepFailure != null) {
+            // Fail as a step thread does, rather than step the other regions without this one
+            this.fail(stepFailure);
+            throw new IllegalStateException("Step of the first physics region failed",
+                    stepFailure);
+        }
+    }
+
+    /*
+     * Record why the regions can't be stepped any more, and break the barriers so no thread waits
+     * for a region which will never arrive
+     */
+    private void fail(Throwable cause) {
+        if (this.failure == null) {
+            this.failure = cause;
+        }
+        this.startStep.reset();
+        this.endStep.reset();
+    }
+
+    /**
+     * Move bodies which crossed a region border to their new region, and update the ghosts of
+     * bodies near the borders. Called by the game engine thread after the contacts of the step
+     * were resolved.
+     *
+     * @param players
+     *            players of the game world
+     * @param bullets
+     *            bullets of the game world
+     */
+    public void sync(EntityRegistry<Player> players, EntityRegistry<Bullet> bullets) {
+        if (this.regions.length == 1) {
+            return;
+        }
+        for (int i = 0; i < players.size(); i++) {
+            Player player = players.getAt(i);
+            Body body = this.syncBody(player, player.getBody());
+            if (body != player.getBody()) {
+                player.setBody(body);
+            }
+        }
+        for (int i = 0; i < bullets.size(); i++) {
+            Bullet bullet = bullets.getAt(i);
+            if (!bullet.isRaycast()) {
+                Body body = this.syncBody(bullet, bullet.getBody());
+                if (body != bullet.getBody()) {
+                    bullet.setBody(body);
+                }
+            }
+        }
+        for (PhysicsRegion region : this.regions) {
+            ProjectileEngine projectiles = region.getProjectiles();
+            for (int i = projectiles.size() - 1; i >= 0; i--) {
+                Bullet bullet = projectiles.get(i);
+                PhysicsRegion owner = this.getRegionAt(bullet.getX(), bullet.getY());
+                if (owner != region) {
+                    projectiles.remove(bullet);
+                    owner.getProjectiles().add(bullet);
+                }
+            }
+        }
+        for (PhysicsRegion region : this.regions) {
+            region.sweepGhosts();
+        }
+    }
+
+    /* Move a body to the region it's on and update its ghosts. Returns the body of the entity */
+    private Body syncBody(Object entity, Body body) {
+        Vec2 position = body.getPosition();
+        int col = this.colOf(position.x);
+        int row = this.rowOf(position.y);
+        PhysicsRegion owner = this.regions[row * this.cols + col];
+        if (body.getUserData() != owner) {
+            body = owner.adopt(body);
+            position = body.getPosition();
+        }
+        for (int r = Math.max(0, row - 1); r <= Math.min(this.rows - 1, row + 1); r++) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(this.cols - 1, col + 1); c++) {
+                PhysicsRegion region = this.regions[r * this.cols + c];
+                if (region != owner && region.isNear(position.x, position.y, this.margin)) {
+                    region.syncGhost(entity, body);
+                }
+            }
+        }
+        return body;
+    }
+
+    /**
+     * Create the body of an entity in the region of its position
+     *
+     * @param bd
+     *            body definition of the entity
+     * @param fd
+     *            fixture definition of the entity
+     * @return new body
+     */
+    public Body createBody(BodyDef bd, FixtureDef fd) {
+        return this.getRegionAt(bd.position.x, bd.position.y).createBody(bd, fd);
+    }
+
+    /**
+     * Destroy the body of an entity and its ghosts
+     *
+     * @param entity
+     *            player or bullet
+     * @param body
+     *            body of the entity
+     */
+    public void destroyBody(Object entity, Body body) {
+        body.getWorld().destroyBody(body);
+        if (this.regions.length > 1) {
+            for (PhysicsRegion region : this.regions) {
+                region.removeGhost(entity);
+            }
+        }
+    }
+
+    /**
+     * Add a ray cast bullet to the region of its position
+     */
+    public void addProjectile(Bullet bullet) {
+        this.getRegionAt(bullet.getX(), bullet.getY()).getProjectiles().add(bullet);
+    }
+
+    /**
+     * Remove a ray cast bullet. It's usually owned by the region of its position, unless it
+     * crossed a border since the last sync.
+     */
+    public void removeProjectile(Bullet bullet) {
+        PhysicsRegion owner = this.getRegionAt(bullet.getX(), bullet.getY());
+        if (owner.getProjectiles().remove(bullet)) {
+            return;
+        }
+        for (PhysicsRegion region : this.regions) {
+            if (region != owner && region.getProjectiles().remove(bullet)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get the region which owns the bodies at a position
+     */
+    public PhysicsRegion getRegionAt(float x, float y) {
+        return this.regions[this.rowOf(y) * this.cols + this.colOf(x)];
+    }
+
+    private int colOf(float x) {
+        if (this.cols == 1) {
+            return 0;
+        }
+        int col = (int) Math.floor((x - this.originX) / this.regionWidth);
+        return Math.max(0, Math.min(this.cols - 1, col));
+    }
+
+    private int rowOf(float y) {
+        if (this.rows == 1) {
+            return 0;
+        }
+        int row = (int) Math.floor((y - this.originY) / this.regionHeight);
+        return Math.max(0, Math.min(this.rows - 1, row));
+    }
+
+    public int size() {
+        return this.regions.length;
+    }
+
+    public PhysicsRegion get(int i) {
+        return this.regions[i];
+    }
+
+    /* Steps a region whenever the game engine thread starts a step */
+    private class StepThread extends Thread {
+        private final PhysicsRegion region;
+
+        StepThread(PhysicsRegion region) {
+            super("PhysicsRegion-" + region.getCol() + "," + region.getRow());
+            this.region = region;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (isRun) {
+                    startStep.await();
+                    this.region.step(tickNumber);
+                    endStep.await();
+                }
+            } catch (InterruptedException | BrokenBarrierException | RuntimeException | Error e) {
+                // A region which doesn't step would freeze while the others advance
+                if (isRun) {
+                    log.error(this.getName() + " stopped while physics regions are running", e);
+                    fail(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.sangraama.gameLogic.snapshot;
+
+/**
+ * Per subscriber lists of visible entities and AOI enter/leave events of a tick. Written by the
+ * game engine when AOI is maintained incrementally (sensor AOI), in the same order as subscribers
+ * of the snapshot: players first, then dummy players. Arrays are recycled with the snapshot.
+ */
+public final class InterestLists {
+    public static final byte EVENT_ENTER = 1;
+    public static final byte EVENT_LEAVE = 2;
+
+    private boolean available = false;
+    private int subscribers = 0;
+
+    private int[] entryStart = new int[17];
+    private int[] entries = new int[64]; // entity indices of the snapshot
+    private int entryCount = 0;
+
+    private int[] eventStart = new int[17];
+    private byte[] eventType = new byte[16];
+    private byte[] eventKind = new byte[16];
+    private long[] eventId = new long[16];
+    private long[] eventOwner = new long[16];
+    private int eventCount = 0;
+
+    /**
+     * Clear the lists. Lists are not available until {@link #begin()} is called.
+     */
+    public void clear() {
+        this.available = false;
+        this.subscribers = 0;
+        this.entryCount = 0;
+        this.eventCount = 0;
+    }
+
+    /**
+     * Start writing the lists of a tick
+     */
+    public void begin() {
+        this.clear();
+        this.available = true;
+        this.entryStart[0] = 0;
+        this.eventStart[0] = 0;
+    }
+
+    /**
+     * Add a visible entity to the current subscriber
+     * 
+     * @param entityIndex
+     *            index of the entity in the snapshot
+     */
+    public void addEntry(int entityIndex) {
+        if (this.entryCount == this.entries.length) {
+            int[] temp = new int[this.entries.length * 2];
+            System.arraycopy(this.entries, 0, temp, 0, this.entryCount);
+            this.entries = temp;
+        }
+        this.entries[this.entryCount++] = entityIndex;
+    }
+
+    /**
+     * Add an AOI event to the current subscriber
+     * 
+     * @param type
+     *            EVENT_ENTER or EVENT_LEAVE
+     * @param kind
+     *            kind of the entity as in WorldSnapshot
+     * @param id
+     *            ID of the entity
+     * @param ownerId
+     *            user ID of the owner of the entity
+     */
+    public void addEvent(byte type, byte kind, long id, long ownerId) {
+        if (this.eventCount == this.eventType.length) {
+            int capacity = this.eventType.length * 2;
+            byte[] type2 = new byte[capacity], kind2 = new byte[capacity];
+            long[] id2 = new long[capacity], owner2 = new long[capacity];
+            System.arraycopy(this.eventType, 0, type2, 0, this.eventCount);
+            System.arraycopy(this.eventKind, 0, kind2, 0, this.eventCount);
+            System.arraycopy(this.eventId, 0, id2, 0, this.eventCount);
+            System.arraycopy(this.eventOwner, 0, owner2, 0, this.eventCount);
+            this.eventType = type2;
+            this.eventKind = kind2;
+            this.eventId = id2;
+            this.eventOwner = owner2;
+        }
+        this.eventType[this.eventCount] = type;
+        this.eventKind[this.eventCount] = kind;
+        this.eventId[this.eventCount] = id;
+        this.eventOwner[this.eventCount] = ownerId;
+        this.eventCount++;
+    }
+
+    /**
+     * Finish the lists of the current subscriber and move to the next one
+     */
+    public void endSubscriber() {
+        this.subscribers++;
+        if (this.subscribers == this.entryStart.length) {
+            int[] temp = new int[this.entryStart.length * 2];
+            System.arraycopy(this.entryStart, 0, temp, 0, this.subscribers);
+            this.entryStart = temp;
+            temp = new int[this.eventStart.length * 2];
+            System.arraycopy(this.eventStart, 0, temp, 0, this.subscribers);
+            this.eventStart = temp;
+        }
+        this.entryStart[this.subscribers] = this.entryCount;
+        this.eventStart[this.subscribers] = this.eventCount;
+    }
+
+    /**
+     * Check whether the lists are written for this tick
+     * 
+     * @return true if lists are available, false otherwise
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers;
+    }
+
+    public int getEntryFrom(int subscriber) {
+        return entryStart[subscriber];
+    }
+
+    public int getEntryTo(int subscriber) {
+        return entryStart[subscriber + 1];
+    }
+
+    public int getEntry(int i) {
+        return entries[i];
+    }
+
+    public int getEventFrom(int subscriber) {
+        return eventStart[subscriber];
+    }
+
+    public int getEventTo(int subscriber) {
+        return eventStart[subscriber + 1];
+    }
+
+    public byte getEventType(int i) {
+        return eventType[i];
+    }
+
+    public byte getEventKind(int i) {
+        return eventKind[i];
+    }
+
+    public long getEventId(int i) {
+        return eventId[i];
+    }
+
+    public long getEventOwner(int i) {
+        return eventOwner[i];
+    }
+}
@@ -0,0 +1,90 @@
+package org.sangraama.gameLogic.snapshot;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Triple buffer of world snapshots between the game engine (producer) and the AOI engine
+ * (consumer). The producer always writes into its back buffer and publishes it with a single
+ * atomic swap of the ready slot. The consumer swaps its front buffer with the ready slot when a
+ * newer snapshot is available. Neither side blocks the other, and the three snapshots are
+ * reused for the lifetime of the server.
+ */
+public class SnapshotBuffer {
+
+    private final AtomicReference<WorldSnapshot> ready;
+    private WorldSnapshot back; // owned by producer
+    private WorldSnapshot front; // owned by consumer
+    private final Object signal = new Object();
+
+    private volatile long consumedTick = 0;
+    private volatile long droppedSnapshots = 0;
+
+    public SnapshotBuffer() {
+        this.ready = new AtomicReference<>(new WorldSnapshot());
+        this.back = new WorldSnapshot();
+        this.front = new WorldSnapshot();
+    }
+
+    /**
+     * Get the snapshot which producer can write into. Only the producer thread may call.
+     * 
+     * @return back buffer
+     */
+    public WorldSnapshot getBackBuffer() {
+        return this.back;
+    }
+
+    /**
+     * Publish the back buffer. Only the producer thread may call.
+     */
+    public void publish() {
+        WorldSnapshot previous = this.ready.getAndSet(this.back);
+        if (previous.getTickNumber() > this.consumedTick) {
+            // consumer didn't take the previous snapshot
+            this.droppedSnapshots++;
+        }
+        this.back = previous;
+        synchronized (this.signal) {
+            this.signal.notifyAll();
+        }
+    }
+
+    /**
+     * Take the latest published snapshot, waiting until a newer one is available. Returned
+     * snapshot is owned by the consumer until the next call. Only the consumer thread may call.
+     * 
+     * @param timeoutMillis
+     *            maximum time to wait
+     * @return latest snapshot, or null if no new snapshot was published within the timeout
+     * @throws InterruptedException
+     *             if the waiting thread is interrupted
+     */
+    public WorldSnapshot take(long timeoutMillis) throws InterruptedException {
+        if (!this.isNewAvailable()) {
+            synchronized (this.signal) {
+                if (!this.isNewAvailable()) {
+                    this.signal.wait(timeoutMillis);
+                }
+            }
+            if (!this.isNewAvailable()) {
+                return null;
+            }
+        }
+        this.front = this.ready.getAndSet(this.front);
+        this.consumedTick = this.front.getTickNumber();
+        return this.front;
+    }
+
+    private boolean isNewAvailable() {
+        return this.ready.get().getTickNumber() > this.front.getTickNumber();
+    }
+
+    /**
+     * Get the number of snapshots which were replaced before the consumer took them
+     * 
+     * @return number of dropped snapshots
+     */
+    public long getDroppedSnapshots() {
+        return droppedSnapshots;
+    }
+}
@@ -0,0 +1,274 @@
+package org.sangraama.gameLogic.snapshot;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.sangraama.assets.DummyPlayer;
+import org.sangraama.assets.Player;
+
+/**
+ * State of the game world after a tick, stored in primitive arrays. Snapshots are recycled by
+ * {@link SnapshotBuffer}, so arrays only grow and no objects are created per entity per tick.
+ * 
+ * Entity at index i is described by kind[i], id[i], ownerId[i], x[i], y[i], angle[i],
+ * health[i], score[i] and type[i]. dirty[i] is the mask of the fields which changed since the
+ * previous tick. Subscriber lists are immutable views owned by the game
+ * engine.
+ */
+public final class WorldSnapshot {
+    public static final byte KIND_PLAYER = 1;
+    public static final byte KIND_BULLET = 2;
+    public static final byte KIND_DEFEATED = 3;
+
+    /* Bits of the dirty mask. Same bits as the mask of PlayerUpdate */
+    public static final int FIELD_X = 1;
+    public static final int FIELD_Y = 2;
+    public static final int FIELD_ANGLE = 4;
+    public static final int FIELD_HEALTH = 8;
+    public static final int FIELD_SCORE = 16;
+    public static final int FIELD_TYPE = 32;
+    public static final int FIELD_VELOCITY = 64;
+    public static final int FIELD_ALL = 127;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private volatile long tickNumber = 0;
+    private int count = 0;
+
+    private byte[] kind;
+    private long[] id; // user ID of players, bullet ID of bullets
+    private long[] ownerId; // user ID of the player who owns the entity
+    private float[] x;
+    private float[] y;
+    private float[] angle;
+    private float[] health;
+    private float[] score;
+    private int[] type; // image type
+    private int[] dirty; // FIELD_* bits which changed since previous tick
+    /* Dead reckoning: clients extrapolate x, y with velocity vx, vy set on tick refTick */
+    private float[] vx;
+    private float[] vy;
+    private long[] refTick;
+
+    private List<Player> players = Collections.emptyList();
+    private List<DummyPlayer> dummies = Collections.emptyList();
+    private final InterestLists interest = new InterestLists();
+
+    public WorldSnapshot() {
+        this.allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Clear the snapshot in order to write the state of a new tick
+     * 
+     * @param tickNumber
+     *            number of the tick
+     * @param players
+     *            immutable list of players who subscribed for updates
+     * @param dummies
+     *            immutable list of dummy players who subscribed for updates
+     */
+    public void reset(long tickNumber, List<Player> players, List<DummyPlayer> dummies) {
+        this.count = 0;
+        this.players = players;
+        this.dummies = dummies;
+        this.interest.clear();
+        this.tickNumber = tickNumber;
+    }
+
+    /**
+     * Add state of a player
+     * 
+     * @param dirty
+     *            FIELD_* bits of the fields which changed since previous tick
+     * @return index of the entity in the snapshot
+     */
+    public int addPlayer(long userID, float x, float y, float angle, float health, float score,
+            int imageType, int dirty) {
+        return this.add(KIND_PLAYER, userID, userID, x, y, angle, health, score, imageType, dirty);
+    }
+
+    /**
+     * Add state of a bullet
+     * 
+     * @return index of the entity in the snapshot
+     */
+    public int addBullet(long bulletID, long playerID, float x, float y, float angle,
+            int imageType) {
+        return this.add(KIND_BULLET, bulletID, playerID, x, y, angle, 0, 0, imageType, FIELD_ALL);
+    }
+
+    /**
+     * Add details of a defeated player
+     * 
+     * @return index of the entity in the snapshot
+     */
+    public int addDefeated(long userID, float x, float y, float angle, float score,
+            int imageType) {
+        return this.add(KIND_DEFEATED, userID, userID, x, y, angle, 0, score, imageType,
+                FIELD_ALL);
+    }
+
+    private int add(byte kind, long id, long ownerId, float x, float y, float angle,
+            float health, float score, int type, int dirty) {
+        if (this.count == this.kind.length) {
+            this.grow();
+        }
+        int i = this.count++;
+        this.kind[i] = kind;
+        this.id[i] = id;
+        this.ownerId[i] = ownerId;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.angle[i] = angle;
+        this.health[i] = health;
+        this.score[i] = score;
+        this.type[i] = type;
+        this.dirty[i] = dirty;
+        this.vx[i] = 0;
+        this.vy[i] = 0;
+        this.refTick[i] = this.tickNumber;
+        return i;
+    }
+
+    /**
+     * Set the motion which clients use to extrapolate the position of an entity (dead reckoning)
+     * 
+     * @param i
+     *            index of the entity
+     * @param vx
+     *            velocity along x axis, units per second
+     * @param vy
+     *            velocity along y axis, units per second
+     * @param refTick
+     *            tick which the velocity was last sent on. Position of the entity is extrapolated
+     *            from that tick
+     */
+    public void setMotion(int i, float vx, float vy, long refTick) {
+        this.vx[i] = vx;
+        this.vy[i] = vy;
+        this.refTick[i] = refTick;
+    }
+
+    private void allocate(int capacity) {
+        this.kind = new byte[capacity];
+        this.id = new long[capacity];
+        this.ownerId = new long[capacity];
+        this.x = new float[capacity];
+        this.y = new float[capacity];
+        this.angle = new float[capacity];
+        this.health = new float[capacity];
+        this.score = new float[capacity];
+        this.type = new int[capacity];
+        this.dirty = new int[capacity];
+        this.vx = new float[capacity];
+        this.vy = new float[capacity];
+        this.refTick = new long[capacity];
+    }
+
+    private void grow() {
+        byte[] kind = this.kind;
+        long[] id = this.id, ownerId = this.ownerId;
+        float[] x = this.x, y = this.y, angle = this.angle, health = this.health, score = this.score;
+        int[] type = this.type, dirty = this.dirty;
+        float[] vx = this.vx, vy = this.vy;
+        long[] refTick = this.refTick;
+        this.allocate(kind.length * 2);
+        System.arraycopy(kind, 0, this.kind, 0, count);
+        System.arraycopy(id, 0, this.id, 0, count);
+        System.arraycopy(ownerId, 0, this.ownerId, 0, count);
+        System.arraycopy(x, 0, this.x, 0, count);
+        System.arraycopy(y, 0, this.y, 0, count);
+        System.arraycopy(angle, 0, this.angle, 0, count);
+        System.arraycopy(health, 0, this.health, 0, count);
+        System.arraycopy(score, 0, this.score, 0, count);
+        System.arraycopy(type, 0, this.type, 0, count);
+        System.arraycopy(dirty, 0, this.dirty, 0, count);
+        System.arraycopy(vx, 0, this.vx, 0, count);
+        System.arraycopy(vy, 0, this.vy, 0, count);
+        System.arraycopy(refTick, 0, this.refTick, 0, count);
+    }
+
+    public long getTickNumber() {
+        return tickNumber;
+    }
+
+    /**
+     * Get number of entities in the snapshot
+     * 
+     * @return number of entities
+     */
+    public int size() {
+        return count;
+    }
+
+    public byte getKind(int i) {
+        return kind[i];
+    }
+
+    public long getId(int i) {
+        return id[i];
+    }
+
+    public long getOwnerId(int i) {
+        return ownerId[i];
+    }
+
+    public float getX(int i) {
+        return x[i];
+    }
+
+    public float getY(int i) {
+        return y[i];
+    }
+
+    public float getAngle(int i) {
+        return angle[i];
+    }
+
+    public float getHealth(int i) {
+        return health[i];
+    }
+
+    public float getScore(int i) {
+        return score[i];
+    }
+
+    public int getType(int i) {
+        return type[i];
+    }
+
+    public int getDirty(int i) {
+        return dirty[i];
+    }
+
+    public float getVx(int i) {
+        return vx[i];
+    }
+
+    public float getVy(int i) {
+        return vy[i];
+    }
+
+    public long getRefTick(int i) {
+        return refTick[i];
+    }
+
+    public List<Player> getPlayers() {
+        return players;
+    }
+
+    public List<DummyPlayer> getDummies() {
+        return dummies;
+    }
+
+    /**
+     * Get the visible entities and AOI events of each subscriber. Only available when AOI is
+     * maintained by the game engine (sensor AOI).
+     * 
+     * @return interest lists of subscribers
+     */
+    public InterestLists getInterest() {
+        return interest;
+    }
+}
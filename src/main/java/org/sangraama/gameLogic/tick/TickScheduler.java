@@ -0,0 +1,159 @@
+package org.sangraama.gameLogic.tick;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Headless fixed time step scheduler. Replaces the javax.swing.Timer loops which executed every
+ * stage on the single AWT Event Dispatch Thread.
+ * 
+ * The scheduler runs on the thread which calls {@link #run()} and measures time with
+ * System.nanoTime(). Elapsed time is added to an accumulator and one tick is executed for each
+ * full time step in it. If a tick overruns, the following ticks are executed back to back to
+ * catch up, but never more than maxCatchUpSteps at once. Time beyond that is dropped, so a long
+ * stall doesn't turn into a burst of ticks.
+ */
+public class TickScheduler implements Runnable {
+    private static final Logger log = LoggerFactory.getLogger(TickScheduler.class);
+
+    private final String name;
+    private final Tickable task;
+    private final long stepNanos;
+    private final int maxCatchUpSteps;
+    private volatile boolean isRun = true;
+
+    /* Written only by the scheduler thread, read by anyone */
+    private volatile long tickNumber = 0;
+    private volatile long lastTickDuration = 0;
+    private volatile long maxTickDuration = 0;
+    private volatile long overrunCount = 0;
+    private volatile long droppedTicks = 0;
+
+    /**
+     * Create a scheduler for the given stage
+     * 
+     * @param name
+     *            name of the stage, used for logs
+     * @param stepMillis
+     *            length of a time step in milliseconds
+     * @param maxCatchUpSteps
+     *            maximum number of ticks executed back to back while catching up
+     * @param task
+     *            stage which executed on every tick
+     */
+    public TickScheduler(String name, int stepMillis, int maxCatchUpSteps, Tickable task) {
+        this.name = name;
+        this.task = task;
+        this.stepNanos = TimeUnit.MILLISECONDS.toNanos(stepMillis);
+        this.maxCatchUpSteps = maxCatchUpSteps;
+    }
+
+    @Override
+    public void run() {
+        log.info(name + " tick scheduler started. step:" + stepNanos + "ns max catch up:"
+                + maxCatchUpSteps);
+        long previous = System.nanoTime();
+        long accumulator = 0;
+
+        while (this.isRun) {
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            int steps = 0;
+            while (accumulator >= stepNanos && steps < maxCatchUpSteps && this.isRun) {
+                this.executeTick();
+                accumulator -= stepNanos;
+                steps++;
+            }
+            if (accumulator >= stepNanos) {
+                // Unable to catch up. Drop the remaining backlog and continue from now
+                this.droppedTicks += accumulator / stepNanos;
+                accumulator %= stepNanos;
+            }
+
+            long wait = stepNanos - accumulator - (System.nanoTime() - previous);
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+        log.info(name + " tick scheduler stopped at tick:" + tickNumber + " overruns:"
+                + overrunCount + " dropped:" + droppedTicks);
+    }
+
+    private void executeTick() {
+        long tick = this.tickNumber + 1;
+        long start = System.nanoTime();
+        try {
+            this.task.tick(tick);
+        } catch (Exception e) {
+            log.error(name + " error occurred in tick " + tick, e);
+        }
+        long duration = System.nanoTime() - start;
+        this.lastTickDuration = duration;
+        if (duration > this.maxTickDuration) {
+            this.maxTickDuration = duration;
+        }
+        if (duration > stepNanos) {
+            this.overrunCount++;
+        }
+        this.tickNumber = tick;
+    }
+
+    public synchronized boolean setStop() {
+        this.isRun = false;
+        return this.isRun;
+    }
+
+    /**
+     * Get the number of the last executed tick
+     * 
+     * @return tick number
+     */
+    public long getTickNumber() {
+        return tickNumber;
+    }
+
+    /**
+     * Get the time taken to execute the last tick
+     * 
+     * @return duration in nanoseconds
+     */
+    public long getLastTickDuration() {
+        return lastTickDuration;
+    }
+
+    /**
+     * Get the longest time taken to execute a tick
+     * 
+     * @return duration in nanoseconds
+     */
+    public long getMaxTickDuration() {
+        return maxTickDuration;
+    }
+
+    /**
+     * Get the number of ticks which took longer than the time step
+     * 
+     * @return number of overrun ticks
+     */
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+
+    /**
+     * Get the number of ticks skipped because the catch up limit was reached
+     * 
+     * @return number of dropped ticks
+     */
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    public long getStepNanos() {
+        return stepNanos;
+    }
+}
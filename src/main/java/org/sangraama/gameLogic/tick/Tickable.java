@@ -0,0 +1,15 @@
+package org.sangraama.gameLogic.tick;
+
+/**
+ * A stage of the game loop which is driven by a {@link TickScheduler}.
+ */
+public interface Tickable {
+
+    /**
+     * Execute one fixed time step of the stage
+     * 
+     * @param tickNumber
+     *            sequence number of the tick, starting from 1
+     */
+    void tick(long tickNumber);
+}
@@ -0,0 +1,196 @@
+package org.sangraama.gameLogic.tick;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel which expires timers on the tick of their deadline. Level 0 has a
+ * slot for each of the next 64 ticks, and each higher level has 64 slots which are 64 times wider
+ * than the slots of the level below. When the wheel reaches a slot of a higher level, its timers
+ * are moved (cascaded) to the lower levels. Scheduling and cancelling take constant time, and a
+ * tick only touches timers which expire on it or are cascaded, so the cost of a tick doesn't
+ * depend on the number of live timers.
+ *
+ * Timers are linked into the slots, so a timer which is owned by an entity can be scheduled again
+ * without allocating. Not thread safe; used by the thread which advances the wheel.
+ *
+ * @param <T>
+ *            type of the objects which own the timers
+ */
+public class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    /* Timers which are further are kept in the last level until they get closer */
+    private static final long MAX_DELAY = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    /* Head of the list of timers of each slot */
+    private final Timer<T>[][] slots;
+    private final List<T> expired;
+    private long tickNumber;
+    private int size;
+
+    /**
+     * A deadline registered by an entity. Create one per entity and reuse it.
+     *
+     * @param <T>
+     *            type of the owner
+     */
+    public static final class Timer<T> {
+        private final T owner;
+        private long deadline;
+        private int level = -1; // -1 when not scheduled
+        private int slot;
+        private Timer<T> prev, next;
+
+        public Timer(T owner) {
+            this.owner = owner;
+        }
+
+        public T getOwner() {
+            return owner;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public boolean isScheduled() {
+            return level >= 0;
+        }
+    }
+
+    /**
+     * @param tickNumber
+     *            current tick number. Timers expire when the wheel is advanced to their deadline
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public TimingWheel(long tickNumber) {
+        this.slots = new Timer[LEVELS][SLOTS];
+        this.expired = new ArrayList<>();
+        this.tickNumber = tickNumber;
+    }
+
+    /**
+     * Schedule a timer, or move it to a new deadline if it's already scheduled
+     *
+     * @param timer
+     *            timer of an entity
+     * @param deadline
+     *            tick number to expire on. Deadlines which are not after the current tick expire on
+     *            the next tick
+     */
+    public void schedule(Timer<T> timer, long deadline) {
+        if (timer.isScheduled()) {
+            this.unlink(timer);
+        } else {
+            this.size++;
+        }
+        timer.deadline = Math.max(deadline, this.tickNumber + 1);
+        this.link(timer);
+    }
+
+    /**
+     * Cancel a timer
+     *
+     * @param timer
+     *            timer of an entity
+     * @return true if the timer was scheduled
+     */
+    public boolean cancel(Timer<T> timer) {
+        if (!timer.isScheduled()) {
+            return false;
+        }
+        this.unlink(timer);
+        this.size--;
+        return true;
+    }
+
+    /**
+     * Move the wheel to a tick and expire timers whose deadlines are reached. Expired timers are
+     * not scheduled anymore.
+     *
+     * @param tickNumber
+     *            new tick number
+     * @return number of expired timers, whose owners can be read by getExpired
+     */
+    public int advance(long tickNumber) {
+        this.expired.clear();
+        if (this.size == 0) {
+            this.tickNumber = Math.max(this.tickNumber, tickNumber);
+            return 0;
+        }
+        while (this.tickNumber < tickNumber) {
+            this.tickNumber++;
+            // Cascade a slot of a level when the slots of the level below are wrapped around
+            for (int level = 1; level < LEVELS; level++) {
+                int shift = SLOT_BITS * level;
+                if ((this.tickNumber & ((1L << shift) - 1)) != 0) {
+                    break;
+                }
+                this.cascade(level, (int) ((this.tickNumber >>> shift) & MASK));
+            }
+            int slot = (int) (this.tickNumber & MASK);
+            Timer<T> timer;
+            while ((timer = this.slots[0][slot]) != null) {
+                this.unlink(timer);
+                this.size--;
+                this.expired.add(timer.owner);
+            }
+        }
+        return this.expired.size();
+    }
+
+    public T getExpired(int i) {
+        return this.expired.get(i);
+    }
+
+    /**
+     * Get number of scheduled timers
+     */
+    public int size() {
+        return size;
+    }
+
+    private void cascade(int level, int slot) {
+        Timer<T> timer;
+        while ((timer = this.slots[level][slot]) != null) {
+            this.unlink(timer);
+            this.link(timer);
+        }
+    }
+
+    private void link(Timer<T> timer) {
+        long delay = Math.min(timer.deadline - this.tickNumber, MAX_DELAY);
+        long target = this.tickNumber + delay;
+        int level = 0;
+        while (level < LEVELS - 1 && delay >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) ((target >>> (SLOT_BITS * level)) & MASK);
+        Timer<T> head = this.slots[level][slot];
+        timer.prev = null;
+        timer.next = head;
+        if (head != null) {
+            head.prev = timer;
+        }
+        this.slots[level][slot] = timer;
+        timer.level = level;
+        timer.slot = slot;
+    }
+
+    private void unlink(Timer<T> timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            this.slots[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.level = -1;
+    }
+}
@@ -1,5 +1,6 @@
 package org.sangraama.jsonprotocols;
 
+import java.nio.ByteBuffer;
 
 public abstract class AbsDelta extends SendProtocol {
     float dx, dy, da;
@@ -13,4 +14,36 @@ public abstract class AbsDelta extends SendProtocol {
         this.it = imageType;
 
     }
+
+    @Override
+    public int getBinarySize() {
+        return BinaryProtocol.HEADER_SIZE + 2 * Quantizer.positionSize() + Quantizer.angleSize()
+                + 2;
+    }
+
+    @Override
+    public void writeBinary(ByteBuffer buf) {
+        super.writeBinary(buf);
+        Quantizer.putX(buf, dx);
+        Quantizer.putY(buf, dy);
+        Quantizer.putAngle(buf, da);
+        buf.putShort((short) it);
+    }
+
+    @Override
+    protected void writeJsonFields(JsonEncoder out) {
+        out.field("dx", dx);
+        out.field("dy", dy);
+        out.field("da", da);
+        out.field("it", it);
+        super.writeJsonFields(out);
+    }
+
+    public float getDx() {
+        return dx;
+    }
+
+    public float getDy() {
+        return dy;
+    }
 }
@@ -0,0 +1,88 @@
+package org.sangraama.jsonprotocols;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Compact little-endian binary frames for the WebSocket connection. Used when the client
+ * negotiates {@link #SUB_PROTOCOL}; JSON text remains the default.
+ * 
+ * A frame sent to the client is u16 number of messages, followed by the messages. Each message
+ * starts with u8 type and i64 userID (same type values as the JSON messages), then the fields
+ * of the message in the order of {@link SendProtocol#writeBinary(ByteBuffer)} of its class. Floats
+ * are IEEE 754 single precision, except positions and angles of deltas which are fixed point
+ * (see {@link Quantizer}). Strings are u16 length followed by UTF-8 bytes.
+ * 
+ * A frame sent by the client is a single event: u8 type, i64 userID and the fields used by that
+ * type of event (see ClientEvent.fromBinary).
+ */
+public final class BinaryProtocol {
+    public static final String SUB_PROTOCOL = "sangraama-binary";
+    public static final Charset UTF8 = Charset.forName("UTF-8");
+    /* u8 type + i64 userID */
+    public static final int HEADER_SIZE = 9;
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Encode a list of messages as a binary frame
+     * 
+     * @param messages
+     *            messages to be sent
+     * @return binary frame ready to be written, or null if a message doesn't have a binary form.
+     *         Then the list should be sent as JSON.
+     */
+    public static ByteBuffer encode(List<SendProtocol> messages) {
+        if (messages.size() > 0xFFFF) {
+            return null;
+        }
+        int size = 2;
+        for (SendProtocol msg : messages) {
+            int msgSize = msg.getBinarySize();
+            if (msgSize < 0) {
+                return null;
+            }
+            size += msgSize;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putShort((short) messages.size());
+        for (SendProtocol msg : messages) {
+            msg.writeBinary(buf);
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * Get number of bytes used to write a string
+     * 
+     * @param bytes
+     *            UTF-8 bytes of the string, null is written as an empty string
+     * @return number of bytes
+     */
+    public static int stringSize(byte[] bytes) {
+        return 2 + (bytes == null ? 0 : bytes.length);
+    }
+
+    public static void putString(ByteBuffer buf, byte[] bytes) {
+        if (bytes == null) {
+            buf.putShort((short) 0);
+        } else {
+            buf.putShort((short) bytes.length);
+            buf.put(bytes);
+        }
+    }
+
+    public static byte[] getBytes(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getShort() & 0xFFFF];
+        buf.get(bytes);
+        return bytes;
+    }
+
+    public static String getString(ByteBuffer buf) {
+        return new String(getBytes(buf), UTF8);
+    }
+}
@@ -0,0 +1,197 @@
+package org.sangraama.jsonprotocols;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Encoded form of the delta of every entity of a tick. Each delta is encoded once into a shared
+ * arena (JSON, and binary if any client uses it). Then the frame of a client is assembled by
+ * copying the fragments of the entities inside its AOI, so encoding cost depends on the number of
+ * entities instead of entities x viewers. Entities which changed since previous tick also get a
+ * partial fragment with only the changed fields, for clients which have the previous frame.
+ *
+ * Written by one thread, then read concurrently while frames are assembled. Reused on next tick.
+ */
+public final class FragmentArena {
+    private JsonEncoder json;
+    private int[] jsonStart;
+    private int[] jsonEnd;
+
+    private ByteBuffer binary;
+    private int[] binaryStart;
+    private int[] binaryEnd;
+    private boolean hasBinary = false;
+    private int size = 0;
+
+    public FragmentArena() {
+        this.json = new JsonEncoder();
+        this.jsonStart = new int[64];
+        this.jsonEnd = new int[64];
+        this.binary = ByteBuffer.allocate(2048).order(ByteOrder.LITTLE_ENDIAN);
+        this.binaryStart = new int[64];
+        this.binaryEnd = new int[64];
+    }
+
+    /**
+     * Encode the deltas of a tick. Fragments of previous tick are discarded.
+     *
+     * @param deltas
+     *            delta of each entity, in the order of the snapshot
+     * @param partials
+     *            partial update of each entity with the fields which changed since previous tick,
+     *            null for an entity which doesn't have one. Null if there isn't any
+     * @param count
+     *            number of entities
+     * @param withBinary
+     *            encode binary fragments too. Should be true if any client uses binary protocol
+     */
+    public void encode(SendProtocol[] deltas, SendProtocol[] partials, int count,
+            boolean withBinary) {
+        int fragmentCount = count * 2;
+        if (this.jsonStart.length < fragmentCount) {
+            int length = Math.max(fragmentCount, this.jsonStart.length * 2);
+            this.jsonStart = new int[length];
+            this.jsonEnd = new int[length];
+            this.binaryStart = new int[length];
+            this.binaryEnd = new int[length];
+        }
+        this.size = count;
+        this.json.reset();
+        this.binary.clear();
+        this.hasBinary = withBinary;
+        for (int i = 0; i < count; i++) {
+            this.encodeFragment(deltas[i], i);
+        }
+        for (int i = 0; i < count; i++) {
+            SendProtocol partial = partials == null ? null : partials[i];
+            if (partial != null) {
+                this.encodeFragment(partial, count + i);
+            } else {
+                this.jsonEnd[count + i] = -1;
+            }
+        }
+    }
+
+    /**
+     * Get the fragment of the partial update of an entity
+     *
+     * @param i
+     *            index of the entity in the snapshot
+     * @return fragment index which can be passed to assemble, -1 if entity doesn't have a partial
+     *         update on this tick
+     */
+    public int getPartial(int i) {
+        return this.jsonEnd[this.size + i] < 0 ? -1 : this.size + i;
+    }
+
+    private void encodeFragment(SendProtocol msg, int f) {
+        this.jsonStart[f] = this.json.length();
+        this.json.clearSeparator();
+        this.json.writeMessage(msg);
+        this.jsonEnd[f] = this.json.length();
+        if (this.hasBinary) {
+            int msgSize = msg.getBinarySize();
+            this.binaryStart[f] = this.binary.position();
+            if (msgSize < 0) {
+                this.binaryEnd[f] = -1; // sent as JSON
+                return;
+            }
+            this.ensureBinary(msgSize);
+            msg.writeBinary(this.binary);
+            this.binaryEnd[f] = this.binary.position();
+        }
+    }
+
+    /**
+     * Assemble the frame of a client
+     *
+     * @param isBinary
+     *            true if client uses binary protocol
+     * @param messages
+     *            messages which are only for this client (Ex: AOI events). Written first
+     * @param entities
+     *            fragments to be sent: index of an entity inside the AOI of the client for its
+     *            full delta, or a fragment given by getPartial
+     * @param count
+     *            number of fragments
+     * @return frame of the client. It doesn't share memory with the arena
+     */
+    public UpdateFrame assemble(boolean isBinary, List<SendProtocol> messages, int[] entities,
+            int count) {
+        if (isBinary && this.hasBinary) {
+            ByteBuffer frame = this.assembleBinary(messages, entities, count);
+            if (frame != null) {
+                return UpdateFrame.binary(frame);
+            }
+        }
+        JsonEncoder out = JsonEncoder.forThread();
+        out.reset();
+        out.beginArray();
+        for (SendProtocol msg : messages) {
+            out.writeMessage(msg);
+        }
+        char[] src = this.json.getBuffer();
+        for (int k = 0; k < count; k++) {
+            int i = entities[k];
+            out.writeRaw(src, this.jsonStart[i], this.jsonEnd[i]);
+        }
+        out.endArray();
+        return UpdateFrame.text(out.toCharBuffer());
+    }
+
+    /**
+     * @return binary frame, or null if a message doesn't have a binary form
+     */
+    private ByteBuffer assembleBinary(List<SendProtocol> messages, int[] entities, int count) {
+        int total = messages.size() + count;
+        if (total > 0xFFFF) {
+            return null;
+        }
+        int frameSize = 2;
+        for (SendProtocol msg : messages) {
+            int msgSize = msg.getBinarySize();
+            if (msgSize < 0) {
+                return null;
+            }
+            frameSize += msgSize;
+        }
+        for (int k = 0; k < count; k++) {
+            int i = entities[k];
+            if (this.binaryEnd[i] < 0) {
+                return null;
+            }
+            frameSize += this.binaryEnd[i] - this.binaryStart[i];
+        }
+        ByteBuffer frame = ByteBuffer.allocate(frameSize).order(ByteOrder.LITTLE_ENDIAN);
+        frame.putShort((short) total);
+        for (SendProtocol msg : messages) {
+            msg.writeBinary(frame);
+        }
+        byte[] src = this.binary.array();
+        for (int k = 0; k < count; k++) {
+            int i = entities[k];
+            frame.put(src, this.binaryStart[i], this.binaryEnd[i] - this.binaryStart[i]);
+        }
+        frame.flip();
+        return frame;
+    }
+
+    private void ensureBinary(int n) {
+        if (this.binary.remaining() < n) {
+            ByteBuffer larger = ByteBuffer.allocate(
+                    Math.max(this.binary.capacity() * 2, this.binary.position() + n)).order(
+                    ByteOrder.LITTLE_ENDIAN);
+            this.binary.flip();
+            larger.put(this.binary);
+            this.binary = larger;
+        }
+    }
+
+    /**
+     * Get number of entities encoded on the current tick
+     */
+    public int size() {
+        return this.size;
+    }
+}
@@ -0,0 +1,333 @@
+package org.sangraama.jsonprotocols;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming JSON writer for SendProtocol messages. Messages write their own fields (see
+ * {@link SendProtocol#writeJsonFields(JsonEncoder)}), so no reflection is involved and output is
+ * written straight into a reusable char buffer of the calling thread.
+ *
+ * Output is identical to Gson with default settings: fields of a subclass come before the fields
+ * of its superclass, null fields are skipped, floats are formatted as Float.toString and strings
+ * are escaped HTML safe.
+ */
+public final class JsonEncoder {
+    private static final ThreadLocal<JsonEncoder> encoders = new ThreadLocal<JsonEncoder>() {
+        @Override
+        protected JsonEncoder initialValue() {
+            return new JsonEncoder();
+        }
+    };
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private char[] buf = new char[1024];
+    private int len = 0;
+    private boolean needsComma = false;
+    /* Used to format floats which are not integral */
+    private StringBuilder floatBuf = new StringBuilder(16);
+
+    /**
+     * Get the encoder of the current thread
+     *
+     * @return encoder which is reused by every call of this thread
+     */
+    public static JsonEncoder forThread() {
+        return encoders.get();
+    }
+
+    /**
+     * Encode a list of messages as a JSON array
+     *
+     * @param messages
+     *            messages to be sent
+     * @return JSON text. Buffer is owned by the caller, encoder can be reused straight away
+     */
+    public CharBuffer encode(List<? extends SendProtocol> messages) {
+        this.reset();
+        this.beginArray();
+        for (SendProtocol msg : messages) {
+            this.writeMessage(msg);
+        }
+        this.endArray();
+        return this.toCharBuffer();
+    }
+
+    /**
+     * Clear the buffer
+     */
+    public void reset() {
+        this.len = 0;
+        this.needsComma = false;
+    }
+
+    /**
+     * Start a new value without a separator. Used to write values which are stored separately
+     * and joined later.
+     */
+    public void clearSeparator() {
+        this.needsComma = false;
+    }
+
+    /**
+     * Write a message as a JSON object
+     *
+     * @param msg
+     *            message to be written
+     */
+    public void writeMessage(SendProtocol msg) {
+        this.beginObject();
+        msg.writeJsonFields(this);
+        this.endObject();
+    }
+
+    /**
+     * Write JSON which is already encoded, as a value (Ex: an element of an array)
+     *
+     * @param src
+     *            buffer which contains the encoded value
+     * @param from
+     *            start of the value in src
+     * @param to
+     *            end of the value in src (exclusive)
+     */
+    public void writeRaw(char[] src, int from, int to) {
+        this.separator();
+        this.ensure(to - from);
+        System.arraycopy(src, from, this.buf, this.len, to - from);
+        this.len += to - from;
+        this.needsComma = true;
+    }
+
+    /**
+     * Copy the text written since last reset
+     *
+     * @return JSON text. Buffer is owned by the caller
+     */
+    public CharBuffer toCharBuffer() {
+        return CharBuffer.wrap(Arrays.copyOf(this.buf, this.len));
+    }
+
+    /**
+     * Get number of chars written since last reset
+     */
+    public int length() {
+        return this.len;
+    }
+
+    /**
+     * Get the buffer which the text is written into. Valid until next write
+     */
+    public char[] getBuffer() {
+        return this.buf;
+    }
+
+    public void beginArray() {
+        this.separator();
+        this.append('[');
+        this.needsComma = false;
+    }
+
+    public void endArray() {
+        this.append(']');
+        this.needsComma = true;
+    }
+
+    public void beginObject() {
+        this.separator();
+        this.append('{');
+        this.needsComma = false;
+    }
+
+    public void endObject() {
+        this.append('}');
+        this.needsComma = true;
+    }
+
+    public void field(String name, float value) {
+        this.name(name);
+        this.writeFloat(value);
+    }
+
+    public void field(String name, long value) {
+        this.name(name);
+        this.writeLong(value);
+    }
+
+    public void field(String name, int value) {
+        this.name(name);
+        this.writeLong(value);
+    }
+
+    /**
+     * Write a string field. Nothing is written if value is null
+     */
+    public void field(String name, String value) {
+        if (value == null) {
+            return;
+        }
+        this.name(name);
+        this.writeString(value);
+    }
+
+    /**
+     * Write a byte array field as an array of numbers. Nothing is written if value is null
+     */
+    public void field(String name, byte[] value) {
+        if (value == null) {
+            return;
+        }
+        this.name(name);
+        this.append('[');
+        for (int i = 0; i < value.length; i++) {
+            if (i > 0) {
+                this.append(',');
+            }
+            this.writeLong(value[i]);
+        }
+        this.append(']');
+    }
+
+    /**
+     * Names are written without escaping, they have to be plain field names
+     */
+    private void name(String name) {
+        this.separator();
+        this.append('"');
+        this.ensure(name.length());
+        name.getChars(0, name.length(), this.buf, this.len);
+        this.len += name.length();
+        this.append('"');
+        this.append(':');
+        this.needsComma = true;
+    }
+
+    private void separator() {
+        if (this.needsComma) {
+            this.append(',');
+        }
+    }
+
+    private void writeFloat(float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            throw new IllegalArgumentException(value
+                    + " is not a valid double value as per JSON specification.");
+        }
+        // Integral values in plain notation range are formatted as "<int>.0" by Float.toString
+        int intValue = (int) value;
+        if (intValue == value && intValue > -10000000 && intValue < 10000000
+                && (intValue != 0 || Float.floatToRawIntBits(value) == 0)) {
+            this.writeLong(intValue);
+            this.append('.');
+            this.append('0');
+            return;
+        }
+        this.floatBuf.setLength(0);
+        this.floatBuf.append(value);
+        int n = this.floatBuf.length();
+        this.ensure(n);
+        this.floatBuf.getChars(0, n, this.buf, this.len);
+        this.len += n;
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            String s = Long.toString(value);
+            this.ensure(s.length());
+            s.getChars(0, s.length(), this.buf, this.len);
+            this.len += s.length();
+            return;
+        }
+        if (value < 0) {
+            this.append('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        this.ensure(digits);
+        int pos = this.len + digits;
+        do {
+            this.buf[--pos] = (char) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        this.len += digits;
+    }
+
+    private void writeString(String value) {
+        this.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    this.append('\\');
+                    this.append('"');
+                    break;
+                case '\\':
+                    this.append('\\');
+                    this.append('\\');
+                    break;
+                case '\t':
+                    this.append('\\');
+                    this.append('t');
+                    break;
+                case '\b':
+                    this.append('\\');
+                    this.append('b');
+                    break;
+                case '\n':
+                    this.append('\\');
+                    this.append('n');
+                    break;
+                case '\r':
+                    this.append('\\');
+                    this.append('r');
+                    break;
+                case '\f':
+                    this.append('\\');
+                    this.append('f');
+                    break;
+                case '<':
+                case '>':
+                case '&':
+                case '=':
+                case '\'':
+                case '\u2028':
+                case '\u2029':
+                    this.writeUnicodeEscape(c);
+                    break;
+                default:
+                    if (c < 0x20) {
+                        this.writeUnicodeEscape(c);
+                    } else {
+                        this.append(c);
+                    }
+                    break;
+            }
+        }
+        this.append('"');
+    }
+
+    private void writeUnicodeEscape(char c) {
+        this.ensure(6);
+        this.buf[this.len++] = '\\';
+        this.buf[this.len++] = 'u';
+        this.buf[this.len++] = HEX[(c >> 12) & 0xF];
+        this.buf[this.len++] = HEX[(c >> 8) & 0xF];
+        this.buf[this.len++] = HEX[(c >> 4) & 0xF];
+        this.buf[this.len++] = HEX[c & 0xF];
+    }
+
+    private void append(char c) {
+        this.ensure(1);
+        this.buf[this.len++] = c;
+    }
+
+    private void ensure(int n) {
+        if (this.len + n > this.buf.length) {
+            this.buf = Arrays.copyOf(this.buf, Math.max(this.len + n, this.buf.length * 2));
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.sangraama.jsonprotocols;
+
+import java.nio.ByteBuffer;
+
+import org.sangraama.assets.SangraamaMap;
+import org.sangraama.common.Constants;
+import org.sangraama.gameLogic.GameInstanceRegistry;
+
+/**
+ * Fixed point form of positions and angles in binary frames, used when
+ * {@link Constants#quantizeBinary} is set. Otherwise they are written as floats.
+ *
+ * A coordinate is u8 index of the sub-tile column (x) or row (y) which contains it, counted from
+ * the world origin, followed by u16 offset inside that sub-tile in units of
+ * subTileSize / 65535. Client gets the sub-tile size from TileInfo and restores the coordinate as
+ * (index + offset / 65535) * subTileSize. Error is at most subTileSize / 131070; coordinates
+ * outside of the first 256 sub-tiles are clamped.
+ *
+ * An angle is u16 holding angleBits bits, in units of 2 PI / 2^angleBits radians in [0, 2 PI).
+ * Error is at most PI / 2^angleBits.
+ *
+ * Sub-tile size is taken from the map which is bound to the encoding thread, since each game
+ * instance of the server has its own map (see GameInstance). Threads which don't have a map use
+ * the map of the default game instance.
+ */
+public final class Quantizer {
+    public static final int OFFSET_STEPS = 0xFFFF;
+    public static final int MAX_INDEX = 0xFF;
+    private static final double TWO_PI = 2 * Math.PI;
+    /* Map of the game instance whose frames are encoded by the thread */
+    private static final ThreadLocal<SangraamaMap> boundMap = new ThreadLocal<>();
+
+    private Quantizer() {
+    }
+
+    /**
+     * Use the sub-tile size of a map for the coordinates written by the current thread. Called by
+     * the threads of a game instance which encode frames.
+     *
+     * @param map
+     *            map of the game instance
+     */
+    public static void bindMap(SangraamaMap map) {
+        boundMap.set(map);
+    }
+
+    private static SangraamaMap getMap() {
+        SangraamaMap map = boundMap.get();
+        return map != null ? map : GameInstanceRegistry.INSTANCE.getDefault().getMap();
+    }
+
+    /**
+     * Get number of bytes used to write a coordinate
+     */
+    public static int positionSize() {
+        return Constants.quantizeBinary ? 3 : 4;
+    }
+
+    /**
+     * Get number of bytes used to write an angle
+     */
+    public static int angleSize() {
+        return Constants.quantizeBinary ? 2 : 4;
+    }
+
+    public static void putX(ByteBuffer buf, float x) {
+        if (Constants.quantizeBinary) {
+            putPosition(buf, x, getMap().getSubTileWidth());
+        } else {
+            buf.putFloat(x);
+        }
+    }
+
+    public static void putY(ByteBuffer buf, float y) {
+        if (Constants.quantizeBinary) {
+            putPosition(buf, y, getMap().getSubTileHeight());
+        } else {
+            buf.putFloat(y);
+        }
+    }
+
+    public static void putAngle(ByteBuffer buf, float angle) {
+        if (Constants.quantizeBinary) {
+            putAngle(buf, angle, Constants.angleBits);
+        } else {
+            buf.putFloat(angle);
+        }
+    }
+
+    /**
+     * Write a coordinate as sub-tile index and fixed point offset
+     *
+     * @param buf
+     *            buffer to write into
+     * @param value
+     *            coordinate in JBox2D units
+     * @param subTileSize
+     *            width (x) or height (y) of a sub-tile
+     */
+    public static void putPosition(ByteBuffer buf, float value, float subTileSize) {
+        int index = (int) Math.floor(value / subTileSize);
+        int offset;
+        if (index < 0) {
+            index = 0;
+            offset = 0;
+        } else if (index > MAX_INDEX) {
+            index = MAX_INDEX;
+            offset = OFFSET_STEPS;
+        } else {
+            double fraction = (value - (double) index * subTileSize) / subTileSize;
+            offset = (int) Math.round(fraction * OFFSET_STEPS);
+            if (offset > OFFSET_STEPS) {
+                offset = OFFSET_STEPS;
+            } else if (offset < 0) {
+                offset = 0;
+            }
+        }
+        buf.put((byte) index);
+        buf.putShort((short) offset);
+    }
+
+    /**
+     * Read a coordinate written by putPosition
+     *
+     * @param buf
+     *            buffer to read from
+     * @param subTileSize
+     *            width (x) or height (y) of a sub-tile
+     * @return coordinate in JBox2D units
+     */
+    public static float getPosition(ByteBuffer buf, float subTileSize) {
+        int index = buf.get() & 0xFF;
+        int offset = buf.getShort() & 0xFFFF;
+        return (float) ((index + (double) offset / OFFSET_STEPS) * subTileSize);
+    }
+
+    /**
+     * Write an angle in fixed point
+     *
+     * @param buf
+     *            buffer to write into
+     * @param angle
+     *            angle in radians, any value
+     * @param bits
+     *            precision, 1 to 16 bits
+     */
+    public static void putAngle(ByteBuffer buf, float angle, int bits) {
+        int steps = 1 << bits;
+        double turn = (angle % TWO_PI) / TWO_PI;
+        if (turn < 0) {
+            turn += 1;
+        }
+        buf.putShort((short) (Math.round(turn * steps) & (steps - 1)));
+    }
+
+    /**
+     * Read an angle written by putAngle
+     *
+     * @param buf
+     *            buffer to read from
+     * @param bits
+     *            precision which the angle was written with
+     * @return angle in radians in [0, 2 PI)
+     */
+    public static float getAngle(ByteBuffer buf, int bits) {
+        return (float) ((buf.getShort() & 0xFFFF) * TWO_PI / (1 << bits));
+    }
+}
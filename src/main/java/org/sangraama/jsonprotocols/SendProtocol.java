@@ -1,5 +1,7 @@
 package org.sangraama.jsonprotocols;
 
+import java.nio.ByteBuffer;
+
 public abstract class SendProtocol {
     protected int type = 1;
     protected long userID;
@@ -10,6 +12,41 @@ public abstract class SendProtocol {
 
     }
 
+    /**
+     * Get number of bytes of the binary form of the message. Messages which are only sent as JSON
+     * don't override this.
+     * 
+     * @return size in bytes, -1 if the message doesn't have a binary form
+     * @see BinaryProtocol
+     */
+    public int getBinarySize() {
+        return -1;
+    }
+
+    /**
+     * Write the message in binary form. Subclasses write the header via super, then their fields.
+     * 
+     * @param buf
+     *            little-endian buffer with at least getBinarySize() bytes remaining
+     */
+    public void writeBinary(ByteBuffer buf) {
+        buf.put((byte) type);
+        buf.putLong(userID);
+    }
+
+    /**
+     * Write the fields of the message for {@link JsonEncoder}. Subclasses write their own fields
+     * first, in declaration order, then call super; so output is the same as Gson. Every subclass
+     * which declares serialized fields must override this.
+     * 
+     * @param out
+     *            encoder of the current thread
+     */
+    protected void writeJsonFields(JsonEncoder out) {
+        out.field("type", type);
+        out.field("userID", userID);
+    }
+
     @Override
     public String toString() {
         return "SendProtocol [type=" + type + ", userID=" + userID + "]";
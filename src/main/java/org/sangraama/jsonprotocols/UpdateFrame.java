@@ -0,0 +1,53 @@
+package org.sangraama.jsonprotocols;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * A list of updates encoded for the protocol of a connection: either JSON text or a binary frame.
+ */
+public final class UpdateFrame {
+    private final CharBuffer text;
+    private final ByteBuffer binary;
+    private long tick = -1; // tick of the AOI frame, -1 for other updates
+
+    private UpdateFrame(CharBuffer text, ByteBuffer binary) {
+        this.text = text;
+        this.binary = binary;
+    }
+
+    public static UpdateFrame text(CharBuffer text) {
+        return new UpdateFrame(text, null);
+    }
+
+    public static UpdateFrame binary(ByteBuffer binary) {
+        return new UpdateFrame(null, binary);
+    }
+
+    public boolean isBinary() {
+        return binary != null;
+    }
+
+    public CharBuffer getText() {
+        return text;
+    }
+
+    public ByteBuffer getBinary() {
+        return binary;
+    }
+
+    /**
+     * Set the tick of the snapshot which the frame was computed from. Should be set before the
+     * frame is posted to the sender.
+     *
+     * @param tick
+     *            tick number of the frame
+     */
+    public void setTick(long tick) {
+        this.tick = tick;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+}
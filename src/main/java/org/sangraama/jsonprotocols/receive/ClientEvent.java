@@ -1,7 +1,11 @@
 package org.sangraama.jsonprotocols.receive;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
+import org.sangraama.jsonprotocols.BinaryProtocol;
+
 public class ClientEvent {
     private int type;
     private long userID;
@@ -20,6 +24,84 @@ public class ClientEvent {
     private byte[] signedInfo;
     private int st;// player image type
     private int bt;// player bullet image type
+    private long ack; // last tick which client received, 0 if not sent
+
+    /**
+     * Decode an event sent in binary form. Frame is u8 type and i64 userID, followed by
+     * <ul>
+     * <li>1 : v_x, v_y, a, da, s</li>
+     * <li>2 : x, y</li>
+     * <li>3 : w, h</li>
+     * <li>5 : x_vp, y_vp</li>
+     * <li>6 : ack (i64)</li>
+     * <li>20, 21 : info (string), signedInfo (u16 length and bytes)</li>
+     * <li>30 : x, y, w, h, v_x, v_y, a, x_vp, y_vp, st (u16), bt (u16)</li>
+     * <li>31 : w, h, x_vp, y_vp</li>
+     * </ul>
+     * All other fields are f32. Other types only have the header.
+     * 
+     * @param buf
+     *            binary message received from the client
+     * @return decoded event
+     * @see BinaryProtocol
+     */
+    public static ClientEvent fromBinary(ByteBuffer buf) {
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        ClientEvent event = new ClientEvent();
+        event.type = buf.get() & 0xFF;
+        event.userID = buf.getLong();
+        switch (event.type) {
+            case 1:
+                event.v_x = buf.getFloat();
+                event.v_y = buf.getFloat();
+                event.a = buf.getFloat();
+                event.da = buf.getFloat();
+                event.s = buf.getFloat();
+                break;
+            case 2:
+                event.x = buf.getFloat();
+                event.y = buf.getFloat();
+                break;
+            case 3:
+                event.w = buf.getFloat();
+                event.h = buf.getFloat();
+                break;
+            case 5:
+                event.x_vp = buf.getFloat();
+                event.y_vp = buf.getFloat();
+                break;
+            case 6:
+                event.ack = buf.getLong();
+                break;
+            case 20:
+            case 21:
+                event.info = BinaryProtocol.getString(buf);
+                event.signedInfo = BinaryProtocol.getBytes(buf);
+                break;
+            case 30:
+                event.x = buf.getFloat();
+                event.y = buf.getFloat();
+                event.w = buf.getFloat();
+                event.h = buf.getFloat();
+                event.v_x = buf.getFloat();
+                event.v_y = buf.getFloat();
+                event.a = buf.getFloat();
+                event.x_vp = buf.getFloat();
+                event.y_vp = buf.getFloat();
+                event.st = buf.getShort() & 0xFFFF;
+                event.bt = buf.getShort() & 0xFFFF;
+                break;
+            case 31:
+                event.w = buf.getFloat();
+                event.h = buf.getFloat();
+                event.x_vp = buf.getFloat();
+                event.y_vp = buf.getFloat();
+                break;
+            default:
+                break;
+        }
+        return event;
+    }
 
     public int getType() {
         return type;
@@ -99,12 +181,22 @@ public class ClientEvent {
         return bt;
     }
 
+    /**
+     * Get the last tick which client received. Client which sends this gets delta compressed
+     * updates.
+     * 
+     * @return tick number, 0 if not acknowledged
+     */
+    public long getAck() {
+        return ack;
+    }
+
     @Override
     public String toString() {
         return "ClientEvent [type=" + type + ", userID=" + userID + ", x=" + x + ", y=" + y
                 + ", x_vp=" + x_vp + ", y_vp=" + y_vp + ", w=" + w + ", h=" + h + ", v_x=" + v_x
                 + ", v_y=" + v_y + ", a=" + a + ", da=" + da + ", s=" + s + ", info=" + info
-                + ", signedInfo=" + Arrays.toString(signedInfo) + ", st=" + st + ", bt=" + bt + "]";
+                + ", signedInfo=" + Arrays.toString(signedInfo) + ", st=" + st + ", bt=" + bt + ", ack=" + ack + "]";
     }
 
     // Update as necessary before using
@@ -0,0 +1,49 @@
+package org.sangraama.jsonprotocols.send;
+
+import java.nio.ByteBuffer;
+
+import org.sangraama.jsonprotocols.BinaryProtocol;
+import org.sangraama.jsonprotocols.JsonEncoder;
+import org.sangraama.jsonprotocols.SendProtocol;
+
+/**
+ * Inform the client that a game object entered (type 7) or left (type 8) its Area of Interest.
+ * userID is the owner of the object; id is the user ID of a ship or the ID of a bullet.
+ */
+public class AOIEvent extends SendProtocol {
+    private long id;
+    private int k; // kind of the object : 1 - ship; 2 - bullet
+
+    public AOIEvent(boolean isEnter, long userID, long id, int kind) {
+        super(isEnter ? 7 : 8, userID);
+        this.id = id;
+        this.k = kind;
+    }
+
+    @Override
+    public int getBinarySize() {
+        return BinaryProtocol.HEADER_SIZE + 9;
+    }
+
+    @Override
+    public void writeBinary(ByteBuffer buf) {
+        super.writeBinary(buf);
+        buf.putLong(id);
+        buf.put((byte) k);
+    }
+
+    @Override
+    protected void writeJsonFields(JsonEncoder out) {
+        out.field("id", id);
+        out.field("k", k);
+        super.writeJsonFields(out);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getKind() {
+        return k;
+    }
+}
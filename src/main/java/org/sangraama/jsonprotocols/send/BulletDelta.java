@@ -1,6 +1,9 @@
 package org.sangraama.jsonprotocols.send;
 
+import java.nio.ByteBuffer;
+
 import org.sangraama.jsonprotocols.AbsDelta;
+import org.sangraama.jsonprotocols.JsonEncoder;
 
 public class BulletDelta extends AbsDelta {
     private long id;
@@ -10,6 +13,23 @@ public class BulletDelta extends AbsDelta {
         this.id = id;
     }
 
+    @Override
+    public int getBinarySize() {
+        return super.getBinarySize() + 8;
+    }
+
+    @Override
+    public void writeBinary(ByteBuffer buf) {
+        super.writeBinary(buf);
+        buf.putLong(id);
+    }
+
+    @Override
+    protected void writeJsonFields(JsonEncoder out) {
+        out.field("id", id);
+        super.writeJsonFields(out);
+    }
+
     public long getId() {
         return id;
     }
@@ -0,0 +1,41 @@
+package org.sangraama.jsonprotocols.send;
+
+import java.nio.ByteBuffer;
+
+import org.sangraama.jsonprotocols.BinaryProtocol;
+import org.sangraama.jsonprotocols.JsonEncoder;
+import org.sangraama.jsonprotocols.SendProtocol;
+
+/**
+ * Client should stop simulating a bullet (type 15): it hit something, ran out of range or left the
+ * AOI. userID is the owner of the bullet.
+ */
+public class BulletDespawn extends SendProtocol {
+    private long id;
+
+    public BulletDespawn(long userID, long id) {
+        super(15, userID);
+        this.id = id;
+    }
+
+    @Override
+    public int getBinarySize() {
+        return BinaryProtocol.HEADER_SIZE + 8;
+    }
+
+    @Override
+    public void writeBinary(ByteBuffer buf) {
+        super.writeBinary(buf);
+        buf.putLong(id);
+    }
+
+    @Override
+    protected void writeJsonFields(JsonEncoder out) {
+        out.field("id", id);
+        super.writeJsonFields(out);
+    }
+
+    public long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,67 @@
+package org.sangraama.jsonprotocols.send;
+
+import java.nio.ByteBuffer;
+
+import org.sangraama.jsonprotocols.BinaryProtocol;
+import org.sangraama.jsonprotocols.JsonEncoder;
+import org.sangraama.jsonprotocols.Quantizer;
+import org.sangraama.jsonprotocols.SendProtocol;
+
+/**
+ * A bullet which the client should simulate (type 14). userID is the owner of the bullet. x, y is
+ * the position of the bullet on tick t and vx, vy its velocity in units per second, so on a later
+ * tick the bullet is at x + vx * (tick - t) * Constants.timeStep (same for y). Sent once when the
+ * bullet comes into the AOI of the client, and again if its velocity changes (Ex: bounce).
+ */
+public class BulletSpawn extends SendProtocol {
+    private long id;
+    private float x, y;
+    private float vx, vy;
+    private int it; // image type
+    private long t; // tick of the position
+
+    public BulletSpawn(long userID, long id, float x, float y, float vx, float vy,
+            int imageType, long tick) {
+        super(14, userID);
+        this.id = id;
+        this.x = x;
+        this.y = y;
+        this.vx = vx;
+        this.vy = vy;
+        this.it = imageType;
+        this.t = tick;
+    }
+
+    @Override
+    public int getBinarySize() {
+        return BinaryProtocol.HEADER_SIZE + 26 + 2 * Quantizer.positionSize();
+    }
+
+    @Override
+    public void writeBinary(ByteBuffer buf) {
+        super.writeBinary(buf);
+        buf.putLong(id);
+        Quantizer.putX(buf, x);
+        Quantizer.putY(buf, y);
+        buf.putFloat(vx);
+        buf.putFloat(vy);
+        buf.putShort((short) it);
+        buf.putLong(t);
+    }
+
+    @Override
+    protected void writeJsonFields(JsonEncoder out) {
+        out.field("id", id);
+        out.field("x", x);
+        out.field("y", y);
+        out.field("vx", vx);
+        out.field("vy", vy);
+        out.field("it", it);
+        out.field("t", t);
+        super.writeJsonFields(out);
+    }
+
+    public long getId() {
+        return id;
+    }
+}
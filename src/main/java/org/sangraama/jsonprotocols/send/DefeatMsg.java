@@ -1,6 +1,9 @@
 package org.sangraama.jsonprotocols.send;
 
+import java.nio.ByteBuffer;
+
 import org.sangraama.jsonprotocols.AbsDelta;
+import org.sangraama.jsonprotocols.JsonEncoder;
 
 public class DefeatMsg extends AbsDelta {
 
@@ -14,6 +17,23 @@ public class DefeatMsg extends AbsDelta {
         this.score = score;
     }
 
+    @Override
+    public int getBinarySize() {
+        return super.getBinarySize() + 4;
+    }
+
+    @Override
+    public void writeBinary(ByteBuffer buf) {
+        super.writeBinary(buf);
+        buf.putFloat(score);
+    }
+
+    @Override
+    protected void writeJsonFields(JsonEncoder out) {
+        out.field("score", score);
+        super.writeJsonFields(out);
+    }
+
     public float getScore() {
         return score;
     }
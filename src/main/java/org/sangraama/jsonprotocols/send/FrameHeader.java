@@ -0,0 +1,50 @@
+package org.sangraama.jsonprotocols.send;
+
+import java.nio.ByteBuffer;
+
+import org.sangraama.jsonprotocols.BinaryProtocol;
+import org.sangraama.jsonprotocols.JsonEncoder;
+import org.sangraama.jsonprotocols.SendProtocol;
+
+/**
+ * First message of an update frame of a client who uses delta compression. t is the tick of the
+ * frame, which client acknowledges. b is the tick which changes of the frame are based on; -1
+ * means the frame is a keyframe and carries the full state.
+ */
+public class FrameHeader extends SendProtocol {
+    private long t; // tick
+    private long b; // base tick
+
+    public FrameHeader(long userID, long tick, long baseTick) {
+        super(12, userID);
+        this.t = tick;
+        this.b = baseTick;
+    }
+
+    @Override
+    public int getBinarySize() {
+        return BinaryProtocol.HEADER_SIZE + 16;
+    }
+
+    @Override
+    public void writeBinary(ByteBuffer buf) {
+        super.writeBinary(buf);
+        buf.putLong(t);
+        buf.putLong(b);
+    }
+
+    @Override
+    protected void writeJsonFields(JsonEncoder out) {
+        out.field("t", t);
+        out.field("b", b);
+        super.writeJsonFields(out);
+    }
+
+    public long getTick() {
+        return t;
+    }
+
+    public long getBaseTick() {
+        return b;
+    }
+}
@@ -1,10 +1,19 @@
 package org.sangraama.jsonprotocols.send;
 
+import java.nio.ByteBuffer;
+
 import org.sangraama.jsonprotocols.AbsDelta;
+import org.sangraama.jsonprotocols.JsonEncoder;
 
+/**
+ * Full state of a ship (type 1). In dead reckoning mode the velocity of the ship is sent too
+ * (type 3), and the client extrapolates the position until next update (see PlayerUpdate).
+ */
 public class PlayerDelta extends AbsDelta {
     private float health;
     private float score;
+    /* only sent as type 3 */
+    private transient float vx, vy;
 
     public PlayerDelta(float dx, float dy, float da, long userID, float health, float score,
             int imageType) {
@@ -13,6 +22,42 @@ public class PlayerDelta extends AbsDelta {
         this.health = health;
     }
 
+    public PlayerDelta(float dx, float dy, float da, long userID, float health, float score,
+            int imageType, float vx, float vy) {
+        super(3, userID, dx, dy, da, imageType);
+        this.score = score;
+        this.health = health;
+        this.vx = vx;
+        this.vy = vy;
+    }
+
+    @Override
+    public int getBinarySize() {
+        return super.getBinarySize() + (type == 3 ? 16 : 8);
+    }
+
+    @Override
+    public void writeBinary(ByteBuffer buf) {
+        super.writeBinary(buf);
+        buf.putFloat(health);
+        buf.putFloat(score);
+        if (type == 3) {
+            buf.putFloat(vx);
+            buf.putFloat(vy);
+        }
+    }
+
+    @Override
+    protected void writeJsonFields(JsonEncoder out) {
+        out.field("health", health);
+        out.field("score", score);
+        if (type == 3) {
+            out.field("vx", vx);
+            out.field("vy", vy);
+        }
+        super.writeJsonFields(out);
+    }
+
     public float getHealth() {
         return health;
     }
@@ -0,0 +1,128 @@
+package org.sangraama.jsonprotocols.send;
+
+import java.nio.ByteBuffer;
+
+import org.sangraama.jsonprotocols.BinaryProtocol;
+import org.sangraama.jsonprotocols.JsonEncoder;
+import org.sangraama.jsonprotocols.Quantizer;
+import org.sangraama.jsonprotocols.SendProtocol;
+
+/**
+ * Partial state of a ship (type 2). Only the fields which changed since the base tick of the frame
+ * are sent; m is the mask of the fields which are present. Other fields keep the value of the base
+ * tick. Same field names as PlayerDelta.
+ *
+ * VELOCITY is sent in dead reckoning mode along with a corrected position. Until next correction
+ * the client extrapolates the position of the ship as position + velocity * (ticks since the
+ * correction) * Constants.timeStep.
+ */
+public class PlayerUpdate extends SendProtocol {
+    public static final int X = 1;
+    public static final int Y = 2;
+    public static final int ANGLE = 4;
+    public static final int HEALTH = 8;
+    public static final int SCORE = 16;
+    public static final int IMAGE_TYPE = 32;
+    public static final int VELOCITY = 64;
+
+    private int m; // mask of present fields
+    private float dx, dy, da, health, score;
+    private int it;
+    private float vx, vy;
+
+    public PlayerUpdate(long userID, int mask, float dx, float dy, float da, float health,
+            float score, int imageType) {
+        this(userID, mask, dx, dy, da, health, score, imageType, 0, 0);
+    }
+
+    public PlayerUpdate(long userID, int mask, float dx, float dy, float da, float health,
+            float score, int imageType, float vx, float vy) {
+        super(2, userID);
+        this.m = mask;
+        this.dx = dx;
+        this.dy = dy;
+        this.da = da;
+        this.health = health;
+        this.score = score;
+        this.it = imageType;
+        this.vx = vx;
+        this.vy = vy;
+    }
+
+    @Override
+    public int getBinarySize() {
+        int size = BinaryProtocol.HEADER_SIZE + 1;
+        size += Quantizer.positionSize() * Integer.bitCount(m & (X | Y));
+        if ((m & ANGLE) != 0) {
+            size += Quantizer.angleSize();
+        }
+        size += 4 * Integer.bitCount(m & (HEALTH | SCORE));
+        if ((m & IMAGE_TYPE) != 0) {
+            size += 2;
+        }
+        if ((m & VELOCITY) != 0) {
+            size += 8;
+        }
+        return size;
+    }
+
+    @Override
+    public void writeBinary(ByteBuffer buf) {
+        super.writeBinary(buf);
+        buf.put((byte) m);
+        if ((m & X) != 0) {
+            Quantizer.putX(buf, dx);
+        }
+        if ((m & Y) != 0) {
+            Quantizer.putY(buf, dy);
+        }
+        if ((m & ANGLE) != 0) {
+            Quantizer.putAngle(buf, da);
+        }
+        if ((m & HEALTH) != 0) {
+            buf.putFloat(health);
+        }
+        if ((m & SCORE) != 0) {
+            buf.putFloat(score);
+        }
+        if ((m & IMAGE_TYPE) != 0) {
+            buf.putShort((short) it);
+        }
+        if ((m & VELOCITY) != 0) {
+            buf.putFloat(vx);
+            buf.putFloat(vy);
+        }
+    }
+
+    @Override
+    protected void writeJsonFields(JsonEncoder out) {
+        out.field("m", m);
+        if ((m & X) != 0) {
+            out.field("dx", dx);
+        }
+        if ((m & Y) != 0) {
+            out.field("dy", dy);
+        }
+        if ((m & ANGLE) != 0) {
+            out.field("da", da);
+        }
+        if ((m & HEALTH) != 0) {
+            out.field("health", health);
+        }
+        if ((m & SCORE) != 0) {
+            out.field("score", score);
+        }
+        if ((m & IMAGE_TYPE) != 0) {
+            out.field("it", it);
+        }
+        if ((m & VELOCITY) != 0) {
+            out.field("vx", vx);
+            out.field("vy", vy);
+        }
+        super.writeJsonFields(out);
+    }
+
+    public int getMask() {
+        return m;
+    }
+}
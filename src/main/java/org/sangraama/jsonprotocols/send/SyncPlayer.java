@@ -1,6 +1,10 @@
 package org.sangraama.jsonprotocols.send;
 
+import java.nio.ByteBuffer;
+
 import org.sangraama.coordination.staticPartition.TileCoordinator;
+import org.sangraama.jsonprotocols.BinaryProtocol;
+import org.sangraama.jsonprotocols.JsonEncoder;
 import org.sangraama.jsonprotocols.SendProtocol;
 
 import com.google.gson.Gson;
@@ -9,6 +13,7 @@ import com.google.gson.Gson;
 public class SyncPlayer extends SendProtocol {
     private float x, y, x_vp, y_vp, a, w, h;
     private String al; // Access Level
+    private transient byte[] alBytes; // UTF-8 of access level for binary form
 
     /**
      * For player
@@ -58,4 +63,52 @@ public class SyncPlayer extends SendProtocol {
         super(4, userID);
     }
 
+    @Override
+    protected void writeJsonFields(JsonEncoder out) {
+        out.field("x", x);
+        out.field("y", y);
+        out.field("x_vp", x_vp);
+        out.field("y_vp", y_vp);
+        out.field("a", a);
+        out.field("w", w);
+        out.field("h", h);
+        out.field("al", al);
+        super.writeJsonFields(out);
+    }
+
+    /**
+     * Binary form. Close (type 4) only has the header; other types have x, y, x_vp, y_vp, a, w, h
+     * and access level.
+     */
+    @Override
+    public int getBinarySize() {
+        if (type == 4) {
+            return BinaryProtocol.HEADER_SIZE;
+        }
+        return BinaryProtocol.HEADER_SIZE + 28 + BinaryProtocol.stringSize(getAlBytes());
+    }
+
+    @Override
+    public void writeBinary(ByteBuffer buf) {
+        super.writeBinary(buf);
+        if (type == 4) {
+            return;
+        }
+        buf.putFloat(x);
+        buf.putFloat(y);
+        buf.putFloat(x_vp);
+        buf.putFloat(y_vp);
+        buf.putFloat(a);
+        buf.putFloat(w);
+        buf.putFloat(h);
+        BinaryProtocol.putString(buf, getAlBytes());
+    }
+
+    private byte[] getAlBytes() {
+        if (alBytes == null && al != null) {
+            alBytes = al.getBytes(BinaryProtocol.UTF8);
+        }
+        return alBytes;
+    }
+
 }
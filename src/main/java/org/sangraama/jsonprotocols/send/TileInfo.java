@@ -3,6 +3,7 @@ package org.sangraama.jsonprotocols.send;
 import java.util.ArrayList;
 
 import org.sangraama.coordination.staticPartition.TileCoordinator;
+import org.sangraama.jsonprotocols.JsonEncoder;
 import org.sangraama.jsonprotocols.SendProtocol;
 
 import com.google.gson.Gson;
@@ -18,9 +19,9 @@ public class TileInfo  extends SendProtocol{
     /* 11 : set the size of the tile */
     private String tiles;
 
-    public TileInfo(long userID) {
+    public TileInfo(long userID, TileCoordinator tileCoordinator) {
         super(16, userID);
-        this.tiles = new Gson().toJson(TileCoordinator.INSTANCE.getSubTilesCoordinations());
+        this.tiles = new Gson().toJson(tileCoordinator.getSubTilesCoordinations());
     }
 
     public TileInfo(long userID, ArrayList<SangraamaTile> tiles) {
@@ -28,4 +29,10 @@ public class TileInfo  extends SendProtocol{
         this.tiles = new Gson().toJson(tiles);
     }
 
+    @Override
+    protected void writeJsonFields(JsonEncoder out) {
+        out.field("tiles", tiles);
+        super.writeJsonFields(out);
+    }
+
 }
@@ -2,6 +2,9 @@ package org.sangraama.jsonprotocols.transfer;
 
 import org.jbox2d.common.Vec2;
 import org.sangraama.assets.Bullet;
+import org.sangraama.assets.BulletPool;
+import org.sangraama.gameLogic.GameInstance;
+import org.sangraama.jsonprotocols.JsonEncoder;
 import org.sangraama.jsonprotocols.SendProtocol;
 import org.sangraama.util.SignMsg;
 
@@ -40,20 +43,30 @@ public class BulletTransferReq extends SendProtocol {
         signedInfo = SignMsg.INSTANCE.signMessage(info);
     }
 
+    @Override
+    protected void writeJsonFields(JsonEncoder out) {
+        out.field("info", info);
+        out.field("signedInfo", signedInfo);
+        super.writeJsonFields(out);
+    }
+
     /**
      * This method is used to extracted the information of the bullet which is passed. This returns
      * the bullet to generated it.
      * 
+     * @param instance
+     *            game instance which the bullet is passed to
      * @param info
      *            GSON string of the bullet information
      * @return bullet Bullet object after extracting the information
      */
-    public Bullet reCreateBullet(String info) {
+    public Bullet reCreateBullet(GameInstance instance, String info) {
         Bullet bullet = null;
         Gson gson = new Gson();
         BulletTransferInfo bulletInfo = gson.fromJson(info, BulletTransferInfo.class);
-        bullet = new Bullet(bulletInfo.id, bulletInfo.playerID, bulletInfo.positionX,
-                bulletInfo.positionY, bulletInfo.velocity, bulletInfo.originX, bulletInfo.originY,
+        bullet = BulletPool.INSTANCE.acquire(instance, bulletInfo.id, bulletInfo.playerID,
+                bulletInfo.positionX, bulletInfo.positionY, bulletInfo.velocity.x,
+                bulletInfo.velocity.y, bulletInfo.originX, bulletInfo.originY,
                 bulletInfo.screenHeight, bulletInfo.screenWidth, bulletInfo.bt);
         return bullet;
     }
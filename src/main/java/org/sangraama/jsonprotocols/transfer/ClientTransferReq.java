@@ -1,5 +1,6 @@
 package org.sangraama.jsonprotocols.transfer;
 
+import org.sangraama.jsonprotocols.JsonEncoder;
 import org.sangraama.jsonprotocols.SendProtocol;
 import org.sangraama.util.SignMsg;
 
@@ -25,6 +26,13 @@ public class ClientTransferReq extends SendProtocol {
         signedInfo = SignMsg.INSTANCE.signMessage(info);
     }
 
+    @Override
+    protected void writeJsonFields(JsonEncoder out) {
+        out.field("info", info);
+        out.field("signedInfo", signedInfo);
+        super.writeJsonFields(out);
+    }
+
     private class ClientTransferInfo {
         private float positionX;
         private float positionY;
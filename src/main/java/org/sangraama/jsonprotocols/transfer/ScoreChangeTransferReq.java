@@ -1,5 +1,6 @@
 package org.sangraama.jsonprotocols.transfer;
 
+import org.sangraama.jsonprotocols.JsonEncoder;
 import org.sangraama.jsonprotocols.SendProtocol;
 import org.sangraama.util.SignMsg;
 
@@ -17,6 +18,13 @@ public class ScoreChangeTransferReq extends SendProtocol{
         info = gson.toJson(scoreChangeInfo);
         signedInfo = SignMsg.INSTANCE.signMessage(info);
     }
+
+    @Override
+    protected void writeJsonFields(JsonEncoder out) {
+        out.field("info", info);
+        out.field("signedInfo", signedInfo);
+        super.writeJsonFields(out);
+    }
     
     public float getScore(String info){
         Gson gson = new Gson();
@@ -9,10 +9,8 @@ import org.apache.coyote.http11.Http11AprProtocol;
 import org.apache.coyote.http11.Http11NioProtocol;
 import org.apache.coyote.http11.Http11Protocol;
 import org.sangraama.assets.SangraamaMap;
-import org.sangraama.coordination.staticPartition.TileCoordinator;
-import org.sangraama.gameLogic.AOIEngine;
-import org.sangraama.gameLogic.CollisionManager;
-import org.sangraama.gameLogic.GameEngine;
+import org.sangraama.gameLogic.GameInstance;
+import org.sangraama.gameLogic.GameInstanceRegistry;
 import org.sangraama.thrift.server.ThriftServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,18 +26,13 @@ import java.util.Properties;
 public class ServerStarter implements ServletContextListener {
     private Logger log = LoggerFactory.getLogger(ServerStarter.class);
     private ThriftServer thriftServer = null;
-    private Thread gameEngine = null;
-    private Thread aoiEngine = null;
-    private Thread collisionManager = null;
     private Thread thriftServerThread = null;
     private Properties prop;
     public static ServletContext context;
 
     @Override
     public void contextDestroyed(ServletContextEvent arg0) {
-        GameEngine.INSTANCE.setStop();
-        CollisionManager.INSTANCE.setStop();
-        AOIEngine.INSTANCE.setStop();
+        GameInstanceRegistry.INSTANCE.stopAll();
         Hazelcast.shutdownAll();
     }
 
@@ -50,25 +43,14 @@ public class ServerStarter implements ServletContextListener {
         try {
             this.prop.load(getClass().getResourceAsStream("/conf/sangraamaserver.properties"));
             int serverPort = this.getHostPort();
-            SangraamaMap.INSTANCE.setMap(Float.parseFloat(prop.getProperty("maporiginx")),
-                    Float.parseFloat(prop.getProperty("maporiginy")),
-                    Float.parseFloat(prop.getProperty("mapwidth")),
-                    Float.parseFloat(prop.getProperty("mapheight")), prop.getProperty("host") + ":"
-                    + serverPort + "/" + prop.getProperty("dir")
-                    + "/sangraama/player", Float.parseFloat(prop.getProperty("maxlength")),
-                    Float.parseFloat(prop.getProperty("maxheight")));
-
-            SangraamaMap.INSTANCE.setSubTileProperties(
-                    Float.parseFloat(prop.getProperty("subtilewidth")),
-                    Float.parseFloat(prop.getProperty("subtileheight")));
-            this.aoiEngine = new Thread(AOIEngine.INSTANCE);
-            this.aoiEngine.start();
-            this.gameEngine = new Thread(GameEngine.INSTANCE);
-            this.gameEngine.start();
-            this.collisionManager = new Thread(CollisionManager.INSTANCE);
-            this.collisionManager.start();
-            TileCoordinator.INSTANCE.init();// Should initialized after "SangraamaMap"
-            TileCoordinator.INSTANCE.generateSubtiles();
+            this.startGameInstance(GameInstance.DEFAULT_NAME, serverPort);
+            // Additional game instances (Ex: arenas, test shards) served on this JVM
+            String instances = prop.getProperty("instances", "").trim();
+            for (String name : instances.split("\\s*,\\s*")) {
+                if (!name.isEmpty()) {
+                    this.startGameInstance(name, serverPort);
+                }
+            }
 
             // thriftServer = new ThriftServer(Integer.parseInt(prop.getProperty("thriftserverport")));
             // thriftServerThread = new Thread(thriftServer);
@@ -80,6 +62,39 @@ public class ServerStarter implements ServletContextListener {
         }
     }
 
+    /**
+     * Create, register and start a game instance. Properties of the instance are read with the
+     * name of the instance as prefix (Ex: arena2.mapwidth), falling back to the properties of the
+     * server.
+     *
+     * @param name
+     *            name of the game instance
+     * @param serverPort
+     *            port of current running server
+     */
+    private void startGameInstance(String name, int serverPort) {
+        boolean isDefault = GameInstance.DEFAULT_NAME.equals(name);
+        SangraamaMap map = new SangraamaMap();
+        map.setMap(Float.parseFloat(this.getProperty(name, "maporiginx")),
+                Float.parseFloat(this.getProperty(name, "maporiginy")),
+                Float.parseFloat(this.getProperty(name, "mapwidth")),
+                Float.parseFloat(this.getProperty(name, "mapheight")), prop.getProperty("host")
+                        + ":" + serverPort + "/" + prop.getProperty("dir") + "/sangraama/player"
+                        + (isDefault ? "" : "/" + name),
+                Float.parseFloat(this.getProperty(name, "maxlength")),
+                Float.parseFloat(this.getProperty(name, "maxheight")));
+
+        map.setSubTileProperties(Float.parseFloat(this.getProperty(name, "subtilewidth")),
+                Float.parseFloat(this.getProperty(name, "subtileheight")));
+        GameInstance instance = new GameInstance(name, map);
+        GameInstanceRegistry.INSTANCE.register(instance);
+        instance.start();
+    }
+
+    private String getProperty(String instance, String key) {
+        return this.prop.getProperty(instance + "." + key, this.prop.getProperty(key));
+    }
+
     /**
      * Get the port number of current running server
      *
@@ -1,7 +1,6 @@
 package org.sangraama.thrift.transmissionservice;
 
 import org.apache.thrift.TException;
-import org.sangraama.gameLogic.GameEngine;
 import org.sangraama.gameLogic.PassedPlayer;
 import org.sangraama.thrift.assets.TPlayer;
 
@@ -11,7 +10,6 @@ public class PlayerTransmissionServiceImpl implements PlayerTransmissionService.
     public void passPlayer(TPlayer tPlayer) throws TException {
         System.out.println("New player from other server.. ID = " + tPlayer.getId());
 
-        GameEngine gameEngine = GameEngine.INSTANCE;
         // gameEngine.addToPlayerQueue(fillPlayer(tPlayer));
         PassedPlayer.INSTANCE.addPassedPlayer(tPlayer);
     }
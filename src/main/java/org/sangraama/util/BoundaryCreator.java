@@ -10,8 +10,8 @@ public class BoundaryCreator {
 
     private SangraamaMap sangraamaMap;
 
-    public BoundaryCreator(){
-        sangraamaMap = SangraamaMap.INSTANCE;
+    public BoundaryCreator(SangraamaMap sangraamaMap){
+        this.sangraamaMap = sangraamaMap;
 
     }
     public List<Wall> calculateWallBoundary() {
@@ -4,7 +4,7 @@ import java.io.IOException;
 import java.util.Map;
 import java.util.Properties;
 
-import org.sangraama.coordination.staticPartition.TileCoordinator;
+import org.sangraama.gameLogic.GameInstanceRegistry;
 
 import com.hazelcast.core.HazelcastInstance;
 
@@ -15,7 +15,7 @@ public enum GlobalPlayerMaintainer {
     private String host;
 
     private GlobalPlayerMaintainer() {
-        hzctInstance = TileCoordinator.INSTANCE.getHazelcastInstance();
+        hzctInstance = GameInstanceRegistry.INSTANCE.getHazelcastInstance();
         this.globalPlayerMap = hzctInstance.getMap("SangraamaPlayers");
         
         Properties prop= new Properties();
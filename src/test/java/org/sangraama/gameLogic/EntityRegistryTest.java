@@ -0,0 +1,65 @@
+package org.sangraama.gameLogic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Check EntityRegistry against a HashMap with random adds, replaces and removes.
+ */
+public class EntityRegistryTest {
+
+    private static final int OPERATIONS = 2000000;
+
+    @Test
+    public void registryMatchesHashMap() {
+        Random random = new Random(7);
+        EntityRegistry<Object> registry = new EntityRegistry<>();
+        Map<Long, Object> expected = new HashMap<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            // Few keys, so the table grows and shrinks around the same size and probes collide
+            long key = random.nextInt(4000) * 1024L;
+            if (random.nextInt(3) == 0) {
+                Object entity = random.nextBoolean() ? expected.get(key) : new Object();
+                boolean removed = entity != null && entity == expected.get(key);
+                assertEquals("remove of key:" + key, removed, registry.remove(key, entity));
+                if (removed) {
+                    expected.remove(key);
+                }
+            } else {
+                Object entity = new Object();
+                assertSame("put of key:" + key, expected.put(key, entity),
+                        registry.put(key, entity));
+            }
+            assertEquals(expected.size(), registry.size());
+            assertSame("get of key:" + key, expected.get(key), registry.get(key));
+        }
+        for (int i = 0; i < registry.size(); i++) {
+            assertTrue("dense array has a removed entity",
+                    expected.containsValue(registry.getAt(i)));
+        }
+        for (Map.Entry<Long, Object> entry : expected.entrySet()) {
+            assertSame("key:" + entry.getKey(), entry.getValue(), registry.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void copyIsIndependentOfOriginal() {
+        EntityRegistry<Object> registry = new EntityRegistry<>();
+        Object first = new Object();
+        registry.put(1, first);
+        EntityRegistry<Object> copy = new EntityRegistry<>(registry);
+        registry.put(2, new Object());
+        registry.remove(1, first);
+        assertEquals(1, copy.size());
+        assertSame(first, copy.get(1));
+        assertNull(copy.get(2));
+    }
+}
@@ -0,0 +1,107 @@
+package org.sangraama.gameLogic.delta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.sangraama.gameLogic.delta.ClientBaseline.SentFrame;
+
+/**
+ * Check which frame ClientBaseline gives as the baseline of a tick: acknowledged frames while they
+ * are kept in the history, and the previous frame only once it was delivered.
+ */
+public class ClientBaselineTest {
+
+    @Test
+    public void disabledUntilFirstAck() {
+        ClientBaseline baseline = new ClientBaseline();
+        baseline.beginFrame(1);
+        assertFalse(baseline.isEnabled());
+        assertNull(baseline.getBaseline(2));
+        baseline.ack(1);
+        assertTrue(baseline.isEnabled());
+        assertEquals(1, baseline.getBaseline(2).getTick());
+    }
+
+    @Test
+    public void staleAckIsIgnored() {
+        ClientBaseline baseline = new ClientBaseline();
+        for (long tick = 1; tick <= 6; tick++) {
+            baseline.beginFrame(tick);
+        }
+        baseline.ack(5);
+        baseline.ack(3); // arrived late, after the ack of tick 5
+        assertEquals(5, baseline.getAckedTick());
+        assertEquals(5, baseline.getBaseline(7).getTick());
+    }
+
+    @Test
+    public void ackOfCurrentOrFutureTickIsNotABaseline() {
+        ClientBaseline baseline = new ClientBaseline();
+        for (long tick = 1; tick <= 10; tick++) {
+            baseline.beginFrame(tick);
+        }
+        baseline.ack(10);
+        assertNull(baseline.getBaseline(10));
+        baseline.ack(12); // bogus client
+        assertNull(baseline.getBaseline(11));
+        assertNull(baseline.getBaseline(12));
+        baseline.beginFrame(11);
+        baseline.beginFrame(12);
+        assertEquals(12, baseline.getBaseline(13).getTick());
+    }
+
+    @Test
+    public void historyWrapsAtHistorySize() {
+        int history = ClientBaseline.HISTORY;
+        ClientBaseline baseline = new ClientBaseline();
+        for (long tick = 0; tick < history; tick++) {
+            baseline.beginFrame(tick).add(tick, tick, 0, 0, 100, 0, 1);
+        }
+        baseline.ack(0);
+        SentFrame oldest = baseline.getBaseline(history - 1);
+        assertEquals(0, oldest.getTick());
+        assertEquals(0, oldest.find(0));
+
+        // Frame of tick HISTORY replaces the one of tick 0
+        baseline.beginFrame(history);
+        assertNull(baseline.getBaseline(history));
+        baseline.ack(1);
+        assertEquals(1, baseline.getBaseline(history).getTick());
+        assertNull(baseline.getBaseline(1 + history));
+    }
+
+    @Test
+    public void overwrittenSlotIsNotABaseline() {
+        int history = ClientBaseline.HISTORY;
+        ClientBaseline baseline = new ClientBaseline();
+        baseline.beginFrame(1);
+        baseline.beginFrame(1 + history); // same slot, e.g. after a pause of the client
+        baseline.ack(1);
+        assertNull(baseline.getBaseline(history));
+
+        // Acked tick which never got a frame
+        baseline.ack(3);
+        assertNull(baseline.getBaseline(4));
+    }
+
+    @Test
+    public void previousOnlyOnceDelivered() {
+        ClientBaseline baseline = new ClientBaseline();
+        baseline.beginFrame(7);
+        assertNull(baseline.getPrevious(8));
+        baseline.delivered(7);
+        assertEquals(7, baseline.getPrevious(8).getTick());
+
+        // Frame of tick 8 is still in the mailbox
+        baseline.beginFrame(8);
+        assertNull(baseline.getPrevious(9));
+        // Frame of tick 9 replaced it in the mailbox, then was delivered
+        baseline.beginFrame(9);
+        baseline.delivered(9);
+        assertNull(baseline.getPrevious(9));
+        assertEquals(9, baseline.getPrevious(10).getTick());
+    }
+}
@@ -0,0 +1,221 @@
+package org.sangraama.gameLogic.delta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.sangraama.assets.DummyPlayer;
+import org.sangraama.assets.Player;
+import org.sangraama.gameLogic.snapshot.WorldSnapshot;
+import org.sangraama.jsonprotocols.FragmentArena;
+import org.sangraama.jsonprotocols.SendProtocol;
+import org.sangraama.jsonprotocols.send.AOIEvent;
+import org.sangraama.jsonprotocols.send.BulletDespawn;
+import org.sangraama.jsonprotocols.send.FrameHeader;
+import org.sangraama.jsonprotocols.send.PlayerDelta;
+import org.sangraama.jsonprotocols.send.PlayerUpdate;
+
+/**
+ * Check the frames which DeltaCompressor writes for one subscriber over a few ticks: full
+ * entities, partial fragments, changed fields, leave and despawn events, and the fallback to a
+ * keyframe. Every entity of a snapshot is inside the AOI of the subscriber.
+ */
+public class DeltaCompressorTest {
+
+    private static final long USER = 1;
+    /* Keyframe of USER is on tick 99 */
+    private static final int KEYFRAME_INTERVAL = 100;
+
+    private final WorldSnapshot snapshot = new WorldSnapshot();
+    private final FragmentArena fragments = new FragmentArena();
+    private final ClientBaseline baseline = new ClientBaseline();
+    private final List<SendProtocol> events = new ArrayList<>();
+    private int[] result;
+
+    @Test
+    public void entitiesAreSentInFullWithoutBaseline() {
+        DeltaCompressor compressor = this.createCompressor(false);
+        this.startTick(10);
+        this.addShip(1, 1, WorldSnapshot.FIELD_ALL);
+        this.addShip(2, 2, WorldSnapshot.FIELD_ALL);
+        assertEquals(2, this.compress(compressor));
+        assertEquals(0, this.result[0]);
+        assertEquals(1, this.result[1]);
+        assertEquals(1, this.events.size());
+        assertEquals(-1, this.getHeader().getBaseTick());
+    }
+
+    @Test
+    public void changedFieldsAreSentAgainstAckedTick() {
+        DeltaCompressor compressor = this.createCompressor(false);
+        this.startTick(10);
+        this.addShip(1, 1, WorldSnapshot.FIELD_ALL);
+        this.addShip(2, 2, WorldSnapshot.FIELD_ALL);
+        this.compress(compressor);
+        this.baseline.ack(10);
+
+        // Frame of tick 11 was not delivered, so tick 12 is based on the acked tick
+        this.startTick(12);
+        this.addShip(1, 5, WorldSnapshot.FIELD_X);
+        this.addShip(2, 2, 0);
+        int newShip = this.addShip(3, 3, WorldSnapshot.FIELD_ALL);
+        assertEquals(1, this.compress(compressor));
+        assertEquals(newShip, this.result[0]);
+        assertEquals(10, this.getHeader().getBaseTick());
+        List<PlayerUpdate> updates = this.getEvents(PlayerUpdate.class);
+        assertEquals(1, updates.size());
+        assertEquals(PlayerUpdate.X, updates.get(0).getMask());
+    }
+
+    @Test
+    public void dirtyFieldsAreSentAgainstDeliveredPreviousTick() {
+        DeltaCompressor compressor = this.createCompressor(false);
+        this.startTick(10);
+        this.addShip(1, 1, WorldSnapshot.FIELD_ALL);
+        this.addShip(2, 2, WorldSnapshot.FIELD_ALL);
+        this.compress(compressor);
+        this.baseline.delivered(10);
+
+        this.startTick(11);
+        int moved = this.addShip(1, 5, WorldSnapshot.FIELD_X);
+        this.addShip(2, 2, 0);
+        assertEquals(1, this.compress(compressor));
+        assertEquals(this.fragments.getPartial(moved), this.result[0]);
+        assertEquals(10, this.getHeader().getBaseTick());
+        assertEquals(1, this.events.size());
+    }
+
+    @Test
+    public void keyframeIsSentOnItsTick() {
+        DeltaCompressor compressor = this.createCompressor(false);
+        this.startTick(97);
+        this.addShip(1, 1, WorldSnapshot.FIELD_ALL);
+        this.addShip(2, 2, WorldSnapshot.FIELD_ALL);
+        this.compress(compressor);
+        this.baseline.ack(97);
+        this.baseline.delivered(97);
+
+        this.startTick(98);
+        this.addShip(1, 1, 0);
+        this.compress(compressor);
+        assertEquals(97, this.getHeader().getBaseTick());
+        this.baseline.delivered(98);
+
+        // Ship 2 left, but a keyframe replaces the whole state of the client
+        this.startTick(99);
+        this.addShip(1, 1, 0);
+        assertEquals(1, this.compress(compressor));
+        assertEquals(0, this.result[0]);
+        assertEquals(-1, this.getHeader().getBaseTick());
+        assertEquals(1, this.events.size());
+    }
+
+    @Test
+    public void keyframeIsSentWhenAckedTickIsTooOld() {
+        DeltaCompressor compressor = this.createCompressor(false);
+        this.startTick(10);
+        this.addShip(1, 1, WorldSnapshot.FIELD_ALL);
+        this.compress(compressor);
+        this.baseline.ack(10);
+
+        this.startTick(10 + ClientBaseline.HISTORY);
+        this.addShip(1, 1, 0);
+        assertEquals(1, this.compress(compressor));
+        assertEquals(-1, this.getHeader().getBaseTick());
+    }
+
+    @Test
+    public void leaveAndDespawnAreSentForEntitiesOfTheBaseline() {
+        DeltaCompressor compressor = this.createCompressor(true);
+        this.startTick(10);
+        this.addShip(1, 1, WorldSnapshot.FIELD_ALL);
+        this.addShip(2, 2, WorldSnapshot.FIELD_ALL);
+        int spawned = this.addBullet(5, 1, 10);
+        assertEquals(3, this.compress(compressor));
+        assertEquals(this.fragments.getPartial(spawned), this.result[2]);
+        this.baseline.ack(10);
+
+        // Bullet 5 is simulated by the client already, bullet 7 is spawned
+        this.startTick(11);
+        this.addShip(1, 1, 0);
+        this.addBullet(5, 1, 10);
+        int newBullet = this.addBullet(7, 1, 11);
+        assertEquals(1, this.compress(compressor));
+        assertEquals(this.fragments.getPartial(newBullet), this.result[0]);
+        this.assertLeft(2);
+        assertTrue(this.getEvents(BulletDespawn.class).isEmpty());
+
+        // Client has tick 10 only, which doesn't have bullet 7
+        this.startTick(12);
+        this.addShip(1, 1, 0);
+        assertEquals(0, this.compress(compressor));
+        this.assertLeft(2);
+        List<BulletDespawn> despawns = this.getEvents(BulletDespawn.class);
+        assertEquals(1, despawns.size());
+        assertEquals(5, despawns.get(0).getId());
+    }
+
+    private DeltaCompressor createCompressor(boolean spawnOnceBullets) {
+        return new DeltaCompressor(this.fragments, KEYFRAME_INTERVAL, spawnOnceBullets, false);
+    }
+
+    private void startTick(long tick) {
+        this.snapshot.reset(tick, Collections.<Player> emptyList(),
+                Collections.<DummyPlayer> emptyList());
+    }
+
+    private int addShip(long userID, float x, int dirty) {
+        return this.snapshot.addPlayer(userID, x, 0, 0, 100, 0, 1, dirty);
+    }
+
+    private int addBullet(long bulletID, long playerID, long refTick) {
+        int i = this.snapshot.addBullet(bulletID, playerID, 0, 0, 0, 1);
+        this.snapshot.setMotion(i, 1, 0, refTick);
+        return i;
+    }
+
+    /* Encode the fragments of the snapshot as the AOI stage does, then compress the frame */
+    private int compress(DeltaCompressor compressor) {
+        int count = this.snapshot.size();
+        SendProtocol[] deltas = new SendProtocol[count];
+        SendProtocol[] partials = new SendProtocol[count];
+        this.result = new int[count];
+        for (int i = 0; i < count; i++) {
+            deltas[i] = new PlayerDelta(snapshot.getX(i), 0, 0, snapshot.getId(i), 100, 0, 1);
+            if (snapshot.getKind(i) == WorldSnapshot.KIND_BULLET || snapshot.getDirty(i) != 0) {
+                partials[i] = deltas[i];
+            }
+            this.result[i] = i;
+        }
+        this.fragments.encode(deltas, partials, count, false);
+        this.events.clear();
+        return compressor.compress(this.snapshot, USER, this.baseline, this.result, count,
+                this.events);
+    }
+
+    private FrameHeader getHeader() {
+        assertEquals(this.snapshot.getTickNumber(), ((FrameHeader) this.events.get(0)).getTick());
+        return (FrameHeader) this.events.get(0);
+    }
+
+    private void assertLeft(long userID) {
+        List<AOIEvent> leaves = this.getEvents(AOIEvent.class);
+        assertEquals(1, leaves.size());
+        assertEquals(userID, leaves.get(0).getId());
+        assertEquals(WorldSnapshot.KIND_PLAYER, leaves.get(0).getKind());
+    }
+
+    private <T extends SendProtocol> List<T> getEvents(Class<T> type) {
+        List<T> found = new ArrayList<>();
+        for (SendProtocol event : this.events) {
+            if (type.isInstance(event)) {
+                found.add(type.cast(event));
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,85 @@
+package org.sangraama.gameLogic.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Check that AdmissionQueue passes entities from several producer threads to one consumer exactly
+ * once, while the consumer reads a budget of entities per tick as the game engine does. Producers
+ * offer a join storm all at once, then put removals which must not be refused. Threads yield
+ * when the ring is full or empty, so the test also runs on a single CPU.
+ */
+public class AdmissionQueueTest {
+
+    private static final int CAPACITY = 1024;
+    private static final int BUDGET = 16;
+    private static final int PRODUCERS = 4;
+    private static final int ENTITIES = 200000; // per producer
+
+    @Test(timeout = 120000)
+    public void entitiesArriveExactlyOnce() throws InterruptedException {
+        final AdmissionQueue<Integer> queue = new AdmissionQueue<>("test", CAPACITY);
+        Thread[] threads = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < ENTITIES; i++) {
+                        Integer entity = producer * ENTITIES + i;
+                        if (i % 2 == 0) {
+                            queue.put(entity); // removal, never refused
+                        } else {
+                            while (!queue.offer(entity)) {
+                                Thread.yield(); // refused join, connect again later
+                            }
+                        }
+                    }
+                }
+            }, "producer-" + p);
+            threads[p].setDaemon(true);
+        }
+        boolean[] seen = new boolean[PRODUCERS * ENTITIES];
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        int read = 0;
+        while (read < seen.length) {
+            Integer entity;
+            int budget = BUDGET;
+            while (budget-- > 0 && (entity = queue.poll()) != null) {
+                assertFalse("entity:" + entity + " was read twice", seen[entity]);
+                seen[entity] = true;
+                read++;
+            }
+            Thread.yield();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(queue.poll());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void putIsNotRefusedWhenFull() {
+        AdmissionQueue<Integer> queue = new AdmissionQueue<>("test", 2);
+        assertTrue(queue.offer(1));
+        assertTrue(queue.offer(2));
+        assertFalse(queue.offer(3));
+        queue.put(4);
+        assertEquals(1, queue.getRejected());
+        assertEquals(1, queue.getOverflowed());
+        assertEquals(3, queue.size());
+
+        // Overflow list is read after the ring
+        assertEquals(Integer.valueOf(1), queue.poll());
+        assertEquals(Integer.valueOf(2), queue.poll());
+        assertEquals(Integer.valueOf(4), queue.poll());
+        assertNull(queue.poll());
+    }
+}
@@ -0,0 +1,79 @@
+package org.sangraama.gameLogic.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Check that InputRing passes commands from a producer thread to a consumer thread in order and
+ * without tearing: every command carries a sequence number in all of its fields. Consumer drains
+ * the ring in batches, as the game engine does each tick. Threads yield when the ring is full or
+ * empty, so the test also runs on a single CPU.
+ */
+public class InputRingTest {
+
+    private static final int COMMANDS = 2000000;
+
+    @Test(timeout = 60000)
+    public void commandsArriveInOrder() throws InterruptedException {
+        final InputRing ring = new InputRing(64);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int sequence = 0;
+                while (sequence < COMMANDS) {
+                    float value = sequence;
+                    if (ring.offer(InputRing.MOVE, value, value, value, value,
+                            (sequence & 1) == 0)) {
+                        sequence++;
+                    } else {
+                        Thread.yield(); // full, let the consumer run
+                    }
+                }
+            }
+        }, "producer");
+        producer.setDaemon(true);
+        producer.start();
+        int expected = 0;
+        while (expected < COMMANDS) {
+            int count = ring.size();
+            if (count == 0) {
+                Thread.yield();
+            }
+            for (int i = 0; i < count; i++) {
+                float value = expected;
+                String message = "command:" + expected;
+                assertEquals(message, InputRing.MOVE, ring.getType(i));
+                assertEquals(message, value, ring.getVx(i), 0);
+                assertEquals(message, value, ring.getVy(i), 0);
+                assertEquals(message, value, ring.getAngle(i), 0);
+                assertEquals(message, value, ring.getAngularVelocity(i), 0);
+                assertEquals(message, (expected & 1) == 0, ring.isShoot(i));
+                expected++;
+            }
+            ring.consume(count);
+        }
+        producer.join();
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void commandsAreDroppedWhenFull() {
+        InputRing ring = new InputRing(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(InputRing.VIRTUAL_POINT, i, i, 0, 0, false));
+        }
+        assertFalse(ring.offer(InputRing.SCORE, 10, 0, 0, 0, false));
+        assertEquals(1, ring.getDropped());
+        assertEquals(4, ring.size());
+
+        ring.consume(1);
+        assertTrue(ring.offer(InputRing.SCORE, 10, 0, 0, 0, false));
+        assertEquals(InputRing.VIRTUAL_POINT, ring.getType(0));
+        assertEquals(1, ring.getVx(0), 0);
+        assertEquals(InputRing.SCORE, ring.getType(3));
+        assertEquals(10, ring.getVx(3), 0);
+    }
+}
@@ -0,0 +1,184 @@
+package org.sangraama.gameLogic.region;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sangraama.assets.Bullet;
+import org.sangraama.assets.Player;
+import org.sangraama.assets.SangraamaMap;
+import org.sangraama.assets.Ship;
+import org.sangraama.common.Constants;
+import org.sangraama.gameLogic.ContactRing;
+import org.sangraama.gameLogic.EntityRegistry;
+import org.sangraama.gameLogic.GameInstance;
+import org.sangraama.gameLogic.queue.AdmissionQueue;
+
+/**
+ * Check the seams of a RegionGrid: a contact of two ships on both sides of a region border is
+ * recorded once although each region has a ghost of the other ship, and ships which cross borders
+ * are handed over to the region they're on without being lost or duplicated.
+ */
+public class RegionGridTest {
+
+    private static final float TILE_SIZE = 400; // JBox2D units
+    private static final float SUB_TILE_SIZE = 50;
+    private static final int SIDE = 2; // regions per side
+    private static final float SPEED = 6;
+    private static final int SHIPS = 300;
+    private static final int TICKS = 300;
+
+    private static GameInstance instance; // game instance of the ships
+
+    @BeforeClass
+    public static void createInstance() {
+        SangraamaMap map = new SangraamaMap();
+        map.setMap(0, 0, TILE_SIZE * Constants.scale, TILE_SIZE * Constants.scale, "localhost",
+                TILE_SIZE * Constants.scale, TILE_SIZE * Constants.scale);
+        map.setSubTileProperties(SUB_TILE_SIZE * Constants.scale,
+                SUB_TILE_SIZE * Constants.scale);
+        instance = new GameInstance("test", map);
+        // Ships queue themselves to join the game world; nobody reads the queue here
+        instance.getPlayerQueue().init(new AdmissionQueue<Player>("new players", SHIPS + 16),
+                new AdmissionQueue<Player>("removed players", 16),
+                new ConcurrentLinkedQueue<Player>());
+    }
+
+    @AfterClass
+    public static void stopInstance() {
+        instance.setStop(); // ships started the sender threads of the AOI stage
+    }
+
+    @Test(timeout = 60000)
+    public void contactAcrossBorderIsRecordedOnce() {
+        RegionGrid grid = createGrid();
+        EntityRegistry<Player> players = new EntityRegistry<>();
+        float border = TILE_SIZE / SIDE;
+        addShip(grid, players, 1, border - 3, 10, SPEED, 0);
+        addShip(grid, players, 2, border + 3, 10, -SPEED, 0);
+        assertTrue(grid.getRegionAt(border - 3, 10) != grid.getRegionAt(border + 3, 10));
+        int contacts = 0;
+        try {
+            for (long tick = 1; tick <= 40; tick++) {
+                grid.step(tick);
+                contacts += countShipContacts(grid);
+                grid.sync(players, new EntityRegistry<Bullet>());
+            }
+        } finally {
+            grid.setStop();
+        }
+        assertEquals("ship contacts across the border", 1, contacts);
+    }
+
+    @Test(timeout = 60000)
+    public void shipsAreHandedOverAcrossBorders() {
+        Random random = new Random(3);
+        RegionGrid grid = createGrid();
+        EntityRegistry<Player> players = new EntityRegistry<>();
+        EntityRegistry<Bullet> bullets = new EntityRegistry<>();
+        List<Player> ships = new ArrayList<>(SHIPS);
+        for (int i = 0; i < SHIPS; i++) {
+            float angle = random.nextFloat() * 2 * (float) Math.PI;
+            ships.add(addShip(grid, players, i + 1, random.nextFloat() * TILE_SIZE,
+                    random.nextFloat() * TILE_SIZE, SPEED * (float) Math.cos(angle),
+                    SPEED * (float) Math.sin(angle)));
+        }
+        int handovers = 0;
+        try {
+            for (long tick = 1; tick <= TICKS; tick++) {
+                for (Player ship : ships) { // keep ships on the tile
+                    Body body = ship.getBody();
+                    Vec2 p = body.getPosition();
+                    Vec2 v = body.getLinearVelocity();
+                    if ((p.x < 0 && v.x < 0) || (p.x > TILE_SIZE && v.x > 0)) {
+                        body.setLinearVelocity(new Vec2(-v.x, v.y));
+                    }
+                    if ((p.y < 0 && v.y < 0) || (p.y > TILE_SIZE && v.y > 0)) {
+                        body.setLinearVelocity(new Vec2(v.x, -v.y));
+                    }
+                }
+                grid.step(tick);
+                countShipContacts(grid);
+                for (Player ship : ships) {
+                    if (ship.getBody().getUserData() != regionOf(grid, ship)) {
+                        handovers++;
+                    }
+                }
+                grid.sync(players, bullets);
+                for (Player ship : ships) {
+                    assertSame("region of ship:" + ship.getUserID() + " on tick " + tick,
+                            regionOf(grid, ship), ship.getBody().getUserData());
+                }
+                assertEquals("ships owned by the regions on tick " + tick, SHIPS,
+                        countOwnedBodies(grid));
+            }
+        } finally {
+            grid.setStop();
+        }
+        assertTrue("no ship crossed a border", handovers > 0);
+    }
+
+    private static RegionGrid createGrid() {
+        RegionGrid grid = new RegionGrid(instance.getMap(), SIDE, SIDE, Constants.regionMargin,
+                false);
+        grid.start();
+        return grid;
+    }
+
+    private static Player addShip(RegionGrid grid, EntityRegistry<Player> players, long userID,
+            float x, float y, float vx, float vy) {
+        Ship ship = new Ship(instance, userID, x, y, 30, 30, 100, 0, null, 1, 1);
+        Body body = grid.createBody(ship.getBodyDef(), ship.getFixtureDef());
+        body.setLinearVelocity(new Vec2(vx, vy));
+        ship.setBody(body);
+        players.put(userID, ship);
+        return ship;
+    }
+
+    private static PhysicsRegion regionOf(RegionGrid grid, Player ship) {
+        Vec2 p = ship.getBody().getPosition();
+        return grid.getRegionAt(p.x, p.y);
+    }
+
+    /* Count the bodies which are owned by their region, i.e. not ghosts */
+    private static int countOwnedBodies(RegionGrid grid) {
+        int count = 0;
+        for (int r = 0; r < grid.size(); r++) {
+            PhysicsRegion region = grid.get(r);
+            for (Body body = region.getWorld().getBodyList(); body != null; body = body
+                    .getNext()) {
+                if (body.getUserData() == region) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /* Count and consume ship to ship contacts recorded by the regions */
+    private static int countShipContacts(RegionGrid grid) {
+        int count = 0;
+        for (int r = 0; r < grid.size(); r++) {
+            ContactRing ring = grid.get(r).getContacts();
+            int size = ring.size();
+            for (int i = 0; i < size; i++) {
+                if (ring.getCategoryA(i) == Constants.CATEGORY_SHIP
+                        && ring.getCategoryB(i) == Constants.CATEGORY_SHIP) {
+                    count++;
+                }
+            }
+            ring.consume(size);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,75 @@
+package org.sangraama.gameLogic.tick;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Check that TimingWheel expires every timer exactly on its deadline, with random schedules,
+ * reschedules and cancels over deadlines which reach every level of the wheel.
+ */
+public class TimingWheelTest {
+
+    private static final int TICKS = 300000;
+
+    /* Entity with a timer, and the deadline the test expects */
+    private static class Entity {
+        final TimingWheel.Timer<Entity> timer = new TimingWheel.Timer<>(this);
+        long deadline = -1;
+    }
+
+    @Test
+    public void timersExpireOnTheirDeadline() {
+        Random random = new Random(7);
+        TimingWheel<Entity> wheel = new TimingWheel<>(0);
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            entities.add(new Entity());
+        }
+        long[] delays = { 1, 63, 64, 65, 4095, 4096, 4097, 262144, 1 << 24, 1 << 25 };
+        for (long tick = 1; tick <= TICKS; tick++) {
+            int expired = wheel.advance(tick);
+            for (int i = 0; i < expired; i++) {
+                Entity entity = wheel.getExpired(i);
+                assertEquals("expired on tick " + tick, tick, entity.deadline);
+                entity.deadline = -1;
+            }
+            for (int i = 0; i < 20; i++) {
+                Entity entity = entities.get(random.nextInt(entities.size()));
+                if (random.nextInt(4) == 0) {
+                    assertEquals("cancel on tick " + tick, entity.deadline >= 0,
+                            wheel.cancel(entity.timer));
+                    entity.deadline = -1;
+                } else {
+                    long delay = random.nextBoolean() ? delays[random.nextInt(delays.length)]
+                            : 1 + random.nextInt(random.nextBoolean() ? 100 : 100000);
+                    entity.deadline = tick + delay;
+                    wheel.schedule(entity.timer, entity.deadline);
+                }
+            }
+            for (Entity entity : entities) {
+                assertEquals("timer state on tick " + tick, entity.deadline >= 0,
+                        entity.timer.isScheduled());
+            }
+        }
+    }
+
+    @Test
+    public void cancelledTimerDoesNotExpire() {
+        TimingWheel<Entity> wheel = new TimingWheel<>(0);
+        Entity entity = new Entity();
+        wheel.schedule(entity.timer, 10);
+        assertTrue(wheel.cancel(entity.timer));
+        assertFalse(wheel.cancel(entity.timer));
+        for (long tick = 1; tick <= 20; tick++) {
+            assertEquals(0, wheel.advance(tick));
+        }
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,126 @@
+package org.sangraama.jsonprotocols;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.sangraama.jsonprotocols.send.AOIEvent;
+import org.sangraama.jsonprotocols.send.BulletDelta;
+import org.sangraama.jsonprotocols.send.DefeatMsg;
+import org.sangraama.jsonprotocols.send.PlayerDelta;
+import org.sangraama.jsonprotocols.send.SangraamaTile;
+import org.sangraama.jsonprotocols.send.SyncPlayer;
+import org.sangraama.jsonprotocols.send.TileInfo;
+import org.sangraama.jsonprotocols.send.VirtualPointAccessLevel;
+
+import com.google.gson.Gson;
+
+/**
+ * Check that JsonEncoder, and frames assembled from fragments by FragmentArena, write the same
+ * JSON as Gson, which clients were written against.
+ */
+public class JsonEncoderTest {
+
+    /* Values which take different paths in float formatting */
+    private static final float[] SPECIAL_FLOATS = { 0f, -0f, 1f, -1f, 100f, 0.1f, -0.5f,
+            1.0E-4f, 9999999f, 1.0E7f, 1.2345678E8f, Float.MIN_VALUE, 1.0E30f, 3.1415927f };
+    private static final int[] LIST_SIZES = { 5, 20, 80, 320 };
+
+    private final Gson gson = new Gson();
+    private final JsonEncoder encoder = JsonEncoder.forThread();
+
+    @Test
+    public void specialFloatsMatchGson() {
+        List<SendProtocol> messages = new ArrayList<>();
+        for (float f : SPECIAL_FLOATS) {
+            messages.add(new PlayerDelta(f, -f, f / 3, 42, f, f * 7, 2));
+        }
+        this.assertSameAsGson(messages);
+    }
+
+    @Test
+    public void messagesMatchGson() {
+        List<SendProtocol> messages = new ArrayList<>();
+        ArrayList<SangraamaTile> tiles = new ArrayList<>();
+        tiles.add(new SangraamaTile(0, 0, 31.25f, 31.25f));
+        messages.add(new TileInfo(1, tiles));
+        messages.add(new SyncPlayer(1, 10.5f, 20.25f, 30f, 40f, 0.75f, 31f, 17f,
+                new VirtualPointAccessLevel(1, -1)));
+        messages.add(new SyncPlayer(1, 30f, 40f, 31f, 17f));
+        messages.add(new SyncPlayer(1));
+        messages.add(new AOIEvent(true, 1, 2, 1));
+        messages.add(new DefeatMsg(3, 1f, 2f, 3f, 4f, 1));
+        messages.add(new BulletDelta(1.5f, 2.5f, 3.5f, Long.MAX_VALUE, Long.MIN_VALUE, 1));
+        this.assertSameAsGson(messages);
+    }
+
+    @Test
+    public void deltaListsMatchGson() {
+        Random random = new Random(7);
+        for (int n : LIST_SIZES) {
+            this.assertSameAsGson(createDeltas(random, n));
+        }
+    }
+
+    @Test
+    public void assembledFrameMatchesGson() {
+        Random random = new Random(7);
+        for (int n : LIST_SIZES) {
+            List<SendProtocol> deltas = createDeltas(random, n);
+            FragmentArena arena = new FragmentArena();
+            int[] entities = new int[n];
+            for (int i = 0; i < n; i++) {
+                entities[i] = i;
+            }
+            arena.encode(deltas.toArray(new SendProtocol[n]), null, n, false);
+            String assembled = arena.assemble(false, new ArrayList<SendProtocol>(), entities, n)
+                    .getText().toString();
+            assertEquals(gson.toJson(deltas), assembled);
+        }
+    }
+
+    @Test
+    public void nanAndInfinityAreRejectedAsByGson() {
+        float[] invalid = { Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY };
+        for (float f : invalid) {
+            List<SendProtocol> messages = new ArrayList<>();
+            messages.add(new PlayerDelta(f, 0, 0, 42, 0, 0, 2));
+            try {
+                encoder.encode(messages);
+                fail(f + " was encoded");
+            } catch (IllegalArgumentException e) {
+                // same as Gson
+            }
+            try {
+                gson.toJson(messages);
+                fail(f + " was encoded by Gson");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        // Encoder of the thread is still usable after a rejected message
+        this.assertSameAsGson(createDeltas(new Random(7), 5));
+    }
+
+    private void assertSameAsGson(List<SendProtocol> messages) {
+        assertEquals(gson.toJson(messages), encoder.encode(messages).toString());
+    }
+
+    private static List<SendProtocol> createDeltas(Random random, int n) {
+        List<SendProtocol> deltas = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            float x = random.nextFloat() * 156, y = random.nextFloat() * 156;
+            float a = random.nextFloat() * 6.28f;
+            if (i % 3 == 0) {
+                deltas.add(new PlayerDelta(x, y, a, 1000 + i, 100 - i % 100, i * 10, 1));
+            } else {
+                deltas.add(new BulletDelta(x, y, a, 1000 + i / 3, i, 2));
+            }
+        }
+        return deltas;
+    }
+}
@@ -0,0 +1,72 @@
+package org.sangraama.jsonprotocols;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.Test;
+import org.sangraama.common.Constants;
+
+/**
+ * Check that positions and angles written by Quantizer are restored within the documented error
+ * bounds. Sub-tile size matches the default server configuration (1000 px sub-tiles).
+ */
+public class QuantizerTest {
+
+    private static final int SAMPLES = 1000000;
+    private static final float SUB_TILE_SIZE = 1000 / Constants.scale;
+    private static final float WORLD_SIZE = SUB_TILE_SIZE * (Quantizer.MAX_INDEX + 1);
+    /* Half an offset step, plus float rounding of the restored value */
+    private static final double POSITION_BOUND = SUB_TILE_SIZE / (2.0 * Quantizer.OFFSET_STEPS)
+            + Math.ulp(WORLD_SIZE);
+
+    private final Random random = new Random(7);
+    private final ByteBuffer buf = ByteBuffer.allocate(3).order(ByteOrder.LITTLE_ENDIAN);
+
+    @Test
+    public void positionIsRestoredWithinHalfAnOffsetStep() {
+        for (int i = 0; i < SAMPLES; i++) {
+            float value = random.nextFloat() * WORLD_SIZE;
+            if (i < 4) {
+                value = i * SUB_TILE_SIZE; // sub-tile borders
+            }
+            double error = Math.abs(this.restorePosition(value) - value);
+            assertTrue("position " + value + " error " + error, error <= POSITION_BOUND);
+        }
+    }
+
+    @Test
+    public void angleIsRestoredWithinHalfAStep() {
+        for (int bits = 8; bits <= 12; bits++) {
+            double angleBound = Math.PI / (1 << bits) + 1e-6;
+            for (int i = 0; i < SAMPLES; i++) {
+                /* Box2D angles are not normalized */
+                float angle = (random.nextFloat() - 0.5f) * 40;
+                buf.clear();
+                Quantizer.putAngle(buf, angle, bits);
+                buf.flip();
+                double restored = Quantizer.getAngle(buf, bits);
+                double error = Math.abs(Math.IEEEremainder(restored - angle, 2 * Math.PI));
+                String message = "angle " + angle + " bits " + bits + " restored " + restored;
+                assertTrue(message, restored >= 0 && restored < 2 * Math.PI);
+                assertTrue(message, error <= angleBound);
+            }
+        }
+    }
+
+    @Test
+    public void positionOutsideOfSubTileGridIsClamped() {
+        assertEquals(0, this.restorePosition(-1), 0);
+        assertEquals(WORLD_SIZE, this.restorePosition(WORLD_SIZE * 2), POSITION_BOUND);
+    }
+
+    private float restorePosition(float value) {
+        buf.clear();
+        Quantizer.putPosition(buf, value, SUB_TILE_SIZE);
+        buf.flip();
+        return Quantizer.getPosition(buf, SUB_TILE_SIZE);
+    }
+}
@@ -0,0 +1,98 @@
+package org.sangraama.util.test;
+
+import java.util.Collections;
+import java.util.Random;
+
+import org.sangraama.assets.DummyPlayer;
+import org.sangraama.assets.Player;
+import org.sangraama.common.Constants;
+import org.sangraama.gameLogic.aoi.UniformGrid;
+import org.sangraama.gameLogic.snapshot.WorldSnapshot;
+
+/**
+ * Compare brute force AOI scan with the uniform grid spatial index. Runs outside of the server.
+ * 
+ * Usage: java org.sangraama.util.test.AOIBenchmark [tileSize] [subTileSize]
+ * 
+ * Sizes are in JBox2D units. Defaults match the default server configuration (5000 px tile and
+ * 1000 px sub-tiles).
+ */
+public class AOIBenchmark {
+
+    private static final int[] ENTITIES = { 50, 100, 200, 400, 800, 1600, 3200 };
+    private static final int ROUNDS = 200;
+
+    public static void main(String[] args) {
+        float tileSize = args.length > 0 ? Float.parseFloat(args[0]) : 5000 / Constants.scale;
+        float subTileSize = args.length > 1 ? Float.parseFloat(args[1]) : 1000 / Constants.scale;
+        float aoiWidth = Constants.typicalAOISize, aoiHeight = Constants.typicalAOISize * 0.6f;
+        float cellSize = UniformGrid.calCellSize(subTileSize, Constants.typicalAOISize);
+        System.out.println("tile:" + tileSize + " cell:" + cellSize + " aoi:" + aoiWidth + "x"
+                + aoiHeight);
+        System.out.println("entities\tsubscribers\tscan(ms/tick)\tgrid(ms/tick)\tspeedup");
+
+        Random random = new Random(7);
+        for (int n : ENTITIES) {
+            int subscribers = n / 2;
+            WorldSnapshot snapshot = new WorldSnapshot();
+            snapshot.reset(1, Collections.<Player> emptyList(), Collections.<DummyPlayer> emptyList());
+            for (int i = 0; i < n; i++) {
+                snapshot.addPlayer(i, random.nextFloat() * tileSize, random.nextFloat() * tileSize,
+                        0, 100, 0, 1, WorldSnapshot.FIELD_ALL);
+            }
+            float[] vx = new float[subscribers], vy = new float[subscribers];
+            for (int s = 0; s < subscribers; s++) {
+                vx[s] = random.nextFloat() * tileSize;
+                vy[s] = random.nextFloat() * tileSize;
+            }
+            UniformGrid grid = new UniformGrid(0, 0, tileSize, tileSize, cellSize);
+            int[] result = new int[n];
+
+            // warm up
+            for (int r = 0; r < ROUNDS; r++) {
+                scan(snapshot, vx, vy, aoiWidth, aoiHeight, result);
+                grid(grid, snapshot, vx, vy, aoiWidth, aoiHeight, result);
+            }
+            long start = System.nanoTime();
+            long scanFound = 0;
+            for (int r = 0; r < ROUNDS; r++) {
+                scanFound += scan(snapshot, vx, vy, aoiWidth, aoiHeight, result);
+            }
+            double scanMs = (System.nanoTime() - start) / 1e6 / ROUNDS;
+            start = System.nanoTime();
+            long gridFound = 0;
+            for (int r = 0; r < ROUNDS; r++) {
+                gridFound += grid(grid, snapshot, vx, vy, aoiWidth, aoiHeight, result);
+            }
+            double gridMs = (System.nanoTime() - start) / 1e6 / ROUNDS;
+            if (scanFound != gridFound) {
+                System.out.println("ERROR: grid found " + gridFound + " but scan found " + scanFound);
+            }
+            System.out.println(n + "\t\t" + subscribers + "\t\t" + String.format("%.4f", scanMs)
+                    + "\t\t" + String.format("%.4f", gridMs) + "\t\t"
+                    + String.format("%.2f", scanMs / gridMs));
+        }
+    }
+
+    private static int scan(WorldSnapshot snapshot, float[] vx, float[] vy, float w, float h,
+            int[] result) {
+        int found = 0;
+        for (int s = 0; s < vx.length; s++) {
+            found += UniformGrid.scan(snapshot, vx[s] - w / 2, vx[s] + w / 2, vy[s] - h / 2, vy[s]
+                    + h / 2, result);
+        }
+        return found;
+    }
+
+    /* Build cost is included, since grid is rebuilt every tick */
+    private static int grid(UniformGrid grid, WorldSnapshot snapshot, float[] vx, float[] vy,
+            float w, float h, int[] result) {
+        grid.build(snapshot);
+        int found = 0;
+        for (int s = 0; s < vx.length; s++) {
+            found += grid.query(snapshot, vx[s] - w / 2, vx[s] + w / 2, vy[s] - h / 2, vy[s] + h
+                    / 2, result);
+        }
+        return found;
+    }
+}
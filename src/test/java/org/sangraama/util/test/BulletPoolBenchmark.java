@@ -0,0 +1,132 @@
+package org.sangraama.util.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import org.jbox2d.collision.shapes.CircleShape;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.BodyDef;
+import org.jbox2d.dynamics.BodyType;
+import org.jbox2d.dynamics.FixtureDef;
+import org.jbox2d.dynamics.World;
+import org.sangraama.assets.Bullet;
+import org.sangraama.assets.BulletPool;
+import org.sangraama.assets.SangraamaMap;
+import org.sangraama.common.Constants;
+import org.sangraama.gameLogic.GameInstance;
+import org.sangraama.gameLogic.ProjectileEngine;
+
+/**
+ * Measure bytes allocated per shot during sustained fire: bullets and their physics definitions
+ * allocated per shot, bullets taken from BulletPool with shared definitions, and pooled ray cast
+ * bullets which don't have bodies. Each shot lives a fixed number of ticks. Runs outside of the
+ * server, on a HotSpot JVM.
+ *
+ * Usage: java org.sangraama.util.test.BulletPoolBenchmark [shotsPerTick]
+ */
+public class BulletPoolBenchmark {
+
+    private static final int LIFETIME = 15; // ticks, about the range of a bullet
+    private static final int WARM_UP = 200;
+    private static final int TICKS = 1000;
+
+    public static void main(String[] args) {
+        int shots = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        System.out.println("shots/tick:" + shots + " live bullets:" + shots * LIFETIME);
+        System.out.println("mode\t\tbytes/shot\tms/tick");
+        GameInstance instance = new GameInstance("benchmark", new SangraamaMap());
+        run(instance, 0, shots);
+        run(instance, 1, shots);
+        run(instance, 2, shots);
+        instance.setStop();
+    }
+
+    /**
+     * @param instance
+     *            game instance which the bullets are fired in
+     * @param mode
+     *            0 - allocate per shot, 1 - pool, 2 - pool and ray cast
+     */
+    private static void run(GameInstance instance, int mode, int shots) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        Random random = new Random(7);
+        World world = new World(new Vec2(0, 0));
+        ProjectileEngine projectiles = new ProjectileEngine(world);
+        ArrayDeque<Bullet> live = new ArrayDeque<>();
+        long startBytes = 0, startTime = 0;
+        for (int tick = 0; tick < WARM_UP + TICKS; tick++) {
+            if (tick == WARM_UP) {
+                startBytes = threads.getThreadAllocatedBytes(thread);
+                startTime = System.nanoTime();
+            }
+            while (live.size() >= shots * LIFETIME) {
+                Bullet bullet = live.poll();
+                if (mode == 2) {
+                    projectiles.remove(bullet);
+                } else {
+                    world.destroyBody(bullet.getBody());
+                }
+                if (mode > 0) {
+                    BulletPool.INSTANCE.release(bullet);
+                }
+            }
+            for (int i = 0; i < shots; i++) {
+                float x = random.nextFloat() * 200, y = random.nextFloat() * 200;
+                float vx = random.nextFloat() * 20 - 10, vy = random.nextFloat() * 20 - 10;
+                Bullet bullet;
+                if (mode == 0) {
+                    bullet = new Bullet(instance, i, 1, x, y, new Vec2(vx, vy), x, y, 0, 0, 1);
+                    Body body = world.createBody(createBodyDef(x, y));
+                    body.createFixture(createFixtureDef(bullet));
+                    body.setLinearVelocity(bullet.getVelocity());
+                    bullet.setBody(body);
+                } else {
+                    bullet = BulletPool.INSTANCE.acquire(instance, i, 1, x, y, vx, vy, x, y, 0,
+                            0, 1);
+                    if (mode == 2) {
+                        projectiles.add(bullet);
+                    } else {
+                        Body body = world.createBody(bullet.getBodyDef());
+                        body.createFixture(bullet.getFixtureDef());
+                        body.setLinearVelocity(bullet.getVelocity());
+                        bullet.setBody(body);
+                    }
+                }
+                live.add(bullet);
+            }
+            world.step(Constants.timeStep, Constants.velocityIterations,
+                    Constants.positionIterations);
+            projectiles.step(Constants.timeStep);
+        }
+        long bytes = threads.getThreadAllocatedBytes(thread) - startBytes;
+        double ms = (System.nanoTime() - startTime) / 1e6 / TICKS;
+        String[] names = { "per shot", "pool\t", "pool+raycast" };
+        System.out.println(names[mode] + "\t" + bytes / ((long) TICKS * shots) + "\t\t"
+                + String.format("%.3f", ms));
+    }
+
+    /* Definitions as they were created for every shot before pooling */
+    private static BodyDef createBodyDef(float x, float y) {
+        BodyDef bd = new BodyDef();
+        bd.position.set(x, y);
+        bd.type = BodyType.DYNAMIC;
+        bd.bullet = true;
+        return bd;
+    }
+
+    private static FixtureDef createFixtureDef(Bullet bullet) {
+        CircleShape circle = new CircleShape();
+        circle.m_radius = 0.5f;
+        FixtureDef fd = new FixtureDef();
+        fd.shape = circle;
+        fd.density = 0.1f;
+        fd.userData = bullet;
+        fd.restitution = 0.5f;
+        fd.filter.groupIndex = 2;
+        return fd;
+    }
+}
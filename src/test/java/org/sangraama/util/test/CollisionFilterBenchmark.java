@@ -0,0 +1,139 @@
+package org.sangraama.util.test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.jbox2d.collision.shapes.CircleShape;
+import org.jbox2d.collision.shapes.PolygonShape;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.BodyDef;
+import org.jbox2d.dynamics.BodyType;
+import org.jbox2d.dynamics.FixtureDef;
+import org.jbox2d.dynamics.World;
+import org.jbox2d.dynamics.contacts.Contact;
+import org.sangraama.common.CollisionMatrix;
+import org.sangraama.common.Constants;
+import org.sangraama.gameLogic.PairCounter;
+
+/**
+ * Compare broad phase pairs, contacts and ms per tick of a game world where every fixture is in
+ * filter group 2 (as before the collision matrix) and of the same world filtered by
+ * CollisionMatrix. Every ship fires a stream of bullets which live about the range of a bullet.
+ * Runs outside of the server.
+ *
+ * Usage: java org.sangraama.util.test.CollisionFilterBenchmark [ships] [shotsPerTick]
+ */
+public class CollisionFilterBenchmark {
+
+    private static final float WORLD_SIZE = 150;
+    private static final int ISLANDS = 40;
+    private static final int LIFETIME = 15; // ticks
+    private static final float SPEED = 20;
+    private static final int WARM_UP = 100;
+    private static final int TICKS = 600;
+
+    public static void main(String[] args) {
+        int ships = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int shots = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        System.out.println("ships:" + ships + " shots/tick:" + shots + " islands:" + ISLANDS);
+        System.out.println("filter\t\tnew pairs/tick\tcontacts\ttouching\tms/tick");
+        run(false, ships, shots);
+        run(true, ships, shots);
+    }
+
+    private static void run(boolean matrix, int shipCount, int shots) {
+        Random random = new Random(7);
+        World world = new World(new Vec2(0, 0));
+        PairCounter pairCounter = new PairCounter();
+        world.setContactFilter(pairCounter);
+        for (int i = 0; i < ISLANDS; i++) {
+            createBox(world, random, BodyType.STATIC, 3, Constants.CATEGORY_ISLAND, matrix);
+        }
+        List<Body> ships = new ArrayList<>(shipCount);
+        for (int i = 0; i < shipCount; i++) {
+            Body ship = createBox(world, random, BodyType.DYNAMIC, 1, Constants.CATEGORY_SHIP,
+                    matrix);
+            ship.setLinearVelocity(new Vec2(random.nextFloat() * 4 - 2,
+                    random.nextFloat() * 4 - 2));
+            ships.add(ship);
+        }
+        ArrayDeque<Body> bullets = new ArrayDeque<>();
+        long startPairs = 0, contacts = 0, touching = 0, start = 0;
+        for (int tick = 0; tick < WARM_UP + TICKS; tick++) {
+            if (tick == WARM_UP) {
+                startPairs = pairCounter.getPairs();
+                start = System.nanoTime();
+            }
+            while (bullets.size() >= shots * LIFETIME) {
+                world.destroyBody(bullets.poll());
+            }
+            for (int i = 0; i < shots; i++) {
+                Body ship = ships.get(random.nextInt(ships.size()));
+                float angle = ship.getAngle() + random.nextFloat() * 0.2f;
+                Vec2 direction = new Vec2((float) Math.cos(angle), (float) Math.sin(angle));
+                bullets.add(createBullet(world, ship.getPosition().add(direction.mul(3)),
+                        direction.mul(SPEED), matrix));
+            }
+            world.step(Constants.timeStep, Constants.velocityIterations,
+                    Constants.positionIterations);
+            if (tick >= WARM_UP) {
+                contacts += world.getContactCount();
+                for (Contact c = world.getContactList(); c != null; c = c.getNext()) {
+                    if (c.isTouching()) {
+                        touching++;
+                    }
+                }
+            }
+        }
+        double ms = (System.nanoTime() - start) / 1e6 / TICKS;
+        System.out.println((matrix ? "matrix" : "group 2") + "\t\t"
+                + (pairCounter.getPairs() - startPairs) / TICKS + "\t\t" + contacts / TICKS
+                + "\t\t" + touching / TICKS + "\t\t" + String.format("%.3f", ms));
+    }
+
+    private static Body createBox(World world, Random random, BodyType type, float halfSize,
+            int category, boolean matrix) {
+        BodyDef bd = new BodyDef();
+        bd.type = type;
+        bd.position.set(random.nextFloat() * WORLD_SIZE, random.nextFloat() * WORLD_SIZE);
+        bd.angle = random.nextFloat() * 2 * (float) Math.PI;
+        PolygonShape ps = new PolygonShape();
+        ps.setAsBox(halfSize, halfSize);
+        FixtureDef fd = new FixtureDef();
+        fd.shape = ps;
+        fd.density = 0.5f;
+        setFilter(fd, category, matrix);
+        Body body = world.createBody(bd);
+        body.createFixture(fd);
+        return body;
+    }
+
+    private static Body createBullet(World world, Vec2 position, Vec2 velocity, boolean matrix) {
+        BodyDef bd = new BodyDef();
+        bd.type = BodyType.DYNAMIC;
+        bd.bullet = true;
+        bd.position.set(position);
+        CircleShape circle = new CircleShape();
+        circle.m_radius = 0.5f;
+        FixtureDef fd = new FixtureDef();
+        fd.shape = circle;
+        fd.density = 0.1f;
+        fd.restitution = 0.5f;
+        setFilter(fd, Constants.CATEGORY_BULLET, matrix);
+        Body body = world.createBody(bd);
+        body.createFixture(fd);
+        body.setLinearVelocity(velocity);
+        return body;
+    }
+
+    private static void setFilter(FixtureDef fd, int category, boolean matrix) {
+        if (matrix) {
+            CollisionMatrix.apply(fd, category);
+        } else {
+            fd.filter.groupIndex = 2;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.sangraama.util.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.sangraama.jsonprotocols.FragmentArena;
+import org.sangraama.jsonprotocols.JsonEncoder;
+import org.sangraama.jsonprotocols.SendProtocol;
+import org.sangraama.jsonprotocols.send.BulletDelta;
+import org.sangraama.jsonprotocols.send.PlayerDelta;
+
+import com.google.gson.Gson;
+
+/**
+ * Compare Gson with the streaming JsonEncoder on update lists of typical sizes, and with frames
+ * assembled from fragments which are encoded once (FragmentArena). Output of all of them is
+ * checked to be identical by JsonEncoderTest. Runs outside of the server.
+ *
+ * Usage: java org.sangraama.util.test.JsonEncoderBenchmark
+ */
+public class JsonEncoderBenchmark {
+
+    private static final int[] LIST_SIZES = { 5, 20, 80, 320 };
+    private static final int ROUNDS = 20000;
+    private static final int VIEWERS = 10;
+
+    public static void main(String[] args) {
+        Gson gson = new Gson();
+        JsonEncoder encoder = JsonEncoder.forThread();
+        Random random = new Random(7);
+
+
+        System.out.println("messages\tgson(us/list)\tencoder(us/list)\tarena(us/list)\tspeedup");
+        for (int n : LIST_SIZES) {
+            List<SendProtocol> deltas = createDeltas(random, n);
+            // warm up
+            long sink = 0;
+            for (int r = 0; r < ROUNDS; r++) {
+                sink += gson.toJson(deltas).length();
+                sink += encoder.encode(deltas).length();
+            }
+            long start = System.nanoTime();
+            for (int r = 0; r < ROUNDS; r++) {
+                sink += gson.toJson(deltas).length();
+            }
+            double gsonUs = (System.nanoTime() - start) / 1e3 / ROUNDS;
+            start = System.nanoTime();
+            for (int r = 0; r < ROUNDS; r++) {
+                sink += encoder.encode(deltas).length();
+            }
+            double encoderUs = (System.nanoTime() - start) / 1e3 / ROUNDS;
+            /* Every list is seen by VIEWERS clients; fragments are encoded once for all of them */
+            FragmentArena arena = new FragmentArena();
+            SendProtocol[] deltaArray = deltas.toArray(new SendProtocol[n]);
+            int[] entities = new int[n];
+            for (int i = 0; i < n; i++) {
+                entities[i] = i;
+            }
+            List<SendProtocol> noEvents = new ArrayList<>();
+            start = System.nanoTime();
+            for (int r = 0; r < ROUNDS / VIEWERS; r++) {
+                arena.encode(deltaArray, null, n, false);
+                for (int v = 0; v < VIEWERS; v++) {
+                    sink += arena.assemble(false, noEvents, entities, n).getText().length();
+                }
+            }
+            double arenaUs = (System.nanoTime() - start) / 1e3 / (ROUNDS / VIEWERS * VIEWERS);
+            System.out.println(n + "\t\t" + String.format("%.3f", gsonUs) + "\t\t"
+                    + String.format("%.3f", encoderUs) + "\t\t\t"
+                    + String.format("%.3f", arenaUs) + "\t\t"
+                    + String.format("%.2f", gsonUs / arenaUs) + (sink == 0 ? " " : ""));
+        }
+    }
+
+    private static List<SendProtocol> createDeltas(Random random, int n) {
+        List<SendProtocol> deltas = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            float x = random.nextFloat() * 156, y = random.nextFloat() * 156;
+            float a = random.nextFloat() * 6.28f;
+            if (i % 3 == 0) {
+                deltas.add(new PlayerDelta(x, y, a, 1000 + i, 100 - i % 100, i * 10, 1));
+            } else {
+                deltas.add(new BulletDelta(x, y, a, 1000 + i / 3, i, 2));
+            }
+        }
+        return deltas;
+    }
+}
@@ -0,0 +1,130 @@
+package org.sangraama.util.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.jbox2d.collision.shapes.PolygonShape;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.BodyDef;
+import org.jbox2d.dynamics.BodyType;
+import org.jbox2d.dynamics.FixtureDef;
+import org.jbox2d.dynamics.World;
+import org.sangraama.assets.Bullet;
+import org.sangraama.assets.SangraamaMap;
+import org.sangraama.common.Constants;
+import org.sangraama.gameLogic.GameInstance;
+import org.sangraama.gameLogic.ProjectileEngine;
+
+/**
+ * Compare ticks per second of a game world with JBox2D bullet bodies and with ray cast bullets
+ * (ProjectileEngine). Bullets which hit something or run out of range are fired again from a
+ * random position, so the number of live bullets stays constant. Runs outside of the server.
+ *
+ * Usage: java org.sangraama.util.test.ProjectileBenchmark [bullets] [ships]
+ */
+public class ProjectileBenchmark {
+
+    private static final float WORLD_SIZE = 200;
+    private static final float RANGE = 15; // same as GameEngine
+    private static final float SPEED = 20;
+    private static final int ISLANDS = 40;
+    private static final int WARM_UP = 100;
+    private static final int TICKS = 600;
+
+    private static GameInstance instance; // game instance which the bullets are fired in
+
+    public static void main(String[] args) {
+        int bullets = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int ships = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        System.out.println("bullets:" + bullets + " ships:" + ships + " islands:" + ISLANDS);
+        System.out.println("mode\t\tticks/s\t\tms/tick\t\thits");
+        instance = new GameInstance("benchmark", new SangraamaMap());
+        run(false, bullets, ships);
+        run(true, bullets, ships);
+        instance.setStop();
+    }
+
+    private static void run(boolean raycast, int bulletCount, int shipCount) {
+        Random random = new Random(7);
+        World world = new World(new Vec2(0, 0));
+        for (int i = 0; i < ISLANDS; i++) {
+            createBox(world, random, BodyType.STATIC, 3);
+        }
+        for (int i = 0; i < shipCount; i++) {
+            Body ship = createBox(world, random, BodyType.DYNAMIC, 1);
+            ship.setLinearVelocity(new Vec2(random.nextFloat() * 4 - 2,
+                    random.nextFloat() * 4 - 2));
+        }
+        ProjectileEngine projectiles = new ProjectileEngine(world);
+        List<Bullet> bullets = new ArrayList<>(bulletCount);
+        for (int i = 0; i < bulletCount; i++) {
+            Bullet bullet = fire(world, projectiles, random, i, raycast);
+            bullets.add(bullet);
+        }
+
+        long hits = 0, start = 0;
+        for (int tick = 0; tick < WARM_UP + TICKS; tick++) {
+            if (tick == WARM_UP) {
+                start = System.nanoTime();
+                hits = 0;
+            }
+            world.step(Constants.timeStep, Constants.velocityIterations,
+                    Constants.positionIterations);
+            if (raycast) {
+                hits += projectiles.step(Constants.timeStep);
+            }
+            for (int i = 0; i < bullets.size(); i++) {
+                Bullet bullet = bullets.get(i);
+                float dx = bullet.getX() - bullet.getOriginX();
+                float dy = bullet.getY() - bullet.getOriginY();
+                if (bullet.isHit() || dx * dx + dy * dy >= RANGE * RANGE) {
+                    if (raycast) {
+                        projectiles.remove(bullet);
+                    } else {
+                        world.destroyBody(bullet.getBody());
+                    }
+                    bullets.set(i, fire(world, projectiles, random, i, raycast));
+                }
+            }
+        }
+        double ms = (System.nanoTime() - start) / 1e6 / TICKS;
+        System.out.println((raycast ? "raycast" : "box2d") + "\t\t"
+                + String.format("%.1f", 1000 / ms) + "\t\t" + String.format("%.3f", ms) + "\t\t"
+                + (raycast ? hits : "-"));
+    }
+
+    private static Body createBox(World world, Random random, BodyType type, float halfSize) {
+        BodyDef bd = new BodyDef();
+        bd.type = type;
+        bd.position.set(random.nextFloat() * WORLD_SIZE, random.nextFloat() * WORLD_SIZE);
+        PolygonShape ps = new PolygonShape();
+        ps.setAsBox(halfSize, halfSize);
+        FixtureDef fd = new FixtureDef();
+        fd.shape = ps;
+        fd.density = 0.5f;
+        fd.userData = "island";
+        fd.filter.categoryBits = Constants.CATEGORY_ISLAND;
+        Body body = world.createBody(bd);
+        body.createFixture(fd);
+        return body;
+    }
+
+    private static Bullet fire(World world, ProjectileEngine projectiles, Random random, long id,
+            boolean raycast) {
+        float x = random.nextFloat() * WORLD_SIZE, y = random.nextFloat() * WORLD_SIZE;
+        double angle = random.nextDouble() * 2 * Math.PI;
+        Vec2 velocity = new Vec2((float) Math.cos(angle) * SPEED, (float) Math.sin(angle) * SPEED);
+        Bullet bullet = new Bullet(instance, id, 1, x, y, velocity, x, y, 0, 0, 1);
+        if (raycast) {
+            projectiles.add(bullet);
+        } else {
+            Body body = world.createBody(bullet.getBodyDef());
+            body.createFixture(bullet.getFixtureDef());
+            body.setLinearVelocity(velocity);
+            bullet.setBody(body);
+        }
+        return bullet;
+    }
+}
@@ -0,0 +1,165 @@
+package org.sangraama.util.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.jbox2d.collision.shapes.PolygonShape;
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.BodyDef;
+import org.jbox2d.dynamics.FixtureDef;
+import org.sangraama.assets.Bullet;
+import org.sangraama.assets.Player;
+import org.sangraama.assets.SangraamaMap;
+import org.sangraama.assets.Ship;
+import org.sangraama.common.CollisionMatrix;
+import org.sangraama.common.Constants;
+import org.sangraama.gameLogic.ContactRing;
+import org.sangraama.gameLogic.EntityRegistry;
+import org.sangraama.gameLogic.GameInstance;
+import org.sangraama.gameLogic.queue.AdmissionQueue;
+import org.sangraama.gameLogic.region.PhysicsRegion;
+import org.sangraama.gameLogic.region.RegionGrid;
+
+/**
+ * Measure physics regions (RegionGrid) outside of the server. Ships move around a tile with
+ * islands in a single region and in a grid of regions; ship contacts per tick should be about the
+ * same. Shows ms per tick of both; regions only speed up the step when there are free cores.
+ * Seams of the regions are checked by RegionGridTest.
+ *
+ * Usage: java org.sangraama.util.test.RegionBenchmark [ships] [regionsPerSide]
+ */
+public class RegionBenchmark {
+
+    private static final float TILE_SIZE = 400; // JBox2D units
+    private static final float SUB_TILE_SIZE = 50;
+    private static final int ISLANDS = 200;
+    private static final float SPEED = 6;
+    private static final int WARM_UP = 50;
+    private static final int TICKS = 400;
+
+    private static GameInstance instance; // game instance which the ships join
+
+    public static void main(String[] args) {
+        int ships = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        int side = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        SangraamaMap map = new SangraamaMap();
+        map.setMap(0, 0, TILE_SIZE * Constants.scale, TILE_SIZE * Constants.scale, "localhost",
+                TILE_SIZE * Constants.scale, TILE_SIZE * Constants.scale);
+        map.setSubTileProperties(SUB_TILE_SIZE * Constants.scale,
+                SUB_TILE_SIZE * Constants.scale);
+        instance = new GameInstance("benchmark", map);
+        // Ships queue themselves to join the game world; nobody reads the queue here
+        instance.getPlayerQueue().init(new AdmissionQueue<Player>("new players", ships + 16),
+                new AdmissionQueue<Player>("removed players", 16),
+                new ConcurrentLinkedQueue<Player>());
+
+        System.out.println("ships:" + ships + " islands:" + ISLANDS + " tile:" + TILE_SIZE);
+        System.out.println("regions\tship contacts/tick\tghosts\tlost ships\tms/tick");
+        boolean ok = run(1, ships);
+        ok &= run(side, ships);
+        System.out.println(ok ? "regions: OK" : "regions: FAILED");
+        System.exit(ok ? 0 : 1); // ships started the sender threads of the AOI stage
+    }
+
+    private static boolean run(int side, int shipCount) {
+        Random random = new Random(3);
+        RegionGrid grid = new RegionGrid(instance.getMap(), side, side,
+                Constants.regionMargin, false);
+        for (int i = 0; i < ISLANDS; i++) {
+            float x = random.nextFloat() * TILE_SIZE;
+            float y = random.nextFloat() * TILE_SIZE;
+            for (int r = 0; r < grid.size(); r++) {
+                addIsland(grid.get(r), x, y);
+            }
+        }
+        grid.start();
+        EntityRegistry<Player> players = new EntityRegistry<>();
+        EntityRegistry<Bullet> bullets = new EntityRegistry<>();
+        List<Player> ships = new ArrayList<>(shipCount);
+        for (int i = 0; i < shipCount; i++) {
+            float angle = random.nextFloat() * 2 * (float) Math.PI;
+            ships.add(addShip(grid, players, i + 1, random.nextFloat() * TILE_SIZE,
+                    random.nextFloat() * TILE_SIZE, SPEED * (float) Math.cos(angle),
+                    SPEED * (float) Math.sin(angle)));
+        }
+        long contacts = 0, ghosts = 0, start = 0;
+        for (long tick = 1; tick <= WARM_UP + TICKS; tick++) {
+            if (tick == WARM_UP + 1) {
+                start = System.nanoTime();
+            }
+            for (Player ship : ships) { // keep ships on the tile
+                Body body = ship.getBody();
+                Vec2 p = body.getPosition();
+                Vec2 v = body.getLinearVelocity();
+                if ((p.x < 0 && v.x < 0) || (p.x > TILE_SIZE && v.x > 0)) {
+                    body.setLinearVelocity(new Vec2(-v.x, v.y));
+                }
+                if ((p.y < 0 && v.y < 0) || (p.y > TILE_SIZE && v.y > 0)) {
+                    body.setLinearVelocity(new Vec2(v.x, -v.y));
+                }
+            }
+            grid.step(tick);
+            int shipContacts = countShipContacts(grid);
+            grid.sync(players, bullets);
+            if (tick > WARM_UP) {
+                contacts += shipContacts;
+                for (int r = 0; r < grid.size(); r++) {
+                    ghosts += grid.get(r).getGhostCount();
+                }
+            }
+        }
+        double ms = (System.nanoTime() - start) / 1e6 / TICKS;
+        grid.setStop();
+        int owned = 0;
+        for (int r = 0; r < grid.size(); r++) {
+            PhysicsRegion region = grid.get(r);
+            owned += region.getWorld().getBodyCount() - region.getGhostCount() - ISLANDS;
+        }
+        int lost = shipCount - owned;
+        System.out.println(side + "x" + side + "\t" + String.format("%.1f", contacts
+                / (float) TICKS) + "\t\t\t" + ghosts / TICKS + "\t" + lost + "\t\t"
+                + String.format("%.3f", ms));
+        return lost == 0;
+    }
+
+    private static Player addShip(RegionGrid grid, EntityRegistry<Player> players, long userID,
+            float x, float y, float vx, float vy) {
+        Ship ship = new Ship(instance, userID, x, y, 30, 30, 100, 0, null, 1, 1);
+        Body body = grid.createBody(ship.getBodyDef(), ship.getFixtureDef());
+        body.setLinearVelocity(new Vec2(vx, vy));
+        ship.setBody(body);
+        players.put(userID, ship);
+        return ship;
+    }
+
+    private static void addIsland(PhysicsRegion region, float x, float y) {
+        BodyDef bd = new BodyDef();
+        bd.position.set(x, y);
+        PolygonShape ps = new PolygonShape();
+        ps.setAsBox(3, 3);
+        FixtureDef fd = new FixtureDef();
+        fd.shape = ps;
+        CollisionMatrix.apply(fd, Constants.CATEGORY_ISLAND);
+        region.getWorld().createBody(bd).createFixture(fd);
+    }
+
+    /* Count and consume ship to ship contacts recorded by the regions */
+    private static int countShipContacts(RegionGrid grid) {
+        int count = 0;
+        for (int r = 0; r < grid.size(); r++) {
+            ContactRing ring = grid.get(r).getContacts();
+            int size = ring.size();
+            for (int i = 0; i < size; i++) {
+                if (ring.getCategoryA(i) == Constants.CATEGORY_SHIP
+                        && ring.getCategoryB(i) == Constants.CATEGORY_SHIP) {
+                    count++;
+                }
+            }
+            ring.consume(size);
+        }
+        return count;
+    }
+}